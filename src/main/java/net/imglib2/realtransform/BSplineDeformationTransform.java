@@ -0,0 +1,443 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPositionable;
+import net.imglib2.realtransform.inverse.AbstractDifferentiableRealTransform;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+
+/**
+ * A free-form deformation: the displacement of a point is the cubic
+ * B-spline interpolation of displacement coefficients on a coarse regular
+ * control point grid.  Control point <code>k</code> is located at
+ * <code>origin + k * spacing</code>, the grid is extended by its border
+ * coefficients.
+ * <p>
+ * Evaluation is separable, the four B-spline weights per dimension are
+ * computed once per point and the 4<sup>n</sup> neighboring coefficients are
+ * read in memory order.  The {@link #jacobian(double[]) Jacobian} is
+ * analytic, which makes iterative inversion (e.g. with
+ * {@link net.imglib2.realtransform.inverse.WrappedIterativeInvertibleRealTransform})
+ * fast.
+ * <p>
+ * Instances are not thread safe, use {@link #copy()} for each thread.
+ * Copies share the coefficients.
+ */
+public class BSplineDeformationTransform extends AbstractDifferentiableRealTransform
+{
+	protected final int n;
+
+	protected final int[] gridSize;
+
+	protected final double[] spacing;
+
+	protected final double[] origin;
+
+	/**
+	 * Displacement coefficients, the n components of each control point are
+	 * interleaved and control points are in flat iteration order.
+	 */
+	protected final double[] coefficients;
+
+	protected final int[] strides;
+
+	private final int[][] offsets;
+
+	private final double[][] weights;
+
+	private final double[][] derivatives;
+
+	private final int[] knots;
+
+	private final double[] point;
+
+	private final double[] displacement;
+
+	private final double[][] gradient;
+
+	private final AffineTransform jacobian;
+
+	private final double[][] matrix;
+
+	/**
+	 * Creates an identity deformation.
+	 *
+	 * @param spacing
+	 *            the control point spacing
+	 * @param origin
+	 *            the position of the first control point
+	 * @param gridSize
+	 *            the number of control points in each dimension
+	 */
+	public BSplineDeformationTransform( final double[] spacing, final double[] origin, final int... gridSize )
+	{
+		this( new double[ size( gridSize ) ], spacing, origin, gridSize );
+	}
+
+	/**
+	 * @param coefficients
+	 *            the displacement coefficients, interleaved, control points
+	 *            in flat iteration order, used without copy
+	 * @param spacing
+	 *            the control point spacing
+	 * @param origin
+	 *            the position of the first control point
+	 * @param gridSize
+	 *            the number of control points in each dimension
+	 */
+	public BSplineDeformationTransform( final double[] coefficients, final double[] spacing, final double[] origin, final int... gridSize )
+	{
+		n = gridSize.length;
+		if ( spacing.length != n || origin.length != n )
+			throw new IllegalArgumentException( "Spacing, origin, and grid must have the same dimensionality." );
+		if ( coefficients.length != size( gridSize ) )
+			throw new IllegalArgumentException( "Expected " + size( gridSize ) + " coefficients but found " + coefficients.length + "." );
+
+		this.gridSize = gridSize.clone();
+		this.spacing = spacing.clone();
+		this.origin = origin.clone();
+		this.coefficients = coefficients;
+
+		strides = new int[ n ];
+		int stride = n;
+		for ( int d = 0; d < n; ++d )
+		{
+			strides[ d ] = stride;
+			stride *= gridSize[ d ];
+		}
+
+		offsets = new int[ n ][ 4 ];
+		weights = new double[ n ][ 4 ];
+		derivatives = new double[ n ][ 4 ];
+		knots = new int[ n ];
+		point = new double[ n ];
+		displacement = new double[ n ];
+		gradient = new double[ n ][ n ];
+		jacobian = new AffineTransform( n );
+		matrix = new double[ n ][ n + 1 ];
+	}
+
+	/**
+	 * @param <T>
+	 *            coefficient type
+	 * @param coefficients
+	 *            the displacement coefficients with the components in
+	 *            dimension 0, like the fields created by
+	 *            {@link DisplacementFieldTransform#createDisplacementField}
+	 * @param spacing
+	 *            the control point spacing
+	 * @param origin
+	 *            the position of the first control point
+	 */
+	public < T extends RealType< T > > BSplineDeformationTransform( final RandomAccessibleInterval< T > coefficients, final double[] spacing, final double[] origin )
+	{
+		this( copy( coefficients ), spacing, origin, gridSize( coefficients ) );
+	}
+
+	private static int size( final int[] gridSize )
+	{
+		long size = gridSize.length;
+		for ( final int s : gridSize )
+		{
+			if ( s < 1 )
+				throw new IllegalArgumentException( "Empty control point grid." );
+			size *= s;
+		}
+		if ( size > Integer.MAX_VALUE - 8 )
+			throw new IllegalArgumentException( "Control point grid too large." );
+		return ( int )size;
+	}
+
+	private static int[] gridSize( final RandomAccessibleInterval< ? > coefficients )
+	{
+		if ( coefficients.dimension( 0 ) != coefficients.numDimensions() - 1 )
+			throw new IllegalArgumentException( "Expected " + ( coefficients.numDimensions() - 1 ) + " components in dimension 0." );
+		final int[] gridSize = new int[ coefficients.numDimensions() - 1 ];
+		for ( int d = 0; d < gridSize.length; ++d )
+			gridSize[ d ] = ( int )coefficients.dimension( d + 1 );
+		return gridSize;
+	}
+
+	private static < T extends RealType< T > > double[] copy( final RandomAccessibleInterval< T > coefficients )
+	{
+		final double[] data = new double[ size( gridSize( coefficients ) ) ];
+		int i = 0;
+		for ( final T t : Views.flatIterable( coefficients ) )
+			data[ i++ ] = t.getRealDouble();
+		return data;
+	}
+
+	/**
+	 * @return the backing coefficient array, the n components of each
+	 *         control point are interleaved, control points are in flat
+	 *         iteration order
+	 */
+	public double[] getCoefficients()
+	{
+		return coefficients;
+	}
+
+	/**
+	 * Set the displacement coefficient of a control point.
+	 *
+	 * @param controlPoint
+	 *            the control point grid position
+	 * @param value
+	 *            the displacement coefficient
+	 */
+	public void setCoefficient( final int[] controlPoint, final double... value )
+	{
+		int o = 0;
+		for ( int d = 0; d < n; ++d )
+			o += controlPoint[ d ] * strides[ d ];
+		System.arraycopy( value, 0, coefficients, o, n );
+	}
+
+	public int[] getGridSize()
+	{
+		return gridSize.clone();
+	}
+
+	public double[] getSpacing()
+	{
+		return spacing.clone();
+	}
+
+	public double[] getOrigin()
+	{
+		return origin.clone();
+	}
+
+	@Override
+	public int numSourceDimensions()
+	{
+		return n;
+	}
+
+	@Override
+	public int numTargetDimensions()
+	{
+		return n;
+	}
+
+	/**
+	 * Compute offsets and B-spline weights (and their derivatives with
+	 * respect to x) of the four neighboring control points in each
+	 * dimension.
+	 */
+	private void stencil( final double x, final int d, final boolean derive )
+	{
+		final double u = ( x - origin[ d ] ) / spacing[ d ];
+		final double f = Math.floor( u );
+		final double t = u - f;
+		final double s = 1.0 - t;
+		final double t2 = t * t;
+		final double t3 = t2 * t;
+
+		final double[] w = weights[ d ];
+		w[ 0 ] = s * s * s / 6.0;
+		w[ 1 ] = ( 3.0 * t3 - 6.0 * t2 + 4.0 ) / 6.0;
+		w[ 2 ] = ( -3.0 * t3 + 3.0 * t2 + 3.0 * t + 1.0 ) / 6.0;
+		w[ 3 ] = t3 / 6.0;
+
+		if ( derive )
+		{
+			final double[] dw = derivatives[ d ];
+			final double scale = 1.0 / spacing[ d ];
+			dw[ 0 ] = -0.5 * s * s * scale;
+			dw[ 1 ] = ( 1.5 * t2 - 2.0 * t ) * scale;
+			dw[ 2 ] = ( -1.5 * t2 + t + 0.5 ) * scale;
+			dw[ 3 ] = 0.5 * t2 * scale;
+		}
+
+		final int[] o = offsets[ d ];
+		final int max = gridSize[ d ] - 1;
+		final long first = ( long )f - 1;
+		for ( int k = 0; k < 4; ++k )
+		{
+			final long i = first + k;
+			o[ k ] = ( i < 0 ? 0 : i > max ? max : ( int )i ) * strides[ d ];
+		}
+	}
+
+	/**
+	 * Compute the displacement at x, and its gradient if requested.
+	 */
+	private void evaluate( final double[] x, final boolean derive )
+	{
+		for ( int d = 0; d < n; ++d )
+			stencil( x[ d ], d, derive );
+
+		if ( n == 3 && !derive )
+			evaluate3D();
+		else
+			evaluateND( derive );
+	}
+
+	private void evaluate3D()
+	{
+		final double[] wx = weights[ 0 ], wy = weights[ 1 ], wz = weights[ 2 ];
+		final int[] ox = offsets[ 0 ], oy = offsets[ 1 ], oz = offsets[ 2 ];
+		double u0 = 0, u1 = 0, u2 = 0;
+		for ( int k = 0; k < 4; ++k )
+		{
+			for ( int j = 0; j < 4; ++j )
+			{
+				final double wzy = wz[ k ] * wy[ j ];
+				final int ozy = oz[ k ] + oy[ j ];
+				for ( int i = 0; i < 4; ++i )
+				{
+					final double w = wzy * wx[ i ];
+					final int o = ozy + ox[ i ];
+					u0 += w * coefficients[ o ];
+					u1 += w * coefficients[ o + 1 ];
+					u2 += w * coefficients[ o + 2 ];
+				}
+			}
+		}
+		displacement[ 0 ] = u0;
+		displacement[ 1 ] = u1;
+		displacement[ 2 ] = u2;
+	}
+
+	private void evaluateND( final boolean derive )
+	{
+		for ( int c = 0; c < n; ++c )
+		{
+			displacement[ c ] = 0;
+			if ( derive )
+				for ( int d = 0; d < n; ++d )
+					gradient[ c ][ d ] = 0;
+		}
+
+		final int[] k = knots;
+		final int numCorners = 1 << ( 2 * n );
+		for ( int corner = 0; corner < numCorners; ++corner )
+		{
+			int o = 0;
+			double w = 1;
+			for ( int d = 0; d < n; ++d )
+			{
+				k[ d ] = ( corner >> ( 2 * d ) ) & 3;
+				o += offsets[ d ][ k[ d ] ];
+				w *= weights[ d ][ k[ d ] ];
+			}
+
+			for ( int c = 0; c < n; ++c )
+				displacement[ c ] += w * coefficients[ o + c ];
+
+			if ( derive )
+			{
+				for ( int d = 0; d < n; ++d )
+				{
+					double dw = derivatives[ d ][ k[ d ] ];
+					for ( int e = 0; e < n; ++e )
+						if ( e != d )
+							dw *= weights[ e ][ k[ e ] ];
+					for ( int c = 0; c < n; ++c )
+						gradient[ c ][ d ] += dw * coefficients[ o + c ];
+				}
+			}
+		}
+	}
+
+	@Override
+	public void apply( final double[] source, final double[] target )
+	{
+		evaluate( source, false );
+		for ( int d = 0; d < n; ++d )
+			target[ d ] = source[ d ] + displacement[ d ];
+	}
+
+	@Override
+	public void apply( final RealLocalizable source, final RealPositionable target )
+	{
+		final double[] x = point;
+		source.localize( x );
+		evaluate( x, false );
+		for ( int d = 0; d < n; ++d )
+			target.setPosition( x[ d ] + displacement[ d ], d );
+	}
+
+	/**
+	 * Transform a batch of points.
+	 *
+	 * @param sources
+	 *            source coordinates, the n coordinates of each point are
+	 *            interleaved
+	 * @param targets
+	 *            target coordinates, may be the same array as sources
+	 * @param numPoints
+	 *            the number of points
+	 */
+	public void apply( final double[] sources, final double[] targets, final int numPoints )
+	{
+		final double[] x = point;
+		for ( int i = 0, o = 0; i < numPoints; ++i, o += n )
+		{
+			System.arraycopy( sources, o, x, 0, n );
+			evaluate( x, false );
+			for ( int d = 0; d < n; ++d )
+				targets[ o + d ] = x[ d ] + displacement[ d ];
+		}
+	}
+
+	/**
+	 * Returns the analytic Jacobian of this transform at x.  The returned
+	 * {@link AffineTransform} is reused by subsequent calls.
+	 *
+	 * @param x
+	 *            the point
+	 * @return the jacobian
+	 */
+	@Override
+	public AffineTransform jacobian( final double[] x )
+	{
+		evaluate( x, true );
+		for ( int c = 0; c < n; ++c )
+			for ( int d = 0; d < n; ++d )
+				matrix[ c ][ d ] = ( c == d ? 1.0 : 0.0 ) + gradient[ c ][ d ];
+		jacobian.set( matrix );
+		return jacobian;
+	}
+
+	@Override
+	public BSplineDeformationTransform copy()
+	{
+		return new BSplineDeformationTransform( coefficients, spacing, origin, gridSize );
+	}
+}
@@ -34,8 +34,10 @@
 
 package net.imglib2.realtransform;
 
+import java.util.function.DoubleConsumer;
 import java.util.function.Supplier;
 
+import net.imglib2.FinalDimensions;
 import net.imglib2.FinalInterval;
 import net.imglib2.Interval;
 import net.imglib2.RandomAccessible;
@@ -45,9 +47,13 @@ import net.imglib2.RealPositionable;
 import net.imglib2.RealRandomAccess;
 import net.imglib2.RealRandomAccessible;
 import net.imglib2.converter.Converters;
+import net.imglib2.img.Img;
 import net.imglib2.position.FunctionRandomAccessible;
+import net.imglib2.realtransform.field.FieldMaterializer;
+import net.imglib2.realtransform.field.VectorFieldAccess;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.util.Util;
 import net.imglib2.view.Views;
 import net.imglib2.view.composite.RealComposite;
 
@@ -74,6 +80,31 @@ public class DisplacementFieldTransform extends PositionFieldTransform
 		this.numTargetDimensions = access.get().numDimensions() < access.numDimensions() ? access.get().numDimensions() : access.numDimensions();
 	}
 
+	/**
+	 *
+	 * @param displacements
+	 *            the displacements in pixel coordinates, the Jacobian is
+	 *            analytic if this is a
+	 *            {@link net.imglib2.realtransform.field.VectorField}
+	 * @param pixelToPhysical
+	 *            a transformation from pixel coordinates to physical
+	 *            coordinates
+	 */
+	public DisplacementFieldTransform( final RealRandomAccessible< ? extends RealLocalizable > displacements, final AffineGet pixelToPhysical )
+	{
+		super( displacements, pixelToPhysical );
+		this.numTargetDimensions = access.get().numDimensions() < access.numDimensions() ? access.get().numDimensions() : access.numDimensions();
+	}
+
+	protected DisplacementFieldTransform(
+			final RealRandomAccess< ? extends RealLocalizable > displacementsAccess,
+			final VectorFieldAccess fieldAccess,
+			final AffineGet physicalToGrid )
+	{
+		super( displacementsAccess, fieldAccess, physicalToGrid );
+		this.numTargetDimensions = access.get().numDimensions() < access.numDimensions() ? access.get().numDimensions() : access.numDimensions();
+	}
+
 	/**
 	 *
 	 * @param <T>
@@ -181,9 +212,18 @@ public class DisplacementFieldTransform extends PositionFieldTransform
 	}
 
 	@Override
-	public RealTransform copy()
+	public AffineTransform jacobian( final double[] x )
 	{
-		return new DisplacementFieldTransform( access.copy() );
+		if ( fieldAccess == null )
+			return super.jacobian( x );
+		return fieldJacobian( x, true );
+	}
+
+	@Override
+	public DisplacementFieldTransform copy()
+	{
+		final RealRandomAccess< ? extends RealLocalizable > accessCopy = access.copy();
+		return new DisplacementFieldTransform( accessCopy, copyFieldAccess( accessCopy ), physicalToGrid );
 	}
 
 	/**
@@ -380,4 +420,76 @@ public class DisplacementFieldTransform extends PositionFieldTransform
 		return Views.interval( Views.interleave( displacements ), new FinalInterval( dfieldDims ) );
 	}
 
+	/**
+	 * Evaluates a {@link RealTransform} on a grid and stores the displacements in
+	 * a new {@link DoubleType} {@link net.imglib2.img.array.ArrayImg} or,
+	 * if too large, {@link net.imglib2.img.cell.CellImg}.  In contrast to
+	 * {@link #createDisplacementField(RealTransform, Interval, double[], double[])},
+	 * the transform is evaluated once per grid point, in parallel blocks with
+	 * one transform copy per worker thread.  The layout of the result is that
+	 * of the lazy variant.  Use e.g.
+	 * {@link net.imglib2.realtransform.field.VectorFields} to convert it into
+	 * a compact backend.
+	 *
+	 * @param transform
+	 *            the transform to be converted
+	 * @param interval
+	 *            interval
+	 * @param spacing
+	 *            the spacing of the grid
+	 * @param offset
+	 *            the offset of the grid
+	 * @param progress
+	 *            receives the completed fraction, may be null
+	 * @return the displacement field
+	 */
+	public static RandomAccessibleInterval< DoubleType > materializeDisplacementField(
+			final RealTransform transform,
+			final Interval interval,
+			final double[] spacing,
+			final double[] offset,
+			final DoubleConsumer progress )
+	{
+		final long[] dims = new long[ interval.numDimensions() + 1 ];
+		dims[ 0 ] = transform.numTargetDimensions();
+		for ( int i = 0; i < interval.numDimensions(); ++i )
+			dims[ i + 1 ] = interval.dimension( i );
+
+		final Img< DoubleType > field = Util.getArrayOrCellImgFactory( new FinalDimensions( dims ), new DoubleType() ).create( dims );
+		return materializeDisplacementField( transform, interval, new ScaleAndTranslation( spacing, offset ), field, progress );
+	}
+
+	/**
+	 * Evaluates a {@link RealTransform} on a grid and writes the displacements
+	 * into an existing field image with the components in the 0th dimension,
+	 * see {@link FieldMaterializer}.
+	 *
+	 * @param <T>
+	 *            the type of the field
+	 * @param transform
+	 *            the transform to be converted
+	 * @param interval
+	 *            interval
+	 * @param gridTransform
+	 *            transformation from the grid to the transform's source
+	 *            coordinates
+	 * @param field
+	 *            the output field, must have the dimensions of the interval
+	 * @param progress
+	 *            receives the completed fraction, may be null
+	 * @return the displacement field
+	 */
+	public static < T extends RealType< T > > RandomAccessibleInterval< T > materializeDisplacementField(
+			final RealTransform transform,
+			final Interval interval,
+			final RealTransform gridTransform,
+			final RandomAccessibleInterval< T > field,
+			final DoubleConsumer progress )
+	{
+		for ( int d = 0; d < interval.numDimensions(); ++d )
+			if ( field.dimension( d + 1 ) != interval.dimension( d ) )
+				throw new IllegalArgumentException( "Field and interval dimensions differ." );
+
+		return FieldMaterializer.materialize( transform, gridTransform, true, field, progress );
+	}
 }
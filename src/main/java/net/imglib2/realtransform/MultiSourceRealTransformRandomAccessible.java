@@ -0,0 +1,224 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.Interval;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RealPoint;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.view.composite.Composite;
+
+/**
+ * A {@link RandomAccessible} of {@link Composite Composites} whose
+ * <em>i</em>th component is sampled from the <em>i</em>th of a list of
+ * {@link RealRandomAccessible} sources transformed by one shared
+ * {@link RealTransform}, e.g. the channels or time points of an image.
+ * <p>
+ * The transform is applied once per {@link RandomAccess#get()} and the
+ * resulting coordinate is shared by all sources, instead of once per source
+ * as with one {@link RealTransformRandomAccessible} per source.  Sources
+ * are positioned lazily, only when their component is requested.  Changing
+ * the {@link RealTransform} will affect the
+ * {@link MultiSourceRealTransformRandomAccessible} but not any existing
+ * {@link RandomAccess} on it because each {@link RandomAccess} internally
+ * works with a copy of the transform.
+ * <p>
+ * The {@link Composite} returned by {@link RandomAccess#get()} is reused by
+ * the {@link RandomAccess} and its components are only valid until the
+ * {@link RandomAccess} is moved.
+ *
+ * @param <T> data type
+ * @param <R> transformation
+ */
+public class MultiSourceRealTransformRandomAccessible< T, R extends RealTransform > implements RandomAccessible< Composite< T > >
+{
+	final protected List< RealRandomAccessible< T > > sources;
+
+	final protected R transformToSource;
+
+	/**
+	 * {@link RandomAccess} that applies the transform once per
+	 * {@link #get()} and positions the source accesses on demand.
+	 */
+	public class MultiSourceRealTransformRandomAccess extends Point implements RandomAccess< Composite< T > >
+	{
+		final protected List< RealRandomAccess< T > > sourceAccesses;
+
+		final protected R transformCopy;
+
+		final protected RealPoint sourcePosition;
+
+		/** generation of the source position that each source access is at */
+		final protected int[] generations;
+
+		protected int generation = 0;
+
+		final protected Composite< T > composite = this::sample;
+
+		@SuppressWarnings( "unchecked" )
+		protected MultiSourceRealTransformRandomAccess()
+		{
+			super( transformToSource.numSourceDimensions() );
+			sourceAccesses = new ArrayList<>( sources.size() );
+			for ( final RealRandomAccessible< T > source : sources )
+				sourceAccesses.add( source.realRandomAccess() );
+			transformCopy = ( R )transformToSource.copy();
+			sourcePosition = new RealPoint( transformToSource.numTargetDimensions() );
+			generations = new int[ sources.size() ];
+		}
+
+		@SuppressWarnings( "unchecked" )
+		protected MultiSourceRealTransformRandomAccess( final MultiSourceRealTransformRandomAccess a )
+		{
+			super( a );
+			sourceAccesses = new ArrayList<>( a.sourceAccesses.size() );
+			for ( final RealRandomAccess< T > sourceAccess : a.sourceAccesses )
+				sourceAccesses.add( sourceAccess.copy() );
+			transformCopy = ( R )a.transformCopy.copy();
+			sourcePosition = new RealPoint( a.sourcePosition );
+			generations = new int[ a.generations.length ];
+		}
+
+		/**
+		 * Get the sample of source <em>i</em> at the most recently transformed
+		 * position.
+		 */
+		protected T sample( final long i )
+		{
+			final int j = ( int )i;
+			final RealRandomAccess< T > sourceAccess = sourceAccesses.get( j );
+			if ( generations[ j ] != generation )
+			{
+				sourceAccess.setPosition( sourcePosition );
+				generations[ j ] = generation;
+			}
+			return sourceAccess.get();
+		}
+
+		@Override
+		public Composite< T > get()
+		{
+			transformCopy.apply( this, sourcePosition );
+			if ( ++generation == 0 )
+			{
+				/* after overflow, no access may appear up to date */
+				Arrays.fill( generations, -1 );
+				generation = 1;
+			}
+			return composite;
+		}
+
+		@Override
+		public Composite< T > getType()
+		{
+			return MultiSourceRealTransformRandomAccessible.this.getType();
+		}
+
+		@Override
+		public MultiSourceRealTransformRandomAccess copy()
+		{
+			return new MultiSourceRealTransformRandomAccess( this );
+		}
+	}
+
+	/**
+	 * @param sources
+	 *            the sources, all of the same dimensionality
+	 * @param transformToSource
+	 *            transformation from target to source coordinates
+	 */
+	public MultiSourceRealTransformRandomAccessible( final List< ? extends RealRandomAccessible< T > > sources, final R transformToSource )
+	{
+		assert sources.stream().allMatch( s -> s.numDimensions() == transformToSource.numTargetDimensions() );
+
+		this.sources = new ArrayList<>( sources );
+		this.transformToSource = transformToSource;
+	}
+
+	/**
+	 * @return the number of sources
+	 */
+	public int numSources()
+	{
+		return sources.size();
+	}
+
+	/**
+	 * @return source {@link RealRandomAccessible RealRandomAccessibles}
+	 */
+	public List< RealRandomAccessible< T > > getSources()
+	{
+		return sources;
+	}
+
+	/**
+	 * @return transform applied to the sources
+	 */
+	public R getTransformToSource()
+	{
+		return transformToSource;
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return transformToSource.numSourceDimensions();
+	}
+
+	@Override
+	public MultiSourceRealTransformRandomAccess randomAccess()
+	{
+		return new MultiSourceRealTransformRandomAccess();
+	}
+
+	@Override
+	public MultiSourceRealTransformRandomAccess randomAccess( final Interval interval )
+	{
+		return randomAccess();
+	}
+
+	@Override
+	public Composite< T > getType()
+	{
+		return i -> sources.get( ( int )i ).getType();
+	}
+}
@@ -0,0 +1,314 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform;
+
+import net.imglib2.Interval;
+import net.imglib2.Localizable;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RealLocalizable;
+import net.imglib2.interpolation.randomaccess.NearestNeighborInterpolator;
+
+/**
+ * A {@link RandomAccessible} whose samples are the nearest neighbors in a
+ * discrete {@link RandomAccessible} source of the coordinates transformed by
+ * an {@link AffineGet affine transformation}.
+ * <p>
+ * This is equivalent to an {@link AffineRandomAccessible} over a
+ * {@link NearestNeighborInterpolator}, but source coordinates are stored as
+ * 64-bit fixed-point values with 32 fractional bits.  Each
+ * {@link RandomAccess#fwd(int)} or {@link RandomAccess#bck(int)} adds a
+ * precomputed fixed-point step, and rounding to the nearest source pixel is
+ * a shift.  Absolute positioning and long moves recompute the source
+ * coordinates in double precision such that the rounding error accumulates
+ * only over consecutive unit steps, which is negligible for any practical
+ * raster.  Source coordinates must be in the range
+ * (-2<sup>31</sup>, 2<sup>31</sup>).  Unlike {@link NearestNeighborInterpolator},
+ * coordinates exactly half way between two pixels are rounded up.
+ * <p>
+ * Changing the {@link AffineGet affine transformation} will affect the
+ * {@link NearestNeighborAffineRandomAccessible} but not any existing
+ * {@link RandomAccess} on it.
+ *
+ * @param <T> data type
+ */
+public class NearestNeighborAffineRandomAccessible< T > implements RandomAccessible< T >
+{
+	final static protected int FRACTION_BITS = 32;
+
+	final static protected double ONE = 1L << FRACTION_BITS;
+
+	final static protected long HALF = 1L << ( FRACTION_BITS - 1 );
+
+	final protected RandomAccessible< T > source;
+
+	final protected AffineGet transformToSource;
+
+	/**
+	 * {@link RandomAccess} that steps through source coordinates in
+	 * fixed-point arithmetic.
+	 */
+	public class NearestNeighborAffineRandomAccess extends Point implements RandomAccess< T >
+	{
+		final protected RandomAccess< T > sourceAccess;
+
+		final protected AffineGet transformCopy;
+
+		final protected int m;
+
+		/** fixed-point source coordinates plus 1/2 */
+		final protected long[] fixed;
+
+		/** fixed-point source steps, m consecutive values per target dimension */
+		final protected long[] steps;
+
+		/** current integer position of the source access */
+		final protected long[] sourcePosition;
+
+		final protected double[] tmp;
+
+		protected NearestNeighborAffineRandomAccess()
+		{
+			super( transformToSource.numSourceDimensions() );
+			m = transformToSource.numTargetDimensions();
+			sourceAccess = source.randomAccess();
+			transformCopy = transformToSource.copy();
+			fixed = new long[ m ];
+			steps = new long[ n * m ];
+			sourcePosition = new long[ m ];
+			tmp = new double[ Math.max( n, m ) ];
+			for ( int d = 0; d < n; ++d )
+			{
+				final RealLocalizable dd = transformCopy.d( d );
+				for ( int sd = 0; sd < m; ++sd )
+					steps[ d * m + sd ] = Math.round( dd.getDoublePosition( sd ) * ONE );
+			}
+			sourceAccess.localize( sourcePosition );
+			apply();
+		}
+
+		protected NearestNeighborAffineRandomAccess( final NearestNeighborAffineRandomAccess a )
+		{
+			super( a );
+			m = a.m;
+			sourceAccess = a.sourceAccess.copy();
+			transformCopy = a.transformCopy.copy();
+			fixed = a.fixed.clone();
+			steps = a.steps;
+			sourcePosition = a.sourcePosition.clone();
+			tmp = new double[ a.tmp.length ];
+		}
+
+		/**
+		 * Recompute the fixed-point source coordinates from the current
+		 * position.
+		 */
+		protected void apply()
+		{
+			for ( int d = 0; d < n; ++d )
+				tmp[ d ] = position[ d ];
+			transformCopy.apply( tmp, tmp );
+			for ( int sd = 0; sd < m; ++sd )
+				fixed[ sd ] = Math.round( tmp[ sd ] * ONE ) + HALF;
+		}
+
+		@Override
+		public void fwd( final int d )
+		{
+			++position[ d ];
+			for ( int sd = 0, i = d * m; sd < m; ++sd, ++i )
+				fixed[ sd ] += steps[ i ];
+		}
+
+		@Override
+		public void bck( final int d )
+		{
+			--position[ d ];
+			for ( int sd = 0, i = d * m; sd < m; ++sd, ++i )
+				fixed[ sd ] -= steps[ i ];
+		}
+
+		@Override
+		public void move( final int distance, final int d )
+		{
+			move( ( long )distance, d );
+		}
+
+		@Override
+		public void move( final long distance, final int d )
+		{
+			position[ d ] += distance;
+			apply();
+		}
+
+		@Override
+		public void move( final Localizable localizable )
+		{
+			super.move( localizable );
+			apply();
+		}
+
+		@Override
+		public void move( final int[] distance )
+		{
+			super.move( distance );
+			apply();
+		}
+
+		@Override
+		public void move( final long[] distance )
+		{
+			super.move( distance );
+			apply();
+		}
+
+		@Override
+		public void setPosition( final Localizable localizable )
+		{
+			super.setPosition( localizable );
+			apply();
+		}
+
+		@Override
+		public void setPosition( final int[] pos )
+		{
+			super.setPosition( pos );
+			apply();
+		}
+
+		@Override
+		public void setPosition( final long[] pos )
+		{
+			super.setPosition( pos );
+			apply();
+		}
+
+		@Override
+		public void setPosition( final int pos, final int d )
+		{
+			setPosition( ( long )pos, d );
+		}
+
+		@Override
+		public void setPosition( final long pos, final int d )
+		{
+			position[ d ] = pos;
+			apply();
+		}
+
+		@Override
+		public T get()
+		{
+			for ( int sd = 0; sd < m; ++sd )
+			{
+				final long p = fixed[ sd ] >> FRACTION_BITS;
+				final long distance = p - sourcePosition[ sd ];
+				if ( distance != 0 )
+				{
+					sourceAccess.move( distance, sd );
+					sourcePosition[ sd ] = p;
+				}
+			}
+			return sourceAccess.get();
+		}
+
+		@Override
+		public T getType()
+		{
+			return sourceAccess.getType();
+		}
+
+		@Override
+		public NearestNeighborAffineRandomAccess copy()
+		{
+			return new NearestNeighborAffineRandomAccess( this );
+		}
+	}
+
+	/**
+	 * @param source
+	 *            the discrete source
+	 * @param transformToSource
+	 *            transformation from target to source coordinates
+	 */
+	public NearestNeighborAffineRandomAccessible( final RandomAccessible< T > source, final AffineGet transformToSource )
+	{
+		assert source.numDimensions() == transformToSource.numTargetDimensions();
+
+		this.source = source;
+		this.transformToSource = transformToSource;
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return transformToSource.numSourceDimensions();
+	}
+
+	@Override
+	public NearestNeighborAffineRandomAccess randomAccess()
+	{
+		return new NearestNeighborAffineRandomAccess();
+	}
+
+	@Override
+	public NearestNeighborAffineRandomAccess randomAccess( final Interval interval )
+	{
+		return randomAccess();
+	}
+
+	/**
+	 * @return source {@link RandomAccessible}
+	 */
+	public RandomAccessible< T > getSource()
+	{
+		return source;
+	}
+
+	/**
+	 * @return transform applied to source
+	 */
+	public AffineGet getTransformToSource()
+	{
+		return transformToSource;
+	}
+
+	@Override
+	public T getType()
+	{
+		return source.getType();
+	}
+}
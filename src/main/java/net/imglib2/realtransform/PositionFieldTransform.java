@@ -34,8 +34,10 @@
 
 package net.imglib2.realtransform;
 
+import java.util.function.DoubleConsumer;
 import java.util.function.Supplier;
 
+import net.imglib2.FinalDimensions;
 import net.imglib2.FinalInterval;
 import net.imglib2.Interval;
 import net.imglib2.Localizable;
@@ -46,10 +48,19 @@ import net.imglib2.RealPositionable;
 import net.imglib2.RealRandomAccess;
 import net.imglib2.RealRandomAccessible;
 import net.imglib2.converter.Converters;
+import net.imglib2.img.Img;
 import net.imglib2.interpolation.randomaccess.NLinearInterpolatorFactory;
+import net.imglib2.realtransform.field.ArrayVectorField;
+import net.imglib2.realtransform.field.FieldMaterializer;
+import net.imglib2.realtransform.field.VectorField;
+import net.imglib2.realtransform.field.VectorFieldAccess;
+import net.imglib2.realtransform.inverse.AbstractDifferentiableRealTransform;
+import net.imglib2.realtransform.inverse.DifferentiableRealTransform;
+import net.imglib2.realtransform.inverse.RealTransformFiniteDerivatives;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.DoubleType;
 import net.imglib2.util.Localizables;
+import net.imglib2.util.Util;
 import net.imglib2.view.Views;
 import net.imglib2.view.composite.CompositeIntervalView;
 import net.imglib2.view.composite.RealComposite;
@@ -61,22 +72,81 @@ import net.imglib2.view.composite.RealComposite;
  * @author Caleb Hulbert &lt;hulbertc@janelia.hhmi.org&gt;
  * @author John Bogovic &lt;bogovicj@janelia.hhmi.org&gt;
  */
-public class PositionFieldTransform implements RealTransform
+public class PositionFieldTransform implements DifferentiableRealTransform
 {
 	protected final RealRandomAccess< ? extends RealLocalizable > access;
 
 	protected final int numTargetDimensions;
 
+	/**
+	 * Access into the {@link VectorField} that backs this transform, used to
+	 * compute analytic Jacobians, or null if the field is not a
+	 * {@link VectorField}.
+	 */
+	protected final VectorFieldAccess fieldAccess;
+
+	/**
+	 * Transformation from physical coordinates into the grid of the
+	 * {@link VectorField}, or null for identity.
+	 */
+	protected final AffineGet physicalToGrid;
+
+	protected AffineTransform jacobian;
+
+	private double[][] gradient;
+
+	private double[][] matrix;
+
+	private double[] grid;
+
+	private RealTransformFiniteDerivatives finiteDerivatives;
+
 	public PositionFieldTransform( final RealRandomAccess< ? extends RealLocalizable > positionAccesses )
 	{
-		access = positionAccesses;
-		numTargetDimensions = access.get().numDimensions();
+		this( positionAccesses, positionAccesses instanceof VectorFieldAccess ? ( VectorFieldAccess )positionAccesses : null, null );
 	}
 
 	public PositionFieldTransform( final RealRandomAccessible< ? extends RealLocalizable > positions )
 	{
-		access = positions.realRandomAccess();
+		this( positions.realRandomAccess() );
+	}
+
+	/**
+	 *
+	 * @param positions
+	 *            the positions in pixel coordinates, the Jacobian is analytic
+	 *            if this is a {@link VectorField}
+	 * @param pixelToPhysical
+	 *            a transformation from pixel coordinates to physical
+	 *            coordinates
+	 */
+	public PositionFieldTransform( final RealRandomAccessible< ? extends RealLocalizable > positions, final AffineGet pixelToPhysical )
+	{
+		this(
+				RealViews.affine( positions, pixelToPhysical ).realRandomAccess(),
+				positions instanceof VectorField ? ( ( VectorField )positions ).realRandomAccess() : null,
+				pixelToPhysical.inverse() );
+	}
+
+	/**
+	 *
+	 * @param positionAccess
+	 *            access to the positions in physical coordinates
+	 * @param fieldAccess
+	 *            access to the underlying {@link VectorField} or null
+	 * @param physicalToGrid
+	 *            transformation from physical to field grid coordinates or
+	 *            null for identity
+	 */
+	protected PositionFieldTransform(
+			final RealRandomAccess< ? extends RealLocalizable > positionAccess,
+			final VectorFieldAccess fieldAccess,
+			final AffineGet physicalToGrid )
+	{
+		access = positionAccess;
 		numTargetDimensions = access.get().numDimensions();
+		this.fieldAccess = fieldAccess;
+		this.physicalToGrid = physicalToGrid;
 	}
 
 	/**
@@ -105,7 +175,7 @@ public class PositionFieldTransform implements RealTransform
 	 */
 	public < T extends RealType< T > > PositionFieldTransform( final RandomAccessibleInterval< T > positions, final AffineGet pixelToPhysical )
 	{
-		this( RealViews.affine( convertToComposite( positions ), pixelToPhysical ) );
+		this( convertToComposite( positions ), pixelToPhysical );
 	}
 
 	/**
@@ -120,9 +190,9 @@ public class PositionFieldTransform implements RealTransform
 	 */
 	public < T extends RealType< T > > PositionFieldTransform( final RandomAccessibleInterval< T > positions, final double... spacing )
 	{
-		this( RealViews.affine(
+		this(
 				convertToComposite( positions ),
-				spacing.length == 2 ? new Scale2D( spacing ) : spacing.length == 3 ? new Scale3D( spacing ) : new Scale( spacing ) ) );
+				spacing.length == 2 ? new Scale2D( spacing ) : spacing.length == 3 ? new Scale3D( spacing ) : new Scale( spacing ) );
 	}
 
 	/**
@@ -139,7 +209,7 @@ public class PositionFieldTransform implements RealTransform
 	 */
 	public < T extends RealType< T > > PositionFieldTransform( final RandomAccessibleInterval< T > positions, final double[] spacing, final double[] offset )
 	{
-		this( RealViews.affine( convertToComposite( positions ), new ScaleAndTranslation( spacing, offset ) ) );
+		this( convertToComposite( positions ), new ScaleAndTranslation( spacing, offset ) );
 	}
 
 	@Override
@@ -175,15 +245,121 @@ public class PositionFieldTransform implements RealTransform
 		access.get().localize( target );
 	}
 
+	/**
+	 * Returns the Jacobian of this transform at x.  If the transform is backed
+	 * by a {@link VectorField}, the Jacobian is computed from the
+	 * interpolation stencil, otherwise it is estimated by finite differences.
+	 * The returned {@link AffineTransform} is reused by subsequent calls.
+	 *
+	 * @param x
+	 *            the point
+	 * @return the jacobian
+	 */
+	@Override
+	public AffineTransform jacobian( final double[] x )
+	{
+		if ( fieldAccess == null )
+		{
+			if ( finiteDerivatives == null )
+				finiteDerivatives = new RealTransformFiniteDerivatives( this );
+			return finiteDerivatives.jacobian( x );
+		}
+		return fieldJacobian( x, false );
+	}
+
+	/**
+	 * Compute the Jacobian from the interpolation stencil of
+	 * {@link #fieldAccess}, which must not be null.
+	 *
+	 * @param x
+	 *            the point
+	 * @param displacement
+	 *            whether the field contains displacements, i.e. the identity
+	 *            is added to the field derivatives
+	 * @return the jacobian
+	 */
+	protected AffineTransform fieldJacobian( final double[] x, final boolean displacement )
+	{
+		final int n = numSourceDimensions();
+		final int nc = fieldAccess.get().numDimensions();
+		if ( jacobian == null )
+		{
+			jacobian = new AffineTransform( Math.max( n, numTargetDimensions() ) );
+			gradient = new double[ nc ][ n ];
+			matrix = new double[ jacobian.numDimensions() ][ jacobian.numDimensions() + 1 ];
+			grid = new double[ n ];
+		}
+
+		if ( physicalToGrid == null )
+			fieldAccess.setPosition( x );
+		else
+		{
+			physicalToGrid.apply( x, grid );
+			fieldAccess.setPosition( grid );
+		}
+		fieldAccess.gradient( gradient );
+
+		final int m = jacobian.numDimensions();
+		for ( int c = 0; c < m; ++c )
+		{
+			for ( int e = 0; e < m; ++e )
+			{
+				double v = 0;
+				if ( c < nc && e < n )
+				{
+					if ( physicalToGrid == null )
+						v = gradient[ c ][ e ];
+					else
+						for ( int d = 0; d < n; ++d )
+							v += gradient[ c ][ d ] * physicalToGrid.get( d, e );
+				}
+				matrix[ c ][ e ] = v;
+			}
+		}
+		if ( displacement )
+			for ( int d = 0; d < numTargetDimensions(); ++d )
+				matrix[ d ][ d ] += 1;
+		jacobian.set( matrix );
+		return jacobian;
+	}
+
+	@Override
+	public void directionToward( final double[] displacement, final double[] x, final double[] y )
+	{
+		AbstractDifferentiableRealTransform.directionToward( jacobian( x ), displacement, x, y );
+	}
+
+	/**
+	 * Copy the field access for a copy of this transform.
+	 *
+	 * @param accessCopy
+	 *            the copy of the position access
+	 * @return a copy of the field access, the position access copy if both
+	 *         are the same, or null
+	 */
+	protected VectorFieldAccess copyFieldAccess( final RealRandomAccess< ? extends RealLocalizable > accessCopy )
+	{
+		if ( fieldAccess == null )
+			return null;
+		if ( fieldAccess == access )
+			return ( VectorFieldAccess )accessCopy;
+		return fieldAccess.copy();
+	}
+
 	@Override
-	public RealTransform copy()
+	public PositionFieldTransform copy()
 	{
-		return new PositionFieldTransform( access.copy() );
+		final RealRandomAccess< ? extends RealLocalizable > accessCopy = access.copy();
+		return new PositionFieldTransform( accessCopy, copyFieldAccess( accessCopy ), physicalToGrid );
 	}
 
 	private static < T extends RealType< T > > RealRandomAccessible< ? extends RealLocalizable > convertToComposite(
 			final RandomAccessibleInterval< T > position )
 	{
+		final ArrayVectorField field = ArrayVectorField.wrap( position );
+		if ( field != null )
+			return field;
+
 		final CompositeIntervalView< T, RealComposite< T > > collapsedFirst =
 				Views.collapseReal(
 						Views.moveAxis( position, 0, position.numDimensions() - 1 ) );
@@ -378,4 +554,77 @@ public class PositionFieldTransform implements RealTransform
 
 		return Views.interval( Views.interleave( positions ), new FinalInterval( pfieldDims ) );
 	}
+
+	/**
+	 * Evaluates a {@link RealTransform} on a grid and stores the positions in
+	 * a new {@link DoubleType} {@link net.imglib2.img.array.ArrayImg} or,
+	 * if too large, {@link net.imglib2.img.cell.CellImg}.  In contrast to
+	 * {@link #createPositionField(RealTransform, Interval, double[], double[])},
+	 * the transform is evaluated once per grid point, in parallel blocks with
+	 * one transform copy per worker thread.  The layout of the result is that
+	 * of the lazy variant.  Use e.g.
+	 * {@link net.imglib2.realtransform.field.VectorFields} to convert it into
+	 * a compact backend.
+	 *
+	 * @param transform
+	 *            the transform to be converted
+	 * @param interval
+	 *            interval
+	 * @param spacing
+	 *            the spacing of the grid
+	 * @param offset
+	 *            the offset of the grid
+	 * @param progress
+	 *            receives the completed fraction, may be null
+	 * @return the position field
+	 */
+	public static RandomAccessibleInterval< DoubleType > materializePositionField(
+			final RealTransform transform,
+			final Interval interval,
+			final double[] spacing,
+			final double[] offset,
+			final DoubleConsumer progress )
+	{
+		final long[] dims = new long[ interval.numDimensions() + 1 ];
+		dims[ 0 ] = transform.numTargetDimensions();
+		for ( int i = 0; i < interval.numDimensions(); ++i )
+			dims[ i + 1 ] = interval.dimension( i );
+
+		final Img< DoubleType > field = Util.getArrayOrCellImgFactory( new FinalDimensions( dims ), new DoubleType() ).create( dims );
+		return materializePositionField( transform, interval, new ScaleAndTranslation( spacing, offset ), field, progress );
+	}
+
+	/**
+	 * Evaluates a {@link RealTransform} on a grid and writes the positions
+	 * into an existing field image with the components in the 0th dimension,
+	 * see {@link FieldMaterializer}.
+	 *
+	 * @param <T>
+	 *            the type of the field
+	 * @param transform
+	 *            the transform to be converted
+	 * @param interval
+	 *            interval
+	 * @param gridTransform
+	 *            transformation from the grid to the transform's source
+	 *            coordinates
+	 * @param field
+	 *            the output field, must have the dimensions of the interval
+	 * @param progress
+	 *            receives the completed fraction, may be null
+	 * @return the position field
+	 */
+	public static < T extends RealType< T > > RandomAccessibleInterval< T > materializePositionField(
+			final RealTransform transform,
+			final Interval interval,
+			final RealTransform gridTransform,
+			final RandomAccessibleInterval< T > field,
+			final DoubleConsumer progress )
+	{
+		for ( int d = 0; d < interval.numDimensions(); ++d )
+			if ( field.dimension( d + 1 ) != interval.dimension( d ) )
+				throw new IllegalArgumentException( "Field and interval dimensions differ." );
+
+		return FieldMaterializer.materialize( transform, gridTransform, false, field, progress );
+	}
 }
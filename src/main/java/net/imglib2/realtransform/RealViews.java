@@ -34,10 +34,13 @@
 
 package net.imglib2.realtransform;
 
+import java.util.List;
+
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RealRandomAccess;
 import net.imglib2.RealRandomAccessible;
+import net.imglib2.view.composite.Composite;
 
 /**
  * Convenience factory methods for {@link RealRandomAccessible
@@ -104,6 +107,32 @@ public class RealViews
 		return new RealTransformRandomAccessible< >( source, new InverseRealTransform( transformFromSource ) );
 	}
 
+	/**
+	 * See a list of {@link RealRandomAccessible RealRandomAccessibles}, e.g.
+	 * the channels of an image, as one {@link RandomAccessible} of
+	 * {@link Composite Composites} transformed by an
+	 * {@link InvertibleRealTransform}. The {@link InvertibleRealTransform} is
+	 * interpreted as in
+	 * {@link #transform(RealRandomAccessible, InvertibleRealTransform)}, but
+	 * its inverse is applied only once per sample and shared by all sources.
+	 *
+	 * @param sources
+	 *            the {@link RealRandomAccessible RealRandomAccessibles} to be
+	 *            transformed
+	 * @param transformFromSource
+	 *            the {@link InvertibleRealTransform} transforming source
+	 *            coordinates to coordinates of the returned
+	 *            {@link RandomAccessible}
+	 * @param <T> the type
+	 *
+	 * @return {@link MultiSourceRealTransformRandomAccessible} representing
+	 *         the transformed sources
+	 */
+	public static < T > MultiSourceRealTransformRandomAccessible< T, InverseRealTransform > transform( final List< ? extends RealRandomAccessible< T > > sources, final InvertibleRealTransform transformFromSource )
+	{
+		return new MultiSourceRealTransformRandomAccessible< >( sources, new InverseRealTransform( transformFromSource ) );
+	}
+
 	/**
 	 * See a {@link RealRandomAccessible} as transformed by an {@link AffineGet}
 	 * . The {@link AffineGet} is interpreted according to the natural
@@ -115,6 +144,11 @@ public class RealViews
 	 * inverse that changes with the original transformation accordingly. That
 	 * way, changing the state of the {@link AffineGet} will immediately change
 	 * the state of any new {@link RealRandomAccess} generated by the view.
+	 * <p>
+	 * If the inverse is a {@link TranslationGet} or a
+	 * {@link ScaleAndTranslationGet}, a {@link TranslationRealRandomAccessible}
+	 * or {@link ScaleAndTranslationRealRandomAccessible} respectively is
+	 * returned whose relative moves update only one source coordinate.
 	 *
 	 * @param source
 	 *            the {@link RealRandomAccessible} to be transformed
@@ -129,7 +163,12 @@ public class RealViews
 	 */
 	public static < T > AffineRealRandomAccessible< T, AffineGet > affineReal( final RealRandomAccessible< T > source, final AffineGet transformFromSource )
 	{
-		return new AffineRealRandomAccessible< >( source, transformFromSource.inverse() );
+		final AffineGet transformToSource = transformFromSource.inverse();
+		if ( transformToSource instanceof TranslationGet )
+			return new TranslationRealRandomAccessible< >( source, ( TranslationGet ) transformToSource );
+		if ( transformToSource instanceof ScaleAndTranslationGet )
+			return new ScaleAndTranslationRealRandomAccessible< >( source, ( ScaleAndTranslationGet ) transformToSource );
+		return new AffineRealRandomAccessible< >( source, transformToSource );
 	}
 
 	/**
@@ -144,6 +183,11 @@ public class RealViews
 	 * accordingly. That way, changing the state of the {@link AffineGet} will
 	 * immediately change the state of any new {@link RandomAccess} generated
 	 * by the view.
+	 * <p>
+	 * If the inverse is a {@link TranslationGet} or a
+	 * {@link ScaleAndTranslationGet}, a {@link TranslationRandomAccessible} or
+	 * {@link ScaleAndTranslationRandomAccessible} respectively is returned
+	 * whose relative moves update only one source coordinate.
 	 *
 	 * @param source
 	 *            the {@link RealRandomAccessible} to be transformed
@@ -158,7 +202,12 @@ public class RealViews
 	 */
 	public static < T > AffineRandomAccessible< T, AffineGet > affine( final RealRandomAccessible< T > source, final AffineGet transformFromSource )
 	{
-		return new AffineRandomAccessible< >( source, transformFromSource.inverse() );
+		final AffineGet transformToSource = transformFromSource.inverse();
+		if ( transformToSource instanceof TranslationGet )
+			return new TranslationRandomAccessible< >( source, ( TranslationGet ) transformToSource );
+		if ( transformToSource instanceof ScaleAndTranslationGet )
+			return new ScaleAndTranslationRandomAccessible< >( source, ( ScaleAndTranslationGet ) transformToSource );
+		return new AffineRandomAccessible< >( source, transformToSource );
 	}
 
 	/**
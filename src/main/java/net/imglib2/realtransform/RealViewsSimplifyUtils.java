@@ -269,6 +269,14 @@ public class RealViewsSimplifyUtils
 
 	private static < T > RandomAccessible< T > createRandomAccessible( final RealRandomAccessible< T > rra, final RealTransform t )
 	{
+		if ( t instanceof TranslationGet )
+		{
+			return new TranslationRandomAccessible<>( rra, ( TranslationGet ) t );
+		}
+		if ( t instanceof ScaleAndTranslationGet )
+		{
+			return new ScaleAndTranslationRandomAccessible<>( rra, ( ScaleAndTranslationGet ) t );
+		}
 		if ( t instanceof AffineGet )
 		{
 			return new AffineRandomAccessible<>( rra, ( AffineGet ) t );
@@ -280,6 +288,14 @@ public class RealViewsSimplifyUtils
 	{
 		if ( !t.isIdentity() )
 		{
+			if ( t instanceof TranslationGet )
+			{
+				return new TranslationRealRandomAccessible<>( rra, ( TranslationGet ) t );
+			}
+			if ( t instanceof ScaleAndTranslationGet )
+			{
+				return new ScaleAndTranslationRealRandomAccessible<>( rra, ( ScaleAndTranslationGet ) t );
+			}
 			if ( t instanceof AffineGet )
 			{
 				return new AffineRealRandomAccessible<>( rra, ( AffineGet ) t );
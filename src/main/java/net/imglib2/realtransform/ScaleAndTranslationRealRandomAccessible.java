@@ -0,0 +1,126 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform;
+
+import net.imglib2.RealRandomAccess;
+import net.imglib2.RealRandomAccessible;
+
+/**
+ * An {@link AffineRealRandomAccessible} for {@link ScaleAndTranslationGet}
+ * transformations.  Since the transformation is diagonal, relative moves
+ * along one dimension update only the corresponding source coordinate
+ * instead of adding a full vector.
+ * <p>
+ * {@link RealViews#affineReal(RealRandomAccessible, AffineGet)} creates this
+ * view automatically if the inverse of the transformation is a
+ * {@link ScaleAndTranslationGet}.
+ *
+ * @param <T> data type
+ */
+public class ScaleAndTranslationRealRandomAccessible< T > extends AffineRealRandomAccessible< T, AffineGet >
+{
+	/**
+	 * {@link RealRandomAccess} that moves its source access along one
+	 * dimension at a time.
+	 */
+	public class ScaleAndTranslationRealRandomAccess extends AffineRealRandomAccess
+	{
+		final protected double[] scale;
+
+		protected ScaleAndTranslationRealRandomAccess()
+		{
+			super();
+			scale = ( ( ScaleAndTranslationGet )transformCopy ).getScaleCopy();
+		}
+
+		@Override
+		public void move( final float distance, final int d )
+		{
+			move( ( double )distance, d );
+		}
+
+		@Override
+		public void move( final double distance, final int d )
+		{
+			position[ d ] += distance;
+			sourceAccess.move( distance * scale[ d ], d );
+		}
+
+		@Override
+		public void fwd( final int d )
+		{
+			position[ d ] += 1;
+			sourceAccess.move( scale[ d ], d );
+		}
+
+		@Override
+		public void bck( final int d )
+		{
+			position[ d ] -= 1;
+			sourceAccess.move( -scale[ d ], d );
+		}
+
+		@Override
+		public void move( final int distance, final int d )
+		{
+			move( ( double )distance, d );
+		}
+
+		@Override
+		public void move( final long distance, final int d )
+		{
+			move( ( double )distance, d );
+		}
+
+		@Override
+		public ScaleAndTranslationRealRandomAccess copy()
+		{
+			final ScaleAndTranslationRealRandomAccess copy = realRandomAccess();
+			copy.setPosition( this );
+			return copy;
+		}
+	}
+
+	public ScaleAndTranslationRealRandomAccessible( final RealRandomAccessible< T > source, final ScaleAndTranslationGet transformToSource )
+	{
+		super( source, transformToSource );
+	}
+
+	@Override
+	public ScaleAndTranslationRealRandomAccess realRandomAccess()
+	{
+		return new ScaleAndTranslationRealRandomAccess();
+	}
+}
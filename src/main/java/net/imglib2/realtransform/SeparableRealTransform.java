@@ -0,0 +1,245 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform;
+
+import java.util.Arrays;
+
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPositionable;
+
+/**
+ * An {@link InvertibleRealTransform} that maps each dimension independently.
+ * Each dimension is either a linear mapping
+ * <em>x' = scale * x + offset</em> or a strictly monotone coordinate table
+ * that lists the target coordinates at integer source coordinates, e.g. the
+ * positions of the planes of a non-uniformly sampled z-stack.  Between table
+ * entries, the mapping is linearly interpolated, outside of the table, it is
+ * linearly extrapolated from the first or last segment respectively.  The
+ * inverse of a table is found by binary search.
+ * <p>
+ * Since the mapping factorizes, renderers can evaluate it once per
+ * dimension and pixel coordinate through {@link #apply(double, int)} and
+ * {@link #applyInverse(double, int)} instead of once per pixel.
+ */
+public class SeparableRealTransform implements InvertibleRealTransform
+{
+	final protected int n;
+
+	final protected double[] scale;
+
+	final protected double[] offset;
+
+	/** coordinate tables, null for linear dimensions */
+	final protected double[][] tables;
+
+	final protected InverseRealTransform inverse;
+
+	/**
+	 * Create an identity transform.
+	 *
+	 * @param n number of dimensions
+	 */
+	public SeparableRealTransform( final int n )
+	{
+		this.n = n;
+		scale = new double[ n ];
+		offset = new double[ n ];
+		tables = new double[ n ][];
+		Arrays.fill( scale, 1 );
+		inverse = new InverseRealTransform( this );
+	}
+
+	protected SeparableRealTransform( final SeparableRealTransform t )
+	{
+		n = t.n;
+		scale = t.scale.clone();
+		offset = t.offset.clone();
+		tables = t.tables.clone();
+		inverse = new InverseRealTransform( this );
+	}
+
+	/**
+	 * Set dimension <em>d</em> to the linear mapping
+	 * <em>x' = scale * x + offset</em>.
+	 *
+	 * @param d dimension
+	 * @param scale non-zero scale
+	 * @param offset offset
+	 */
+	public void setLinear( final int d, final double scale, final double offset )
+	{
+		if ( scale == 0 || Double.isNaN( scale ) )
+			throw new IllegalArgumentException( "Scale must be non-zero." );
+
+		this.scale[ d ] = scale;
+		this.offset[ d ] = offset;
+		tables[ d ] = null;
+	}
+
+	/**
+	 * Set dimension <em>d</em> to a coordinate table.  The table is copied.
+	 *
+	 * @param d dimension
+	 * @param table target coordinates at source coordinates 0, 1, 2, ...,
+	 *            at least two entries, strictly increasing or strictly
+	 *            decreasing
+	 */
+	public void setTable( final int d, final double... table )
+	{
+		if ( table.length < 2 )
+			throw new IllegalArgumentException( "Coordinate table requires at least two entries." );
+
+		final boolean increasing = table[ 1 ] > table[ 0 ];
+		for ( int i = 1; i < table.length; ++i )
+			if ( !( increasing ? table[ i ] > table[ i - 1 ] : table[ i ] < table[ i - 1 ] ) )
+				throw new IllegalArgumentException( "Coordinate table must be strictly monotone." );
+
+		tables[ d ] = table.clone();
+	}
+
+	/**
+	 * @param d dimension
+	 * @return whether dimension <em>d</em> is mapped by a coordinate table
+	 */
+	public boolean isTable( final int d )
+	{
+		return tables[ d ] != null;
+	}
+
+	/**
+	 * Map a coordinate of dimension <em>d</em>.
+	 *
+	 * @param x source coordinate
+	 * @param d dimension
+	 * @return target coordinate
+	 */
+	public double apply( final double x, final int d )
+	{
+		final double[] table = tables[ d ];
+		if ( table == null )
+			return scale[ d ] * x + offset[ d ];
+
+		final int i = ( int )Math.max( 0, Math.min( table.length - 2, Math.floor( x ) ) );
+		return table[ i ] + ( x - i ) * ( table[ i + 1 ] - table[ i ] );
+	}
+
+	/**
+	 * Map a coordinate of dimension <em>d</em> back.
+	 *
+	 * @param y target coordinate
+	 * @param d dimension
+	 * @return source coordinate
+	 */
+	public double applyInverse( final double y, final int d )
+	{
+		final double[] table = tables[ d ];
+		if ( table == null )
+			return ( y - offset[ d ] ) / scale[ d ];
+
+		final boolean increasing = table[ 1 ] > table[ 0 ];
+		int lo = 0;
+		int hi = table.length - 1;
+		while ( hi - lo > 1 )
+		{
+			final int mid = ( lo + hi ) >>> 1;
+			if ( ( table[ mid ] <= y ) == increasing )
+				lo = mid;
+			else
+				hi = mid;
+		}
+		return lo + ( y - table[ lo ] ) / ( table[ lo + 1 ] - table[ lo ] );
+	}
+
+	@Override
+	public int numSourceDimensions()
+	{
+		return n;
+	}
+
+	@Override
+	public int numTargetDimensions()
+	{
+		return n;
+	}
+
+	@Override
+	public void apply( final double[] source, final double[] target )
+	{
+		for ( int d = 0; d < n; ++d )
+			target[ d ] = apply( source[ d ], d );
+	}
+
+	@Override
+	public void apply( final RealLocalizable source, final RealPositionable target )
+	{
+		for ( int d = 0; d < n; ++d )
+			target.setPosition( apply( source.getDoublePosition( d ), d ), d );
+	}
+
+	@Override
+	public void applyInverse( final double[] source, final double[] target )
+	{
+		for ( int d = 0; d < n; ++d )
+			source[ d ] = applyInverse( target[ d ], d );
+	}
+
+	@Override
+	public void applyInverse( final RealPositionable source, final RealLocalizable target )
+	{
+		for ( int d = 0; d < n; ++d )
+			source.setPosition( applyInverse( target.getDoublePosition( d ), d ), d );
+	}
+
+	@Override
+	public InvertibleRealTransform inverse()
+	{
+		return inverse;
+	}
+
+	@Override
+	public SeparableRealTransform copy()
+	{
+		return new SeparableRealTransform( this );
+	}
+
+	@Override
+	public boolean isIdentity()
+	{
+		for ( int d = 0; d < n; ++d )
+			if ( tables[ d ] != null || scale[ d ] != 1 || offset[ d ] != 0 )
+				return false;
+		return true;
+	}
+}
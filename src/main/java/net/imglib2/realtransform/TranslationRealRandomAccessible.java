@@ -0,0 +1,99 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform;
+
+import net.imglib2.RealRandomAccess;
+import net.imglib2.RealRandomAccessible;
+
+/**
+ * An {@link AffineRealRandomAccessible} for {@link TranslationGet}
+ * transformations.  Relative moves are passed on to the source access
+ * unchanged.
+ * <p>
+ * {@link RealViews#affineReal(RealRandomAccessible, AffineGet)} creates this
+ * view automatically if the inverse of the transformation is a
+ * {@link TranslationGet}.
+ *
+ * @param <T> data type
+ */
+public class TranslationRealRandomAccessible< T > extends ScaleAndTranslationRealRandomAccessible< T >
+{
+	/**
+	 * {@link RealRandomAccess} that moves its source access by the same
+	 * distances as itself.
+	 */
+	public class TranslationRealRandomAccess extends ScaleAndTranslationRealRandomAccess
+	{
+		@Override
+		public void move( final double distance, final int d )
+		{
+			position[ d ] += distance;
+			sourceAccess.move( distance, d );
+		}
+
+		@Override
+		public void fwd( final int d )
+		{
+			position[ d ] += 1;
+			sourceAccess.fwd( d );
+		}
+
+		@Override
+		public void bck( final int d )
+		{
+			position[ d ] -= 1;
+			sourceAccess.bck( d );
+		}
+
+		@Override
+		public TranslationRealRandomAccess copy()
+		{
+			final TranslationRealRandomAccess copy = realRandomAccess();
+			copy.setPosition( this );
+			return copy;
+		}
+	}
+
+	public TranslationRealRandomAccessible( final RealRandomAccessible< T > source, final TranslationGet transformToSource )
+	{
+		super( source, transformToSource );
+	}
+
+	@Override
+	public TranslationRealRandomAccess realRandomAccess()
+	{
+		return new TranslationRealRandomAccess();
+	}
+}
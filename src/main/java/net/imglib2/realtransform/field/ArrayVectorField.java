@@ -0,0 +1,288 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * A {@link VectorField} stored in a flat <code>double[]</code> or
+ * <code>float[]</code> array with interleaved components, i.e. the
+ * components of each vector are stored next to each other and the grid is
+ * stored in flat iteration order.  This is the memory layout of an
+ * {@link ArrayImg} with the components in dimension 0.
+ */
+public class ArrayVectorField extends VectorField
+{
+	private final double[] doubleData;
+
+	private final float[] floatData;
+
+	/**
+	 * Array offset between grid neighbors in each dimension.
+	 */
+	protected final long[] strides;
+
+	/**
+	 * @param data
+	 *            interleaved vectors
+	 * @param numComponents
+	 *            the number of components of each vector
+	 * @param dimensions
+	 *            the grid dimensions
+	 */
+	public ArrayVectorField( final double[] data, final int numComponents, final long... dimensions )
+	{
+		super( numComponents, dimensions );
+		strides = strides( numComponents, dimensions, data.length );
+		doubleData = data;
+		floatData = null;
+	}
+
+	/**
+	 * @param data
+	 *            interleaved vectors
+	 * @param numComponents
+	 *            the number of components of each vector
+	 * @param dimensions
+	 *            the grid dimensions
+	 */
+	public ArrayVectorField( final float[] data, final int numComponents, final long... dimensions )
+	{
+		super( numComponents, dimensions );
+		strides = strides( numComponents, dimensions, data.length );
+		doubleData = null;
+		floatData = data;
+	}
+
+	private static long[] strides( final int numComponents, final long[] dimensions, final int length )
+	{
+		final long[] strides = strides( numComponents, dimensions );
+		if ( strides[ dimensions.length ] != length )
+			throw new IllegalArgumentException( "Expected " + strides[ dimensions.length ] + " array elements but found " + length + "." );
+		return strides;
+	}
+
+	/**
+	 * Wrap an {@link ArrayImg} of {@link DoubleType} or {@link FloatType}
+	 * that stores the vector components in dimension 0 as an
+	 * {@link ArrayVectorField} over dimensions 1 to n.
+	 *
+	 * @param field
+	 *            the vector field image
+	 * @return the vector field or null if the image is not an array image of
+	 *         a supported type
+	 */
+	public static ArrayVectorField wrap( final RandomAccessibleInterval< ? > field )
+	{
+		if ( !( field instanceof ArrayImg ) || field.numDimensions() < 2 )
+			return null;
+
+		final ArrayImg< ?, ? > img = ( ArrayImg< ?, ? > )field;
+		final Object type = img.getType();
+		final Object access = img.update( null );
+		final int numComponents = ( int )img.dimension( 0 );
+		final long[] dimensions = new long[ img.numDimensions() - 1 ];
+		for ( int d = 0; d < dimensions.length; ++d )
+			dimensions[ d ] = img.dimension( d + 1 );
+
+		if ( type instanceof DoubleType && access instanceof DoubleArray )
+			return new ArrayVectorField( ( ( DoubleArray )access ).getCurrentStorageArray(), numComponents, dimensions );
+		if ( type instanceof FloatType && access instanceof FloatArray )
+			return new ArrayVectorField( ( ( FloatArray )access ).getCurrentStorageArray(), numComponents, dimensions );
+		return null;
+	}
+
+	@Override
+	public VectorFieldAccess realRandomAccess()
+	{
+		return doubleData != null ? new DoubleAccess() : new FloatAccess();
+	}
+
+	private class DoubleAccess extends VectorFieldAccess
+	{
+		private final double[] data = doubleData;
+
+		DoubleAccess()
+		{
+			super( ArrayVectorField.this );
+		}
+
+		@Override
+		protected double component( final long index )
+		{
+			return data[ ( int )index ];
+		}
+
+		@Override
+		protected void interpolate()
+		{
+			final long base = offset( strides );
+			if ( n == 2 )
+				interpolate2D( ( int )base );
+			else if ( n == 3 )
+				interpolate3D( ( int )base );
+			else
+			{
+				interpolate( base, strides );
+			}
+		}
+
+		private void interpolate2D( final int i00 )
+		{
+			final int i10 = i00 + ( int )( ( hi[ 0 ] - lo[ 0 ] ) * strides[ 0 ] );
+			final int dy = ( int )( ( hi[ 1 ] - lo[ 1 ] ) * strides[ 1 ] );
+			final int i01 = i00 + dy;
+			final int i11 = i10 + dy;
+			final double fx = frac[ 0 ], fy = frac[ 1 ];
+			final double gx = 1.0 - fx, gy = 1.0 - fy;
+			for ( int c = 0; c < numComponents; ++c )
+				value[ c ] =
+						gy * ( gx * data[ i00 + c ] + fx * data[ i10 + c ] ) +
+						fy * ( gx * data[ i01 + c ] + fx * data[ i11 + c ] );
+		}
+
+		private void interpolate3D( final int i000 )
+		{
+			final int dx = ( int )( ( hi[ 0 ] - lo[ 0 ] ) * strides[ 0 ] );
+			final int dy = ( int )( ( hi[ 1 ] - lo[ 1 ] ) * strides[ 1 ] );
+			final int dz = ( int )( ( hi[ 2 ] - lo[ 2 ] ) * strides[ 2 ] );
+			final int i100 = i000 + dx;
+			final int i010 = i000 + dy;
+			final int i110 = i100 + dy;
+			final int i001 = i000 + dz;
+			final int i101 = i100 + dz;
+			final int i011 = i010 + dz;
+			final int i111 = i110 + dz;
+			final double fx = frac[ 0 ], fy = frac[ 1 ], fz = frac[ 2 ];
+			final double gx = 1.0 - fx, gy = 1.0 - fy, gz = 1.0 - fz;
+			for ( int c = 0; c < numComponents; ++c )
+				value[ c ] =
+						gz * (
+								gy * ( gx * data[ i000 + c ] + fx * data[ i100 + c ] ) +
+								fy * ( gx * data[ i010 + c ] + fx * data[ i110 + c ] ) ) +
+						fz * (
+								gy * ( gx * data[ i001 + c ] + fx * data[ i101 + c ] ) +
+								fy * ( gx * data[ i011 + c ] + fx * data[ i111 + c ] ) );
+		}
+
+		@Override
+		public DoubleAccess copy()
+		{
+			final DoubleAccess copy = new DoubleAccess();
+			copy.setPosition( this );
+			return copy;
+		}
+	}
+
+	private class FloatAccess extends VectorFieldAccess
+	{
+		private final float[] data = floatData;
+
+		FloatAccess()
+		{
+			super( ArrayVectorField.this );
+		}
+
+		@Override
+		protected double component( final long index )
+		{
+			return data[ ( int )index ];
+		}
+
+		@Override
+		protected void interpolate()
+		{
+			final long base = offset( strides );
+			if ( n == 2 )
+				interpolate2D( ( int )base );
+			else if ( n == 3 )
+				interpolate3D( ( int )base );
+			else
+			{
+				interpolate( base, strides );
+			}
+		}
+
+		private void interpolate2D( final int i00 )
+		{
+			final int i10 = i00 + ( int )( ( hi[ 0 ] - lo[ 0 ] ) * strides[ 0 ] );
+			final int dy = ( int )( ( hi[ 1 ] - lo[ 1 ] ) * strides[ 1 ] );
+			final int i01 = i00 + dy;
+			final int i11 = i10 + dy;
+			final double fx = frac[ 0 ], fy = frac[ 1 ];
+			final double gx = 1.0 - fx, gy = 1.0 - fy;
+			for ( int c = 0; c < numComponents; ++c )
+				value[ c ] =
+						gy * ( gx * data[ i00 + c ] + fx * data[ i10 + c ] ) +
+						fy * ( gx * data[ i01 + c ] + fx * data[ i11 + c ] );
+		}
+
+		private void interpolate3D( final int i000 )
+		{
+			final int dx = ( int )( ( hi[ 0 ] - lo[ 0 ] ) * strides[ 0 ] );
+			final int dy = ( int )( ( hi[ 1 ] - lo[ 1 ] ) * strides[ 1 ] );
+			final int dz = ( int )( ( hi[ 2 ] - lo[ 2 ] ) * strides[ 2 ] );
+			final int i100 = i000 + dx;
+			final int i010 = i000 + dy;
+			final int i110 = i100 + dy;
+			final int i001 = i000 + dz;
+			final int i101 = i100 + dz;
+			final int i011 = i010 + dz;
+			final int i111 = i110 + dz;
+			final double fx = frac[ 0 ], fy = frac[ 1 ], fz = frac[ 2 ];
+			final double gx = 1.0 - fx, gy = 1.0 - fy, gz = 1.0 - fz;
+			for ( int c = 0; c < numComponents; ++c )
+				value[ c ] =
+						gz * (
+								gy * ( gx * data[ i000 + c ] + fx * data[ i100 + c ] ) +
+								fy * ( gx * data[ i010 + c ] + fx * data[ i110 + c ] ) ) +
+						fz * (
+								gy * ( gx * data[ i001 + c ] + fx * data[ i101 + c ] ) +
+								fy * ( gx * data[ i011 + c ] + fx * data[ i111 + c ] ) );
+		}
+
+		@Override
+		public FloatAccess copy()
+		{
+			final FloatAccess copy = new FloatAccess();
+			copy.setPosition( this );
+			return copy;
+		}
+	}
+}
@@ -0,0 +1,319 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleConsumer;
+
+import net.imglib2.Interval;
+import net.imglib2.realtransform.DisplacementFieldTransform;
+import net.imglib2.realtransform.RealTransform;
+import net.imglib2.realtransform.ScaleAndTranslation;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * Composes a chain of transforms, e.g. a
+ * {@link net.imglib2.realtransform.RealTransformSequence} of displacement
+ * fields, affines, and thin plate splines, into a single
+ * {@link DisplacementFieldTransform} on a regular grid, so that applying the
+ * chain costs one field lookup.  The chain is evaluated block by block in
+ * parallel with {@link FieldMaterializer} and written directly into the
+ * output storage, intermediate fields are never created.
+ * <p>
+ * The output can be stored as double or single precision floats or as 16 or
+ * 8 bit integers quantized to a user-given displacement range.  The
+ * approximation error of the composed field is estimated by comparing it
+ * with the chain at random points between grid points.
+ * <p>
+ * The output is stored in a single array and is therefore limited to
+ * 2<sup>31</sup>-9 components, i.e. about 715 million grid points in 3D.
+ * Larger grids can be composed into a
+ * {@link net.imglib2.img.cell.CellImg} with
+ * {@link DisplacementFieldTransform#materializeDisplacementField(RealTransform, Interval, double[], double[], DoubleConsumer)}.
+ */
+public class DisplacementFieldComposer
+{
+	public enum Storage
+	{
+		FLOAT64,
+		FLOAT32,
+		INT16,
+		INT8
+	}
+
+	/**
+	 * The composed transform and its estimated error.
+	 */
+	public static class Result
+	{
+		private final VectorField field;
+
+		private final DisplacementFieldTransform transform;
+
+		private final long numClipped;
+
+		private final double maxError;
+
+		private final double rmsError;
+
+		Result( final VectorField field, final DisplacementFieldTransform transform, final long numClipped, final double maxError, final double rmsError )
+		{
+			this.field = field;
+			this.transform = transform;
+			this.numClipped = numClipped;
+			this.maxError = maxError;
+			this.rmsError = rmsError;
+		}
+
+		/**
+		 * @return the composed displacements in grid coordinates
+		 */
+		public VectorField getField()
+		{
+			return field;
+		}
+
+		/**
+		 * @return the composed transform
+		 */
+		public DisplacementFieldTransform getTransform()
+		{
+			return transform;
+		}
+
+		/**
+		 * @return the number of displacement components outside of the
+		 *         quantization range
+		 */
+		public long getNumClipped()
+		{
+			return numClipped;
+		}
+
+		/**
+		 * @return the largest distance between the chain and the composed
+		 *         transform at the error samples, NaN if no samples were
+		 *         taken
+		 */
+		public double getMaxError()
+		{
+			return maxError;
+		}
+
+		/**
+		 * @return the root mean square distance between the chain and the
+		 *         composed transform at the error samples, NaN if no samples
+		 *         were taken
+		 */
+		public double getRmsError()
+		{
+			return rmsError;
+		}
+	}
+
+	private final RealTransform chain;
+
+	private Storage storage = Storage.FLOAT64;
+
+	private double quantizationRange = Double.NaN;
+
+	private int errorSamples = 1000;
+
+	private DoubleConsumer progress = null;
+
+	/**
+	 * @param chain
+	 *            the transform chain
+	 */
+	public DisplacementFieldComposer( final RealTransform chain )
+	{
+		if ( chain.numSourceDimensions() != chain.numTargetDimensions() )
+			throw new IllegalArgumentException( "Only transforms with equal source and target dimensions can be composed into a displacement field." );
+		this.chain = chain;
+	}
+
+	/**
+	 * @param storage
+	 *            the output storage
+	 */
+	public void setStorage( final Storage storage )
+	{
+		this.storage = storage;
+	}
+
+	/**
+	 * Set the range of displacements for quantized storage, components
+	 * outside of [-range, range] are clipped.
+	 *
+	 * @param range
+	 *            the largest absolute displacement component
+	 */
+	public void setQuantizationRange( final double range )
+	{
+		this.quantizationRange = range;
+	}
+
+	/**
+	 * @param errorSamples
+	 *            the number of random points at which the error is
+	 *            estimated, 0 to skip error estimation
+	 */
+	public void setErrorSamples( final int errorSamples )
+	{
+		this.errorSamples = errorSamples;
+	}
+
+	/**
+	 * @param progress
+	 *            receives the completed fraction, may be null
+	 */
+	public void setProgress( final DoubleConsumer progress )
+	{
+		this.progress = progress;
+	}
+
+	/**
+	 * Compose the chain on a grid.  Like in
+	 * {@link DisplacementFieldTransform#createDisplacementField(RealTransform, Interval, double[], double[])},
+	 * grid point <code>p</code> is located at <code>p * spacing + offset</code>.
+	 *
+	 * @param interval
+	 *            the grid dimensions
+	 * @param spacing
+	 *            the spacing of the grid
+	 * @param offset
+	 *            the offset of the grid
+	 * @return the composed transform and its estimated error
+	 * @throws IllegalArgumentException
+	 *             if the grid has more than 2<sup>31</sup>-9 components
+	 */
+	public Result compose( final Interval interval, final double[] spacing, final double[] offset )
+	{
+		final int n = interval.numDimensions();
+		if ( n != chain.numSourceDimensions() )
+			throw new IllegalArgumentException( "Grid and transform dimensions differ." );
+
+		final long[] dims = new long[ n ];
+		long size = n;
+		for ( int d = 0; d < n; ++d )
+		{
+			dims[ d ] = interval.dimension( d );
+			size *= dims[ d ];
+		}
+		if ( size > Integer.MAX_VALUE - 8 )
+			throw new IllegalArgumentException( "Composed field with " + size + " components does not fit into an array, use DisplacementFieldTransform.materializeDisplacementField for larger grids." );
+
+		final boolean quantized = storage == Storage.INT16 || storage == Storage.INT8;
+		if ( quantized && !( quantizationRange > 0 ) )
+			throw new IllegalStateException( "Quantized storage requires a positive quantization range." );
+
+		final double[] doubles = storage == Storage.FLOAT64 ? new double[ ( int )size ] : null;
+		final float[] floats = storage == Storage.FLOAT32 ? new float[ ( int )size ] : null;
+		final short[] shorts = storage == Storage.INT16 ? new short[ ( int )size ] : null;
+		final byte[] bytes = storage == Storage.INT8 ? new byte[ ( int )size ] : null;
+		final int qMax = storage == Storage.INT16 ? Short.MAX_VALUE : Byte.MAX_VALUE;
+		final double step = quantizationRange / qMax;
+		final AtomicLong numClipped = new AtomicLong();
+
+		FieldMaterializer.materialize( chain, new ScaleAndTranslation( spacing, offset ), true, dims, null, () -> ( p, v ) -> {
+			final int i = ( int )IntervalIndexer.positionToIndex( p, dims ) * n;
+			for ( int c = 0; c < n; ++c )
+			{
+				switch ( storage )
+				{
+				case FLOAT64:
+					doubles[ i + c ] = v[ c ];
+					break;
+				case FLOAT32:
+					floats[ i + c ] = ( float )v[ c ];
+					break;
+				default:
+					long q = Math.round( v[ c ] / step );
+					if ( q > qMax || q < -qMax )
+					{
+						numClipped.incrementAndGet();
+						q = Math.max( -qMax, Math.min( qMax, q ) );
+					}
+					if ( shorts != null )
+						shorts[ i + c ] = ( short )q;
+					else
+						bytes[ i + c ] = ( byte )q;
+				}
+			}
+		}, progress );
+
+		final VectorField field;
+		if ( quantized )
+		{
+			final double[] scale = new double[ n ];
+			for ( int c = 0; c < n; ++c )
+				scale[ c ] = step;
+			final double[] zero = new double[ n ];
+			field = shorts != null ? new QuantizedVectorField( shorts, scale, zero, dims ) : new QuantizedVectorField( bytes, scale, zero, dims );
+		}
+		else
+			field = doubles != null ? new ArrayVectorField( doubles, n, dims ) : new ArrayVectorField( floats, n, dims );
+
+		final DisplacementFieldTransform transform = new DisplacementFieldTransform( field, new ScaleAndTranslation( spacing, offset ) );
+
+		double maxError = Double.NaN;
+		double rmsError = Double.NaN;
+		if ( errorSamples > 0 )
+		{
+			final RealTransform reference = chain.copy();
+			final Random rnd = new Random( 0 );
+			final double[] x = new double[ n ];
+			final double[] a = new double[ n ];
+			final double[] b = new double[ n ];
+			double sum = 0;
+			maxError = 0;
+			for ( int i = 0; i < errorSamples; ++i )
+			{
+				for ( int d = 0; d < n; ++d )
+					x[ d ] = offset[ d ] + rnd.nextDouble() * ( dims[ d ] - 1 ) * spacing[ d ];
+				reference.apply( x, a );
+				transform.apply( x, b );
+				double e2 = 0;
+				for ( int d = 0; d < n; ++d )
+					e2 += ( a[ d ] - b[ d ] ) * ( a[ d ] - b[ d ] );
+				sum += e2;
+				maxError = Math.max( maxError, Math.sqrt( e2 ) );
+			}
+			rmsError = Math.sqrt( sum / errorSamples );
+		}
+
+		return new Result( field, transform, numClipped.get(), maxError, rmsError );
+	}
+}
@@ -0,0 +1,261 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleConsumer;
+import java.util.function.Supplier;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.iterator.LocalizingIntervalIterator;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.realtransform.RealTransform;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Evaluates a {@link RealTransform} on a grid and writes the resulting
+ * position or displacement vectors into a field image with the vector
+ * components in dimension 0, e.g. an {@link net.imglib2.img.array.ArrayImg}
+ * or {@link net.imglib2.img.cell.CellImg}.  Unlike the lazy fields created
+ * by
+ * {@link net.imglib2.realtransform.PositionFieldTransform#createPositionField}
+ * and
+ * {@link net.imglib2.realtransform.DisplacementFieldTransform#createDisplacementField},
+ * the transform is evaluated exactly once per grid point.
+ *
+ * The grid is processed in blocks (the cells of a cell image, if possible)
+ * in parallel using the {@link Parallelization} context, each worker thread
+ * uses its own copies of the transforms.
+ */
+public class FieldMaterializer
+{
+	private FieldMaterializer()
+	{}
+
+	/**
+	 * Receives the vectors of a block of grid points.  A writer is created
+	 * for each block and used by a single thread.
+	 */
+	@FunctionalInterface
+	public interface VectorWriter
+	{
+		/**
+		 * @param gridPosition
+		 *            the zero-based grid position
+		 * @param vector
+		 *            the position or displacement, reused
+		 */
+		void write( long[] gridPosition, double[] vector );
+	}
+
+	/**
+	 * Fill a position or displacement field.  Grid point <code>p</code> of
+	 * the field (relative to its min in dimensions 1 to n) is mapped to the
+	 * source coordinates of the transform by the grid transform.
+	 *
+	 * @param <T>
+	 *            component type
+	 * @param transform
+	 *            the transform
+	 * @param gridTransform
+	 *            transformation from pixel to physical coordinates
+	 * @param displacement
+	 *            write displacements if true, positions otherwise
+	 * @param field
+	 *            the field image, components in dimension 0
+	 * @param progress
+	 *            receives the completed fraction after each block, called
+	 *            from worker threads but never concurrently, may be null
+	 * @return the field
+	 */
+	public static < T extends RealType< T > > RandomAccessibleInterval< T > materialize(
+			final RealTransform transform,
+			final RealTransform gridTransform,
+			final boolean displacement,
+			final RandomAccessibleInterval< T > field,
+			final DoubleConsumer progress )
+	{
+		final int nc = ( int )field.dimension( 0 );
+		if ( nc > transform.numTargetDimensions() )
+			throw new IllegalArgumentException( "Field has more components than the transform has target dimensions." );
+
+		final int n = field.numDimensions() - 1;
+		final long[] gridDimensions = new long[ n ];
+		final long[] blockSize = new long[ n ];
+		final boolean cells = field instanceof AbstractCellImg && ( ( AbstractCellImg< ?, ?, ?, ? > )field ).getCellGrid().cellDimension( 0 ) == nc;
+		for ( int d = 0; d < n; ++d )
+		{
+			gridDimensions[ d ] = field.dimension( d + 1 );
+			blockSize[ d ] = cells ? ( ( AbstractCellImg< ?, ?, ?, ? > )field ).getCellGrid().cellDimension( d + 1 ) : 0;
+		}
+
+		materialize( transform, gridTransform, displacement, gridDimensions, cells ? blockSize : null, () -> {
+			final RandomAccess< T > access = field.randomAccess();
+			return ( p, v ) -> {
+				access.setPosition( field.min( 0 ), 0 );
+				for ( int d = 0; d < n; ++d )
+					access.setPosition( field.min( d + 1 ) + p[ d ], d + 1 );
+				for ( int c = 0; c < nc; ++c )
+				{
+					access.get().setReal( v[ c ] );
+					access.fwd( 0 );
+				}
+			};
+		}, progress );
+
+		return field;
+	}
+
+	/**
+	 * Evaluate a transform on a grid and pass the positions or
+	 * displacements to {@link VectorWriter}s.
+	 *
+	 * @param transform
+	 *            the transform
+	 * @param gridTransform
+	 *            transformation from grid to physical coordinates
+	 * @param displacement
+	 *            write displacements if true, positions otherwise
+	 * @param gridDimensions
+	 *            the grid dimensions
+	 * @param blockSize
+	 *            the block size or null for a default
+	 * @param writers
+	 *            creates a writer for each block
+	 * @param progress
+	 *            receives the completed fraction after each block, called
+	 *            from worker threads but never concurrently, may be null
+	 */
+	public static void materialize(
+			final RealTransform transform,
+			final RealTransform gridTransform,
+			final boolean displacement,
+			final long[] gridDimensions,
+			final long[] blockSize,
+			final Supplier< VectorWriter > writers,
+			final DoubleConsumer progress )
+	{
+		final List< Interval > blocks = blocks( gridDimensions, blockSize );
+		final AtomicLong done = new AtomicLong();
+		final ThreadLocal< RealTransform[] > copies = ThreadLocal.withInitial( () -> new RealTransform[] { transform.copy(), gridTransform.copy() } );
+
+		Parallelization.getTaskExecutor().forEach( blocks, block -> {
+			final RealTransform[] t = copies.get();
+			fill( t[ 0 ], t[ 1 ], displacement, block, writers.get() );
+			if ( progress != null )
+			{
+				final double fraction = ( double )done.incrementAndGet() / blocks.size();
+				synchronized ( progress )
+				{
+					progress.accept( fraction );
+				}
+			}
+		} );
+	}
+
+	/**
+	 * Grid blocks, zero-based.
+	 */
+	private static List< Interval > blocks( final long[] size, final long[] cellSize )
+	{
+		final int n = size.length;
+		final long[] blockSize = new long[ n ];
+		final long edge = Math.max( 1, Math.round( Math.pow( 1 << 15, 1.0 / n ) ) );
+		for ( int d = 0; d < n; ++d )
+			blockSize[ d ] = cellSize == null ? edge : cellSize[ d ];
+
+		long numBlocks = 1;
+		final long[] numBlocksPerDim = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			numBlocksPerDim[ d ] = ( size[ d ] + blockSize[ d ] - 1 ) / blockSize[ d ];
+			numBlocks *= numBlocksPerDim[ d ];
+		}
+
+		final List< Interval > blocks = new ArrayList<>();
+		if ( numBlocks == 0 )
+			return blocks;
+
+		final LocalizingIntervalIterator it = new LocalizingIntervalIterator( numBlocksPerDim );
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		while ( it.hasNext() )
+		{
+			it.fwd();
+			for ( int d = 0; d < n; ++d )
+			{
+				min[ d ] = it.getLongPosition( d ) * blockSize[ d ];
+				max[ d ] = Math.min( size[ d ], min[ d ] + blockSize[ d ] ) - 1;
+			}
+			blocks.add( new FinalInterval( min, max ) );
+		}
+		return blocks;
+	}
+
+	private static void fill(
+			final RealTransform transform,
+			final RealTransform gridTransform,
+			final boolean displacement,
+			final Interval block,
+			final VectorWriter writer )
+	{
+		final int n = block.numDimensions();
+		final long[] p = new long[ n ];
+		final double[] x = new double[ n ];
+		final double[] g = new double[ gridTransform.numTargetDimensions() ];
+		final double[] y = new double[ transform.numTargetDimensions() ];
+		final int nd = Math.min( y.length, g.length );
+
+		final LocalizingIntervalIterator it = new LocalizingIntervalIterator( block );
+		while ( it.hasNext() )
+		{
+			it.fwd();
+			it.localize( p );
+			for ( int d = 0; d < n; ++d )
+				x[ d ] = p[ d ];
+			gridTransform.apply( x, g );
+			transform.apply( g, y );
+			if ( displacement )
+				for ( int d = 0; d < nd; ++d )
+					y[ d ] -= g[ d ];
+			writer.write( p, y );
+		}
+	}
+}
@@ -0,0 +1,351 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.FinalDimensions;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.parallel.TaskExecutor;
+import net.imglib2.realtransform.DisplacementFieldTransform;
+import net.imglib2.realtransform.ExplicitInvertibleRealTransform;
+import net.imglib2.realtransform.RealTransform;
+import net.imglib2.realtransform.ScaleAndTranslation;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.util.Util;
+
+/**
+ * Computes the inverse of a displacement-like transform
+ * <code>f(x) = x + u(x)</code> on a whole grid at once and stores it as an
+ * explicit {@link DisplacementFieldTransform}, which is much faster to apply
+ * than solving each point iteratively, e.g. with
+ * {@link net.imglib2.realtransform.InvertibleDisplacementFieldTransform}.
+ * <p>
+ * Each grid point <code>y</code> is solved by the fixed-point iteration
+ * <code>x &larr; y - u(x)</code>, which converges if the displacement
+ * gradient is a contraction (|&nabla;u| &lt; 1, i.e. the transform folds
+ * nowhere).  Iterations are warm started with the solution of the previous
+ * grid point along dimension 0, so typically only a few iterations are
+ * necessary.  Lines are solved in parallel using the
+ * {@link Parallelization} context.
+ */
+public class InverseDisplacementFieldSolver
+{
+	/**
+	 * The inverse field and convergence statistics.
+	 */
+	public static class Result
+	{
+		private final RandomAccessibleInterval< DoubleType > field;
+
+		private final DisplacementFieldTransform inverse;
+
+		private final long numPoints;
+
+		private final long numUnconverged;
+
+		private final long numIterations;
+
+		private final double maxResidual;
+
+		Result(
+				final RandomAccessibleInterval< DoubleType > field,
+				final DisplacementFieldTransform inverse,
+				final long numPoints,
+				final long numUnconverged,
+				final long numIterations,
+				final double maxResidual )
+		{
+			this.field = field;
+			this.inverse = inverse;
+			this.numPoints = numPoints;
+			this.numUnconverged = numUnconverged;
+			this.numIterations = numIterations;
+			this.maxResidual = maxResidual;
+		}
+
+		/**
+		 * @return the inverse displacements, components in dimension 0
+		 */
+		public RandomAccessibleInterval< DoubleType > getField()
+		{
+			return field;
+		}
+
+		/**
+		 * @return the inverse as a {@link DisplacementFieldTransform}
+		 */
+		public DisplacementFieldTransform getInverse()
+		{
+			return inverse;
+		}
+
+		/**
+		 * @param forward
+		 *            the forward transform
+		 * @return the forward transform with the computed explicit inverse
+		 */
+		public ExplicitInvertibleRealTransform asInvertible( final RealTransform forward )
+		{
+			return new ExplicitInvertibleRealTransform( forward, inverse );
+		}
+
+		public long getNumPoints()
+		{
+			return numPoints;
+		}
+
+		/**
+		 * @return the number of grid points whose residual is above the
+		 *         tolerance after the maximal number of iterations
+		 */
+		public long getNumUnconverged()
+		{
+			return numUnconverged;
+		}
+
+		/**
+		 * @return the average number of forward evaluations per grid point
+		 */
+		public double getMeanIterations()
+		{
+			return numPoints == 0 ? 0 : ( double )numIterations / numPoints;
+		}
+
+		/**
+		 * @return the largest residual |f(x) - y| over all grid points
+		 */
+		public double getMaxResidual()
+		{
+			return maxResidual;
+		}
+	}
+
+	private final RealTransform forward;
+
+	private double tolerance = 1e-3;
+
+	private int maxIterations = 100;
+
+	/**
+	 * @param forward
+	 *            the transform to invert, typically a
+	 *            {@link DisplacementFieldTransform}
+	 */
+	public InverseDisplacementFieldSolver( final RealTransform forward )
+	{
+		if ( forward.numSourceDimensions() != forward.numTargetDimensions() )
+			throw new IllegalArgumentException( "Only transforms with equal source and target dimensions can be inverted." );
+		this.forward = forward;
+	}
+
+	/**
+	 * @param tolerance
+	 *            the maximal residual |f(x) - y| of a converged grid point
+	 */
+	public void setTolerance( final double tolerance )
+	{
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * @param maxIterations
+	 *            the maximal number of iterations per grid point
+	 */
+	public void setMaxIterations( final int maxIterations )
+	{
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * Compute the inverse displacements on a grid.  Like in
+	 * {@link DisplacementFieldTransform#createDisplacementField(RealTransform, Interval, double[], double[])},
+	 * grid point <code>p</code> is located at <code>p * spacing + offset</code>.
+	 *
+	 * @param interval
+	 *            the grid dimensions
+	 * @param spacing
+	 *            the spacing of the grid
+	 * @param offset
+	 *            the offset of the grid
+	 * @return the inverse field and convergence statistics
+	 */
+	public Result solve( final Interval interval, final double[] spacing, final double[] offset )
+	{
+		final int n = interval.numDimensions();
+		if ( n != forward.numSourceDimensions() )
+			throw new IllegalArgumentException( "Grid and transform dimensions differ." );
+
+		final long[] dims = new long[ n + 1 ];
+		dims[ 0 ] = n;
+		for ( int d = 0; d < n; ++d )
+			dims[ d + 1 ] = interval.dimension( d );
+		final Img< DoubleType > field = Util.getArrayOrCellImgFactory( new FinalDimensions( dims ), new DoubleType() ).create( dims );
+
+		/* lines along dimension 0, indexed in dimensions 1 to n-1 */
+		final long[] lineDims = new long[ n - 1 ];
+		long numLines = 1;
+		for ( int d = 1; d < n; ++d )
+		{
+			lineDims[ d - 1 ] = interval.dimension( d );
+			numLines *= lineDims[ d - 1 ];
+		}
+
+		final TaskExecutor taskExecutor = Parallelization.getTaskExecutor();
+		final long numTasks = Math.max( 1, Math.min( numLines, 4L * taskExecutor.suggestNumberOfTasks() ) );
+		final List< long[] > tasks = new ArrayList<>();
+		for ( long i = 0; i < numTasks; ++i )
+			tasks.add( new long[] { numLines * i / numTasks, numLines * ( i + 1 ) / numTasks } );
+
+		final List< double[] > stats = taskExecutor.forEachApply( tasks, range -> solveLines( field, range[ 0 ], range[ 1 ], lineDims, spacing, offset ) );
+
+		long numUnconverged = 0;
+		long numIterations = 0;
+		double maxResidual = 0;
+		for ( final double[] s : stats )
+		{
+			numUnconverged += ( long )s[ 0 ];
+			numIterations += ( long )s[ 1 ];
+			maxResidual = Math.max( maxResidual, s[ 2 ] );
+		}
+
+		/* array fields are interpolated directly and have an analytic Jacobian */
+		final ArrayVectorField arrayField = ArrayVectorField.wrap( field );
+		final DisplacementFieldTransform inverse = arrayField == null
+				? new DisplacementFieldTransform( field, spacing, offset )
+				: new DisplacementFieldTransform( arrayField, new ScaleAndTranslation( spacing, offset ) );
+
+		final long numPoints = numLines * interval.dimension( 0 );
+		return new Result(
+				field,
+				inverse,
+				numPoints,
+				numUnconverged,
+				numIterations,
+				maxResidual );
+	}
+
+	/**
+	 * Solve a range of lines, returns the number of unconverged points, the
+	 * number of iterations, and the max residual.
+	 */
+	private double[] solveLines(
+			final RandomAccessibleInterval< DoubleType > field,
+			final long firstLine,
+			final long lastLine,
+			final long[] lineDims,
+			final double[] spacing,
+			final double[] offset )
+	{
+		final int n = spacing.length;
+		final long width = field.dimension( 1 );
+		final RealTransform transform = forward.copy();
+		final RandomAccess< DoubleType > access = field.randomAccess();
+		final long[] linePosition = new long[ lineDims.length ];
+		final double[] y = new double[ n ];
+		final double[] x = new double[ n ];
+		final double[] fx = new double[ n ];
+		final double[] guess = new double[ n ];
+		final double tol2 = tolerance * tolerance;
+
+		long numUnconverged = 0;
+		long numIterations = 0;
+		double maxResidual2 = 0;
+
+		for ( long line = firstLine; line < lastLine; ++line )
+		{
+			IntervalIndexer.indexToPosition( line, lineDims, linePosition );
+			for ( int d = 1; d < n; ++d )
+				y[ d ] = linePosition[ d - 1 ] * spacing[ d ] + offset[ d ];
+
+			access.setPosition( 0, 0 );
+			access.setPosition( 0, 1 );
+			for ( int d = 1; d < n; ++d )
+				access.setPosition( linePosition[ d - 1 ], d + 1 );
+
+			for ( long i = 0; i < width; ++i )
+			{
+				y[ 0 ] = i * spacing[ 0 ] + offset[ 0 ];
+
+				/* warm start with the previous point's inverse displacement */
+				if ( i == 0 )
+				{
+					transform.apply( y, fx );
+					++numIterations;
+					for ( int d = 0; d < n; ++d )
+						guess[ d ] = y[ d ] - fx[ d ];
+				}
+				for ( int d = 0; d < n; ++d )
+					x[ d ] = y[ d ] + guess[ d ];
+
+				double residual2 = Double.POSITIVE_INFINITY;
+				for ( int k = 0; k < maxIterations; ++k )
+				{
+					transform.apply( x, fx );
+					++numIterations;
+					residual2 = 0;
+					for ( int d = 0; d < n; ++d )
+					{
+						final double r = fx[ d ] - y[ d ];
+						residual2 += r * r;
+					}
+					if ( residual2 <= tol2 || k == maxIterations - 1 )
+						break;
+					for ( int d = 0; d < n; ++d )
+						x[ d ] -= fx[ d ] - y[ d ];
+				}
+
+				if ( residual2 > tol2 )
+					++numUnconverged;
+				if ( residual2 > maxResidual2 )
+					maxResidual2 = residual2;
+
+				access.setPosition( i, 1 );
+				for ( int d = 0; d < n; ++d )
+				{
+					guess[ d ] = x[ d ] - y[ d ];
+					access.setPosition( d, 0 );
+					access.get().set( guess[ d ] );
+				}
+			}
+		}
+		return new double[] { numUnconverged, numIterations, Math.sqrt( maxResidual2 ) };
+	}
+}
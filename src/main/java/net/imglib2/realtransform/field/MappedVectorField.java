@@ -0,0 +1,268 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+
+/**
+ * A {@link VectorField} backed by a memory mapped raw file with interleaved
+ * vectors in flat iteration order, i.e. the layout of a field image with
+ * the vector components in dimension 0.  The file is mapped read-only in
+ * segments of at most 1GB, so fields can be larger than the heap and have
+ * more than 2<sup>31</sup> elements.  Opening maps the file without reading
+ * it, pages are loaded by the operating system on first access.  All
+ * {@link VectorFieldAccess}es share the same mappings and can be used
+ * concurrently.
+ *
+ * Mappings are released when the field is garbage collected.
+ */
+public class MappedVectorField extends VectorField
+{
+	public enum DataType
+	{
+		FLOAT64( 8 ),
+		FLOAT32( 4 );
+
+		private final int bytes;
+
+		DataType( final int bytes )
+		{
+			this.bytes = bytes;
+		}
+
+		/**
+		 * @return the size of one component in bytes
+		 */
+		public int bytes()
+		{
+			return bytes;
+		}
+	}
+
+	private static final int DEFAULT_SEGMENT_BITS = 30;
+
+	private final DataType dataType;
+
+	private final ByteBuffer[] segments;
+
+	private final int segmentBits;
+
+	private final long segmentMask;
+
+	/**
+	 * Element offset between grid neighbors in each dimension.
+	 */
+	protected final long[] strides;
+
+	/**
+	 * Map a raw vector field file.
+	 *
+	 * @param path
+	 *            the file
+	 * @param headerBytes
+	 *            number of bytes before the first vector
+	 * @param dataType
+	 *            the component data type
+	 * @param order
+	 *            the byte order
+	 * @param numComponents
+	 *            the number of components of each vector
+	 * @param dimensions
+	 *            the grid dimensions
+	 * @throws IOException
+	 *             if the file cannot be mapped or is too small
+	 */
+	public MappedVectorField(
+			final Path path,
+			final long headerBytes,
+			final DataType dataType,
+			final ByteOrder order,
+			final int numComponents,
+			final long... dimensions ) throws IOException
+	{
+		this( path, headerBytes, dataType, order, DEFAULT_SEGMENT_BITS, numComponents, dimensions );
+	}
+
+	MappedVectorField(
+			final Path path,
+			final long headerBytes,
+			final DataType dataType,
+			final ByteOrder order,
+			final int segmentBits,
+			final int numComponents,
+			final long[] dimensions ) throws IOException
+	{
+		super( numComponents, dimensions );
+		if ( segmentBits < 3 || segmentBits > 30 )
+			throw new IllegalArgumentException( "Segment size must be between 8B and 1GB." );
+		this.dataType = dataType;
+		this.segmentBits = segmentBits;
+		segmentMask = ( 1L << segmentBits ) - 1;
+
+		strides = strides( numComponents, dimensions );
+		final long bytes = strides[ n ] * dataType.bytes();
+
+		try ( final FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) )
+		{
+			if ( channel.size() < headerBytes + bytes )
+				throw new IOException( "Expected " + ( headerBytes + bytes ) + " bytes in " + path + " but found " + channel.size() + "." );
+
+			final long segmentSize = 1L << segmentBits;
+			segments = new ByteBuffer[ ( int )( ( bytes + segmentSize - 1 ) >>> segmentBits ) ];
+			for ( int i = 0; i < segments.length; ++i )
+			{
+				final long start = ( long )i << segmentBits;
+				final MappedByteBuffer segment = channel.map( MapMode.READ_ONLY, headerBytes + start, Math.min( segmentSize, bytes - start ) );
+				segment.order( order );
+				segments[ i ] = segment;
+			}
+		}
+	}
+
+	/**
+	 * @return the component data type
+	 */
+	public DataType getDataType()
+	{
+		return dataType;
+	}
+
+	/**
+	 * Read one component.
+	 *
+	 * @param index
+	 *            the element index, i.e. the flat grid index times the
+	 *            number of components plus the component
+	 * @return the component value
+	 */
+	public double read( final long index )
+	{
+		final long b = index * dataType.bytes();
+		final ByteBuffer segment = segments[ ( int )( b >>> segmentBits ) ];
+		final int i = ( int )( b & segmentMask );
+		return dataType == DataType.FLOAT64 ? segment.getDouble( i ) : segment.getFloat( i );
+	}
+
+	@Override
+	public VectorFieldAccess realRandomAccess()
+	{
+		return new MappedAccess();
+	}
+
+	/**
+	 * Write a vector field image with the components in dimension 0 as a raw
+	 * file that can be mapped by {@link MappedVectorField}.
+	 *
+	 * @param <T>
+	 *            component type
+	 * @param field
+	 *            the vector field
+	 * @param path
+	 *            the file
+	 * @param dataType
+	 *            the component data type
+	 * @param order
+	 *            the byte order
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static < T extends RealType< T > > void write(
+			final RandomAccessibleInterval< T > field,
+			final Path path,
+			final DataType dataType,
+			final ByteOrder order ) throws IOException
+	{
+		final boolean swap = order != ByteOrder.BIG_ENDIAN;
+		try ( final OutputStream os = Files.newOutputStream( path );
+				final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( os, 1 << 16 ) ) )
+		{
+			for ( final T t : Views.flatIterable( field ) )
+			{
+				if ( dataType == DataType.FLOAT64 )
+				{
+					final long bits = Double.doubleToRawLongBits( t.getRealDouble() );
+					out.writeLong( swap ? Long.reverseBytes( bits ) : bits );
+				}
+				else
+				{
+					final int bits = Float.floatToRawIntBits( t.getRealFloat() );
+					out.writeInt( swap ? Integer.reverseBytes( bits ) : bits );
+				}
+			}
+		}
+	}
+
+	private class MappedAccess extends VectorFieldAccess
+	{
+		MappedAccess()
+		{
+			super( MappedVectorField.this );
+		}
+
+		@Override
+		protected double component( final long index )
+		{
+			return read( index );
+		}
+
+		@Override
+		protected void interpolate()
+		{
+			interpolate( offset( strides ), strides );
+		}
+
+		@Override
+		public MappedAccess copy()
+		{
+			final MappedAccess copy = new MappedAccess();
+			copy.setPosition( this );
+			return copy;
+		}
+	}
+}
@@ -0,0 +1,305 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+/**
+ * A {@link VectorField} stored as 16 or 8 bit signed integers with a scale
+ * and offset per component, i.e. component c of a stored vector is
+ * <code>offset[c] + scale[c] * q</code>.  Vectors are interleaved in a flat
+ * array like in {@link ArrayVectorField}.  Because n-linear interpolation
+ * is linear, the integers are interpolated first and dequantized once per
+ * component.
+ *
+ * Use {@link VectorFields#quantize16} or {@link VectorFields#quantize8} to
+ * create quantized fields from existing fields.
+ */
+public class QuantizedVectorField extends VectorField
+{
+	private final short[] shortData;
+
+	private final byte[] byteData;
+
+	protected final double[] scale;
+
+	protected final double[] offset;
+
+	/**
+	 * Array offset between grid neighbors in each dimension.
+	 */
+	protected final long[] strides;
+
+	/**
+	 * @param data
+	 *            interleaved quantized vectors
+	 * @param scale
+	 *            the quantization step of each component
+	 * @param offset
+	 *            the value of a zero of each component
+	 * @param dimensions
+	 *            the grid dimensions
+	 */
+	public QuantizedVectorField( final short[] data, final double[] scale, final double[] offset, final long... dimensions )
+	{
+		super( scale.length, dimensions );
+		strides = strides( scale, offset, dimensions, data.length );
+		this.scale = scale.clone();
+		this.offset = offset.clone();
+		shortData = data;
+		byteData = null;
+	}
+
+	/**
+	 * @param data
+	 *            interleaved quantized vectors
+	 * @param scale
+	 *            the quantization step of each component
+	 * @param offset
+	 *            the value of a zero of each component
+	 * @param dimensions
+	 *            the grid dimensions
+	 */
+	public QuantizedVectorField( final byte[] data, final double[] scale, final double[] offset, final long... dimensions )
+	{
+		super( scale.length, dimensions );
+		strides = strides( scale, offset, dimensions, data.length );
+		this.scale = scale.clone();
+		this.offset = offset.clone();
+		shortData = null;
+		byteData = data;
+	}
+
+	private static long[] strides( final double[] scale, final double[] offset, final long[] dimensions, final int length )
+	{
+		if ( scale.length != offset.length )
+			throw new IllegalArgumentException( "Number of scales and offsets differ." );
+		final long[] strides = strides( scale.length, dimensions );
+		if ( strides[ dimensions.length ] != length )
+			throw new IllegalArgumentException( "Expected " + strides[ dimensions.length ] + " array elements but found " + length + "." );
+		return strides;
+	}
+
+	/**
+	 * @param c
+	 *            component
+	 * @return the quantization step of component c
+	 */
+	public double scale( final int c )
+	{
+		return scale[ c ];
+	}
+
+	/**
+	 * @param c
+	 *            component
+	 * @return the value of a zero of component c
+	 */
+	public double offset( final int c )
+	{
+		return offset[ c ];
+	}
+
+	/**
+	 * @return the number of bits per stored component, 16 or 8
+	 */
+	public int bits()
+	{
+		return shortData != null ? 16 : 8;
+	}
+
+	@Override
+	public VectorFieldAccess realRandomAccess()
+	{
+		return shortData != null ? new ShortAccess() : new ByteAccess();
+	}
+
+	private void dequantize( final double[] value )
+	{
+		for ( int c = 0; c < numComponents; ++c )
+			value[ c ] = offset[ c ] + scale[ c ] * value[ c ];
+	}
+
+	private class ShortAccess extends VectorFieldAccess
+	{
+		private final short[] data = shortData;
+
+		ShortAccess()
+		{
+			super( QuantizedVectorField.this );
+		}
+
+		@Override
+		protected double component( final long index )
+		{
+			return data[ ( int )index ];
+		}
+
+		@Override
+		protected void interpolate()
+		{
+			final long base = offset( strides );
+			if ( n == 2 )
+				interpolate2D( ( int )base );
+			else if ( n == 3 )
+				interpolate3D( ( int )base );
+			else
+			{
+				interpolate( base, strides );
+				dequantize( value );
+			}
+		}
+
+		private void interpolate2D( final int i00 )
+		{
+			final int i10 = i00 + ( int )( ( hi[ 0 ] - lo[ 0 ] ) * strides[ 0 ] );
+			final int dy = ( int )( ( hi[ 1 ] - lo[ 1 ] ) * strides[ 1 ] );
+			final int i01 = i00 + dy;
+			final int i11 = i10 + dy;
+			final double fx = frac[ 0 ], fy = frac[ 1 ];
+			final double gx = 1.0 - fx, gy = 1.0 - fy;
+			for ( int c = 0; c < numComponents; ++c )
+				value[ c ] = offset[ c ] + scale[ c ] * (
+						gy * ( gx * data[ i00 + c ] + fx * data[ i10 + c ] ) +
+						fy * ( gx * data[ i01 + c ] + fx * data[ i11 + c ] ) );
+		}
+
+		private void interpolate3D( final int i000 )
+		{
+			final int dx = ( int )( ( hi[ 0 ] - lo[ 0 ] ) * strides[ 0 ] );
+			final int dy = ( int )( ( hi[ 1 ] - lo[ 1 ] ) * strides[ 1 ] );
+			final int dz = ( int )( ( hi[ 2 ] - lo[ 2 ] ) * strides[ 2 ] );
+			final int i100 = i000 + dx;
+			final int i010 = i000 + dy;
+			final int i110 = i100 + dy;
+			final int i001 = i000 + dz;
+			final int i101 = i100 + dz;
+			final int i011 = i010 + dz;
+			final int i111 = i110 + dz;
+			final double fx = frac[ 0 ], fy = frac[ 1 ], fz = frac[ 2 ];
+			final double gx = 1.0 - fx, gy = 1.0 - fy, gz = 1.0 - fz;
+			for ( int c = 0; c < numComponents; ++c )
+				value[ c ] = offset[ c ] + scale[ c ] * (
+						gz * (
+								gy * ( gx * data[ i000 + c ] + fx * data[ i100 + c ] ) +
+								fy * ( gx * data[ i010 + c ] + fx * data[ i110 + c ] ) ) +
+						fz * (
+								gy * ( gx * data[ i001 + c ] + fx * data[ i101 + c ] ) +
+								fy * ( gx * data[ i011 + c ] + fx * data[ i111 + c ] ) ) );
+		}
+
+		@Override
+		public ShortAccess copy()
+		{
+			final ShortAccess copy = new ShortAccess();
+			copy.setPosition( this );
+			return copy;
+		}
+	}
+
+	private class ByteAccess extends VectorFieldAccess
+	{
+		private final byte[] data = byteData;
+
+		ByteAccess()
+		{
+			super( QuantizedVectorField.this );
+		}
+
+		@Override
+		protected double component( final long index )
+		{
+			return data[ ( int )index ];
+		}
+
+		@Override
+		protected void interpolate()
+		{
+			final long base = offset( strides );
+			if ( n == 2 )
+				interpolate2D( ( int )base );
+			else if ( n == 3 )
+				interpolate3D( ( int )base );
+			else
+			{
+				interpolate( base, strides );
+				dequantize( value );
+			}
+		}
+
+		private void interpolate2D( final int i00 )
+		{
+			final int i10 = i00 + ( int )( ( hi[ 0 ] - lo[ 0 ] ) * strides[ 0 ] );
+			final int dy = ( int )( ( hi[ 1 ] - lo[ 1 ] ) * strides[ 1 ] );
+			final int i01 = i00 + dy;
+			final int i11 = i10 + dy;
+			final double fx = frac[ 0 ], fy = frac[ 1 ];
+			final double gx = 1.0 - fx, gy = 1.0 - fy;
+			for ( int c = 0; c < numComponents; ++c )
+				value[ c ] = offset[ c ] + scale[ c ] * (
+						gy * ( gx * data[ i00 + c ] + fx * data[ i10 + c ] ) +
+						fy * ( gx * data[ i01 + c ] + fx * data[ i11 + c ] ) );
+		}
+
+		private void interpolate3D( final int i000 )
+		{
+			final int dx = ( int )( ( hi[ 0 ] - lo[ 0 ] ) * strides[ 0 ] );
+			final int dy = ( int )( ( hi[ 1 ] - lo[ 1 ] ) * strides[ 1 ] );
+			final int dz = ( int )( ( hi[ 2 ] - lo[ 2 ] ) * strides[ 2 ] );
+			final int i100 = i000 + dx;
+			final int i010 = i000 + dy;
+			final int i110 = i100 + dy;
+			final int i001 = i000 + dz;
+			final int i101 = i100 + dz;
+			final int i011 = i010 + dz;
+			final int i111 = i110 + dz;
+			final double fx = frac[ 0 ], fy = frac[ 1 ], fz = frac[ 2 ];
+			final double gx = 1.0 - fx, gy = 1.0 - fy, gz = 1.0 - fz;
+			for ( int c = 0; c < numComponents; ++c )
+				value[ c ] = offset[ c ] + scale[ c ] * (
+						gz * (
+								gy * ( gx * data[ i000 + c ] + fx * data[ i100 + c ] ) +
+								fy * ( gx * data[ i010 + c ] + fx * data[ i110 + c ] ) ) +
+						fz * (
+								gy * ( gx * data[ i001 + c ] + fx * data[ i101 + c ] ) +
+								fy * ( gx * data[ i011 + c ] + fx * data[ i111 + c ] ) ) );
+		}
+
+		@Override
+		public ByteAccess copy()
+		{
+			final ByteAccess copy = new ByteAccess();
+			copy.setPosition( this );
+			return copy;
+		}
+	}
+}
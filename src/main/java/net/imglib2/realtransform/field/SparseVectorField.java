@@ -0,0 +1,366 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import java.util.Arrays;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+
+/**
+ * A {@link VectorField} that stores only blocks containing non-zero vectors,
+ * everything else is implicitly zero.  Blocks are found in an open
+ * addressing hash map from the block index to the block data.  Lookups
+ * whose interpolation stencil lies within a single absent block return zero
+ * after one hash probe.  This suits localized corrections of large fields,
+ * e.g. hand-made fixes of tears or folds.
+ * <p>
+ * {@link #set(long[], double...)} is not thread safe and must not be called
+ * concurrently with lookups.  Lookups can run concurrently.
+ */
+public class SparseVectorField extends VectorField
+{
+	private static final long EMPTY = -1;
+
+	private final int[] blockSize;
+
+	private final long[] numBlocks;
+
+	private final long[] blockStrides;
+
+	/**
+	 * Offset between grid neighbors within block data in each dimension.
+	 */
+	private final long[] strides;
+
+	private final int blockLength;
+
+	private long[] keys;
+
+	private double[][] blocks;
+
+	private int size = 0;
+
+	/**
+	 * Create an empty field, i.e. zero everywhere.
+	 *
+	 * @param numComponents
+	 *            the number of components of each vector
+	 * @param blockSize
+	 *            the block size
+	 * @param dimensions
+	 *            the grid dimensions
+	 */
+	public SparseVectorField( final int numComponents, final int[] blockSize, final long... dimensions )
+	{
+		super( numComponents, dimensions );
+		if ( blockSize.length != n )
+			throw new IllegalArgumentException( "Block size and grid dimensions differ." );
+		this.blockSize = blockSize.clone();
+		numBlocks = new long[ n ];
+		blockStrides = new long[ n ];
+		final long[] size = new long[ n ];
+		long blockStride = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			numBlocks[ d ] = ( dimensions[ d ] + blockSize[ d ] - 1 ) / blockSize[ d ];
+			blockStrides[ d ] = blockStride;
+			blockStride = Math.multiplyExact( blockStride, numBlocks[ d ] );
+			size[ d ] = blockSize[ d ];
+		}
+		strides = strides( numComponents, size );
+		blockLength = Math.toIntExact( strides[ n ] );
+		keys = new long[ 16 ];
+		Arrays.fill( keys, EMPTY );
+		blocks = new double[ 16 ][];
+	}
+
+	/**
+	 * Create a sparse copy of a field image with the vector components in
+	 * dimension 0.  Only blocks with non-zero components are stored.
+	 *
+	 * @param <T>
+	 *            component type
+	 * @param field
+	 *            the field image
+	 * @param blockSize
+	 *            the block size
+	 * @return the sparse field
+	 */
+	public static < T extends RealType< T > > SparseVectorField fromField( final RandomAccessibleInterval< T > field, final int... blockSize )
+	{
+		final int n = field.numDimensions() - 1;
+		final long[] dimensions = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+			dimensions[ d ] = field.dimension( d + 1 );
+		final int nc = ( int )field.dimension( 0 );
+		final SparseVectorField sparse = new SparseVectorField( nc, blockSize, dimensions );
+
+		final Cursor< T > cursor = Views.flatIterable( Views.zeroMin( field ) ).localizingCursor();
+		final long[] position = new long[ n ];
+		final double[] vector = new double[ nc ];
+		while ( cursor.hasNext() )
+		{
+			boolean zero = true;
+			for ( int c = 0; c < nc; ++c )
+			{
+				vector[ c ] = cursor.next().getRealDouble();
+				zero &= vector[ c ] == 0;
+			}
+			if ( !zero )
+			{
+				for ( int d = 0; d < n; ++d )
+					position[ d ] = cursor.getLongPosition( d + 1 );
+				sparse.set( position, vector );
+			}
+		}
+		return sparse;
+	}
+
+	/**
+	 * @return the number of stored blocks
+	 */
+	public int numStoredBlocks()
+	{
+		return size;
+	}
+
+	/**
+	 * Set the vector at a grid position, allocating its block if necessary.
+	 *
+	 * @param position
+	 *            the grid position
+	 * @param vector
+	 *            the vector
+	 */
+	public void set( final long[] position, final double... vector )
+	{
+		long key = 0;
+		int offset = 0;
+		for ( int d = 0; d < n; ++d )
+		{
+			if ( position[ d ] < 0 || position[ d ] >= dimensions[ d ] )
+				throw new IndexOutOfBoundsException( "Position " + Arrays.toString( position ) + " is outside of the grid." );
+			key += position[ d ] / blockSize[ d ] * blockStrides[ d ];
+			offset += ( int )( position[ d ] % blockSize[ d ] * strides[ d ] );
+		}
+		double[] block = block( key );
+		if ( block == null )
+		{
+			boolean zero = true;
+			for ( int c = 0; c < numComponents; ++c )
+				zero &= vector[ c ] == 0;
+			if ( zero )
+				return;
+			block = new double[ blockLength ];
+			put( key, block );
+		}
+		System.arraycopy( vector, 0, block, offset, numComponents );
+	}
+
+	private static int hash( final long key )
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 32;
+		return ( int )h;
+	}
+
+	/**
+	 * @return the block data or null if the block is absent
+	 */
+	double[] block( final long key )
+	{
+		final long[] keys = this.keys;
+		final int mask = keys.length - 1;
+		for ( int i = hash( key ) & mask;; i = ( i + 1 ) & mask )
+		{
+			final long k = keys[ i ];
+			if ( k == key )
+				return blocks[ i ];
+			if ( k == EMPTY )
+				return null;
+		}
+	}
+
+	private void put( final long key, final double[] block )
+	{
+		if ( 2 * ( size + 1 ) > keys.length )
+			rehash( 2 * keys.length );
+		final int mask = keys.length - 1;
+		int i = hash( key ) & mask;
+		while ( keys[ i ] != EMPTY )
+			i = ( i + 1 ) & mask;
+		keys[ i ] = key;
+		blocks[ i ] = block;
+		++size;
+	}
+
+	private void rehash( final int capacity )
+	{
+		final long[] oldKeys = keys;
+		final double[][] oldBlocks = blocks;
+		final long[] newKeys = new long[ capacity ];
+		final double[][] newBlocks = new double[ capacity ][];
+		Arrays.fill( newKeys, EMPTY );
+		final int mask = capacity - 1;
+		for ( int j = 0; j < oldKeys.length; ++j )
+		{
+			if ( oldKeys[ j ] == EMPTY )
+				continue;
+			int i = hash( oldKeys[ j ] ) & mask;
+			while ( newKeys[ i ] != EMPTY )
+				i = ( i + 1 ) & mask;
+			newKeys[ i ] = oldKeys[ j ];
+			newBlocks[ i ] = oldBlocks[ j ];
+		}
+		blocks = newBlocks;
+		keys = newKeys;
+	}
+
+	@Override
+	public VectorFieldAccess realRandomAccess()
+	{
+		return new SparseAccess();
+	}
+
+	private class SparseAccess extends VectorFieldAccess
+	{
+		private final long[] loBlock = new long[ n ];
+
+		private final long[] hiBlock = new long[ n ];
+
+		private final int[] loOffset = new int[ n ];
+
+		private final int[] hiOffset = new int[ n ];
+
+		/**
+		 * The vectors at the corners of a stencil that straddles blocks.
+		 */
+		private final double[] corners = new double[ ( 1 << n ) * numComponents ];
+
+		private final long[] cornerStrides = new long[ n ];
+
+		/**
+		 * The storage read by {@link #component(long)}, either a block or
+		 * {@link #corners}.
+		 */
+		private double[] data;
+
+		SparseAccess()
+		{
+			super( SparseVectorField.this );
+			for ( int d = 0; d < n; ++d )
+				cornerStrides[ d ] = ( long )numComponents << d;
+		}
+
+		@Override
+		protected double component( final long index )
+		{
+			return data[ ( int )index ];
+		}
+
+		@Override
+		protected void interpolate()
+		{
+			boolean single = true;
+			long key = 0;
+			int base = 0;
+			for ( int d = 0; d < n; ++d )
+			{
+				final int b = blockSize[ d ];
+				loBlock[ d ] = lo[ d ] / b;
+				hiBlock[ d ] = hi[ d ] / b;
+				loOffset[ d ] = ( int )( ( lo[ d ] - loBlock[ d ] * b ) * strides[ d ] );
+				hiOffset[ d ] = ( int )( ( hi[ d ] - hiBlock[ d ] * b ) * strides[ d ] );
+				single &= loBlock[ d ] == hiBlock[ d ];
+				key += loBlock[ d ] * blockStrides[ d ];
+				base += loOffset[ d ];
+			}
+
+			if ( single )
+			{
+				data = block( key );
+				if ( data == null )
+					Arrays.fill( value, 0 );
+				else
+					interpolate( base, strides );
+			}
+			else
+			{
+				long lastKey = EMPTY;
+				double[] block = null;
+				for ( int corner = 0; corner < 1 << n; ++corner )
+				{
+					int o = 0;
+					long k = 0;
+					for ( int d = 0; d < n; ++d )
+					{
+						if ( ( corner & ( 1 << d ) ) == 0 )
+						{
+							o += loOffset[ d ];
+							k += loBlock[ d ] * blockStrides[ d ];
+						}
+						else
+						{
+							o += hiOffset[ d ];
+							k += hiBlock[ d ] * blockStrides[ d ];
+						}
+					}
+					if ( k != lastKey )
+					{
+						block = block( k );
+						lastKey = k;
+					}
+					final int c0 = corner * numComponents;
+					if ( block == null )
+						Arrays.fill( corners, c0, c0 + numComponents, 0 );
+					else
+						System.arraycopy( block, o, corners, c0, numComponents );
+				}
+				data = corners;
+				interpolate( 0, cornerStrides );
+			}
+		}
+
+		@Override
+		public SparseAccess copy()
+		{
+			final SparseAccess copy = new SparseAccess();
+			copy.setPosition( this );
+			return copy;
+		}
+	}
+}
@@ -0,0 +1,387 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+
+/**
+ * A {@link VectorField} that is split into tiles which are loaded on demand
+ * by a {@link TileLoader} and kept in a size-bounded least recently used
+ * cache.  Each tile is loaded with a halo of one grid point on its upper
+ * sides, so that n-linear interpolation never reads from two tiles.
+ * <p>
+ * The cache is shared by all {@link VectorFieldAccess}es and can be used
+ * concurrently, a tile requested by several threads at once is loaded only
+ * once.  Each access additionally remembers its last tile, so that
+ * coherent lookups do not touch the shared cache.  That tile stays in
+ * memory while the access is alive, even after it was evicted, i.e. each
+ * live access pins one tile beyond {@code maxCachedTiles}.
+ * {@link #invalidate()} makes all accesses drop their last tile.
+ */
+public class TiledVectorField extends VectorField
+{
+	/**
+	 * Loads the vectors of a grid interval.
+	 */
+	@FunctionalInterface
+	public interface TileLoader
+	{
+		/**
+		 * @param interval
+		 *            the grid interval
+		 * @return the interleaved vectors of the interval in flat iteration
+		 *         order
+		 * @throws IOException
+		 *             if the vectors cannot be loaded
+		 */
+		double[] load( Interval interval ) throws IOException;
+
+		/**
+		 * Create a loader that copies from a field image with the vector
+		 * components in dimension 0, e.g. a lazily loaded cell image.
+		 *
+		 * @param <T>
+		 *            component type
+		 * @param field
+		 *            the field image
+		 * @return the loader
+		 */
+		static < T extends RealType< T > > TileLoader fromField( final RandomAccessibleInterval< T > field )
+		{
+			return interval -> {
+				final int n = interval.numDimensions();
+				final long[] min = new long[ n + 1 ];
+				final long[] max = new long[ n + 1 ];
+				min[ 0 ] = field.min( 0 );
+				max[ 0 ] = field.max( 0 );
+				long size = field.dimension( 0 );
+				for ( int d = 0; d < n; ++d )
+				{
+					min[ d + 1 ] = field.min( d + 1 ) + interval.min( d );
+					max[ d + 1 ] = field.min( d + 1 ) + interval.max( d );
+					size *= interval.dimension( d );
+				}
+				final double[] data = new double[ ( int )size ];
+				int i = 0;
+				for ( final T t : Views.flatIterable( Views.interval( field, min, max ) ) )
+					data[ i++ ] = t.getRealDouble();
+				return data;
+			};
+		}
+	}
+
+	/**
+	 * A loaded tile.
+	 */
+	static class Tile
+	{
+		final long[] min;
+
+		final long[] strides;
+
+		final double[] data;
+
+		Tile( final long[] min, final long[] strides, final double[] data )
+		{
+			this.min = min;
+			this.strides = strides;
+			this.data = data;
+		}
+	}
+
+	private final TileLoader loader;
+
+	private final int[] tileSize;
+
+	private final long[] numTiles;
+
+	private final int maxCachedTiles;
+
+	private final LinkedHashMap< Long, Tile > cache = new LinkedHashMap<>( 16, 0.75f, true );
+
+	private final Map< Long, CompletableFuture< Tile > > loading = new HashMap<>();
+
+	private final AtomicLong numLoads = new AtomicLong();
+
+	/**
+	 * Incremented by {@link #invalidate()}, accesses and loads started
+	 * before do not use or cache their tiles afterwards.
+	 */
+	private volatile int generation = 0;
+
+	/**
+	 * @param loader
+	 *            loads the vectors of grid intervals
+	 * @param maxCachedTiles
+	 *            the maximal number of tiles kept in the cache, each live
+	 *            access keeps one more
+	 * @param tileSize
+	 *            the tile size without halo
+	 * @param numComponents
+	 *            the number of components of each vector
+	 * @param dimensions
+	 *            the grid dimensions
+	 */
+	public TiledVectorField(
+			final TileLoader loader,
+			final int maxCachedTiles,
+			final int[] tileSize,
+			final int numComponents,
+			final long... dimensions )
+	{
+		super( numComponents, dimensions );
+		if ( tileSize.length != n )
+			throw new IllegalArgumentException( "Tile size and grid dimensions differ." );
+		if ( maxCachedTiles < 1 )
+			throw new IllegalArgumentException( "At least one tile must be cached." );
+		this.loader = loader;
+		this.maxCachedTiles = maxCachedTiles;
+		this.tileSize = tileSize.clone();
+		numTiles = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+			numTiles[ d ] = ( dimensions[ d ] + tileSize[ d ] - 1 ) / tileSize[ d ];
+	}
+
+	/**
+	 * @return the number of tiles loaded so far, including reloads of
+	 *         evicted tiles
+	 */
+	public long getNumLoads()
+	{
+		return numLoads.get();
+	}
+
+	/**
+	 * @return the number of tiles currently in the cache
+	 */
+	public int getNumCachedTiles()
+	{
+		synchronized ( cache )
+		{
+			return cache.size();
+		}
+	}
+
+	/**
+	 * Remove all tiles from the cache.  Existing accesses reload their
+	 * tiles on their next lookup, tiles that are being loaded are not
+	 * cached.
+	 */
+	public void invalidate()
+	{
+		synchronized ( cache )
+		{
+			cache.clear();
+			loading.clear();
+			++generation;
+		}
+	}
+
+	/**
+	 * Get the tile containing grid position lo, loading it if necessary.
+	 */
+	Tile tile( final long key, final long[] tilePosition )
+	{
+		final CompletableFuture< Tile > future;
+		final boolean load;
+		final int loadGeneration;
+		synchronized ( cache )
+		{
+			loadGeneration = generation;
+			final Tile tile = cache.get( key );
+			if ( tile != null )
+				return tile;
+			final CompletableFuture< Tile > pending = loading.get( key );
+			if ( pending == null )
+			{
+				future = new CompletableFuture<>();
+				loading.put( key, future );
+				load = true;
+			}
+			else
+			{
+				future = pending;
+				load = false;
+			}
+		}
+
+		if ( !load )
+		{
+			try
+			{
+				return future.join();
+			}
+			catch ( final CompletionException e )
+			{
+				if ( e.getCause() instanceof RuntimeException )
+					throw ( RuntimeException )e.getCause();
+				if ( e.getCause() instanceof Error )
+					throw ( Error )e.getCause();
+				throw e;
+			}
+		}
+
+		try
+		{
+			final Tile tile = load( tilePosition );
+			synchronized ( cache )
+			{
+				if ( loadGeneration == generation )
+				{
+					cache.put( key, tile );
+					final Iterator< Long > eldest = cache.keySet().iterator();
+					while ( cache.size() > maxCachedTiles )
+					{
+						eldest.next();
+						eldest.remove();
+					}
+				}
+				loading.remove( key, future );
+			}
+			future.complete( tile );
+			return tile;
+		}
+		catch ( final Throwable e )
+		{
+			synchronized ( cache )
+			{
+				loading.remove( key, future );
+			}
+			future.completeExceptionally( e );
+			throw e;
+		}
+	}
+
+	private Tile load( final long[] tilePosition )
+	{
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		final long[] size = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			min[ d ] = tilePosition[ d ] * tileSize[ d ];
+			max[ d ] = Math.min( min[ d ] + tileSize[ d ], dimensions[ d ] - 1 );
+			size[ d ] = max[ d ] - min[ d ] + 1;
+		}
+		final long[] strides = strides( numComponents, size );
+
+		final double[] data;
+		try
+		{
+			data = loader.load( new FinalInterval( min, max ) );
+		}
+		catch ( final IOException e )
+		{
+			throw new UncheckedIOException( e );
+		}
+		if ( data.length != strides[ n ] )
+			throw new IllegalStateException( "Expected " + strides[ n ] + " values for tile but loaded " + data.length + "." );
+
+		numLoads.incrementAndGet();
+		return new Tile( min, strides, data );
+	}
+
+	@Override
+	public VectorFieldAccess realRandomAccess()
+	{
+		return new TiledAccess();
+	}
+
+	private class TiledAccess extends VectorFieldAccess
+	{
+		private final long[] tilePosition = new long[ n ];
+
+		private long lastKey = -1;
+
+		private Tile lastTile = null;
+
+		private int lastGeneration;
+
+		TiledAccess()
+		{
+			super( TiledVectorField.this );
+		}
+
+		@Override
+		protected void interpolate()
+		{
+			long key = 0;
+			for ( int d = n - 1; d >= 0; --d )
+			{
+				tilePosition[ d ] = lo[ d ] / tileSize[ d ];
+				key = key * numTiles[ d ] + tilePosition[ d ];
+			}
+			final int currentGeneration = generation;
+			if ( key != lastKey || currentGeneration != lastGeneration )
+			{
+				lastTile = tile( key, tilePosition );
+				lastKey = key;
+				lastGeneration = currentGeneration;
+			}
+
+			long base = 0;
+			for ( int d = 0; d < n; ++d )
+				base += ( lo[ d ] - lastTile.min[ d ] ) * lastTile.strides[ d ];
+			interpolate( base, lastTile.strides );
+		}
+
+		@Override
+		protected double component( final long index )
+		{
+			return lastTile.data[ ( int )index ];
+		}
+
+		@Override
+		public TiledAccess copy()
+		{
+			final TiledAccess copy = new TiledAccess();
+			copy.setPosition( this );
+			return copy;
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import net.imglib2.RealInterval;
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+import net.imglib2.RealRandomAccessible;
+
+/**
+ * A vector field over an n-dimensional grid that is n-linearly interpolated
+ * and extended by its border values.  Unlike the generic view stack
+ * (<code>Views.collapseReal</code>, <code>Views.extendBorder</code>,
+ * <code>Views.interpolate</code>) that
+ * {@link net.imglib2.realtransform.PositionFieldTransform} builds for
+ * arbitrary {@link net.imglib2.RandomAccessibleInterval}s, implementations
+ * read their storage directly and interpolate all components at once.
+ *
+ * Grid coordinates are pixel coordinates starting at 0, a physical pixel
+ * spacing can be added with
+ * {@link net.imglib2.realtransform.RealViews#affine}.
+ */
+public abstract class VectorField implements RealRandomAccessible< RealLocalizable >
+{
+	protected final int n;
+
+	protected final int numComponents;
+
+	protected final long[] dimensions;
+
+	/**
+	 * @param numComponents
+	 *            the number of components of each vector
+	 * @param dimensions
+	 *            the grid dimensions
+	 */
+	protected VectorField( final int numComponents, final long... dimensions )
+	{
+		this.n = dimensions.length;
+		this.numComponents = numComponents;
+		this.dimensions = dimensions.clone();
+	}
+
+	/**
+	 * Compute the element offsets between grid neighbors of interleaved
+	 * vectors stored in flat iteration order.
+	 *
+	 * @param numComponents
+	 *            the number of components of each vector
+	 * @param dimensions
+	 *            the grid dimensions
+	 * @return the element offset between grid neighbors in each dimension,
+	 *         followed by the total number of elements
+	 */
+	protected static long[] strides( final int numComponents, final long... dimensions )
+	{
+		final long[] strides = new long[ dimensions.length + 1 ];
+		long stride = numComponents;
+		for ( int d = 0; d < dimensions.length; ++d )
+		{
+			if ( dimensions[ d ] < 1 )
+				throw new IllegalArgumentException( "Empty vector field dimension " + d + "." );
+			strides[ d ] = stride;
+			stride = Math.multiplyExact( stride, dimensions[ d ] );
+		}
+		strides[ dimensions.length ] = stride;
+		return strides;
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	/**
+	 * @return the number of components of each vector
+	 */
+	public int numComponents()
+	{
+		return numComponents;
+	}
+
+	/**
+	 * @param d
+	 *            dimension
+	 * @return the grid size in dimension d
+	 */
+	public long dimension( final int d )
+	{
+		return dimensions[ d ];
+	}
+
+	@Override
+	public abstract VectorFieldAccess realRandomAccess();
+
+	@Override
+	public VectorFieldAccess realRandomAccess( final RealInterval interval )
+	{
+		return realRandomAccess();
+	}
+
+	@Override
+	public RealLocalizable getType()
+	{
+		return new RealPoint( numComponents );
+	}
+}
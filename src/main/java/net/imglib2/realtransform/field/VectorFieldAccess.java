@@ -0,0 +1,313 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import java.util.Arrays;
+
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+import net.imglib2.RealRandomAccess;
+
+/**
+ * Base class for {@link RealRandomAccess}es into a {@link VectorField}.
+ * {@link #get()} clamps the current position to the grid, splits it into
+ * the lower and upper neighbor and the interpolation weight in each
+ * dimension, and lets the implementation interpolate all components into
+ * {@link #value}.  The returned {@link RealLocalizable} is reused.
+ *
+ * Implementations locate the storage of the stencil and pass it to
+ * {@link #interpolate(long, long[])}, which reads the elements with
+ * {@link #component(long)}.  2D and 3D stencils are interpolated bi- and
+ * trilinearly by dedicated code paths.  Array backed implementations
+ * interpolate 2D and 3D stencils from their arrays directly to avoid the
+ * virtual call per element.
+ */
+public abstract class VectorFieldAccess extends RealPoint implements RealRandomAccess< RealLocalizable >
+{
+	protected final long[] max;
+
+	/**
+	 * Lower grid neighbor of the clamped position in each dimension.
+	 */
+	protected final long[] lo;
+
+	/**
+	 * Upper grid neighbor of the clamped position in each dimension,
+	 * equal to {@link #lo} at the border.
+	 */
+	protected final long[] hi;
+
+	/**
+	 * Weight of the upper neighbor in each dimension.
+	 */
+	protected final double[] frac;
+
+	/**
+	 * The interpolated components.
+	 */
+	protected final double[] value;
+
+	private final RealPoint valuePoint;
+
+	private final double[] center;
+
+	protected VectorFieldAccess( final VectorField field )
+	{
+		super( field.numDimensions() );
+		max = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+			max[ d ] = field.dimension( d ) - 1;
+		lo = new long[ n ];
+		hi = new long[ n ];
+		frac = new double[ n ];
+		value = new double[ field.numComponents() ];
+		valuePoint = RealPoint.wrap( value );
+		center = new double[ value.length ];
+	}
+
+	/**
+	 * Compute {@link #lo}, {@link #hi}, and {@link #frac} for the current
+	 * position.  Grid points below the last one, including 0, are the lower
+	 * corner of their upper cell.
+	 */
+	protected void stencil()
+	{
+		for ( int d = 0; d < n; ++d )
+		{
+			final double x = position[ d ];
+			if ( x >= 0 )
+			{
+				final long m = max[ d ];
+				if ( x < m )
+				{
+					final long f = ( long )x;
+					lo[ d ] = f;
+					hi[ d ] = f + 1;
+					frac[ d ] = x - f;
+				}
+				else
+				{
+					lo[ d ] = m;
+					hi[ d ] = m;
+					frac[ d ] = 0;
+				}
+			}
+			else
+			{
+				lo[ d ] = 0;
+				hi[ d ] = 0;
+				frac[ d ] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Interpolate all components at the stencil computed by
+	 * {@link #stencil()} into {@link #value}.
+	 */
+	protected abstract void interpolate();
+
+	/**
+	 * Read an element of the storage that is interpolated by
+	 * {@link #interpolate(long, long[])}.
+	 *
+	 * @param index
+	 *            the element index
+	 * @return the element
+	 */
+	protected abstract double component( long index );
+
+	/**
+	 * @param strides
+	 *            element offset between grid neighbors in each dimension
+	 * @return the element offset of the vector at {@link #lo}
+	 */
+	protected long offset( final long[] strides )
+	{
+		long o = 0;
+		for ( int d = 0; d < n; ++d )
+			o += lo[ d ] * strides[ d ];
+		return o;
+	}
+
+	/**
+	 * Interpolate all components at the stencil into {@link #value} from a
+	 * storage with interleaved components that is read with
+	 * {@link #component(long)}.
+	 *
+	 * @param base
+	 *            element index of the first component of the vector at
+	 *            {@link #lo}
+	 * @param strides
+	 *            element offset between grid neighbors in each dimension
+	 */
+	protected void interpolate( final long base, final long[] strides )
+	{
+		if ( n == 2 )
+			interpolate2D( base, strides );
+		else if ( n == 3 )
+			interpolate3D( base, strides );
+		else
+			interpolateND( base, strides );
+	}
+
+	private void interpolate2D( final long i00, final long[] strides )
+	{
+		final long i10 = i00 + ( hi[ 0 ] - lo[ 0 ] ) * strides[ 0 ];
+		final long dy = ( hi[ 1 ] - lo[ 1 ] ) * strides[ 1 ];
+		final long i01 = i00 + dy;
+		final long i11 = i10 + dy;
+		final double fx = frac[ 0 ], fy = frac[ 1 ];
+		final double gx = 1.0 - fx, gy = 1.0 - fy;
+		for ( int c = 0; c < value.length; ++c )
+			value[ c ] =
+					gy * ( gx * component( i00 + c ) + fx * component( i10 + c ) ) +
+					fy * ( gx * component( i01 + c ) + fx * component( i11 + c ) );
+	}
+
+	private void interpolate3D( final long i000, final long[] strides )
+	{
+		final long dx = ( hi[ 0 ] - lo[ 0 ] ) * strides[ 0 ];
+		final long dy = ( hi[ 1 ] - lo[ 1 ] ) * strides[ 1 ];
+		final long dz = ( hi[ 2 ] - lo[ 2 ] ) * strides[ 2 ];
+		final long i100 = i000 + dx;
+		final long i010 = i000 + dy;
+		final long i110 = i100 + dy;
+		final long i001 = i000 + dz;
+		final long i101 = i100 + dz;
+		final long i011 = i010 + dz;
+		final long i111 = i110 + dz;
+		final double fx = frac[ 0 ], fy = frac[ 1 ], fz = frac[ 2 ];
+		final double gx = 1.0 - fx, gy = 1.0 - fy, gz = 1.0 - fz;
+		for ( int c = 0; c < value.length; ++c )
+			value[ c ] =
+					gz * (
+							gy * ( gx * component( i000 + c ) + fx * component( i100 + c ) ) +
+							fy * ( gx * component( i010 + c ) + fx * component( i110 + c ) ) ) +
+					fz * (
+							gy * ( gx * component( i001 + c ) + fx * component( i101 + c ) ) +
+							fy * ( gx * component( i011 + c ) + fx * component( i111 + c ) ) );
+	}
+
+	private void interpolateND( final long base, final long[] strides )
+	{
+		Arrays.fill( value, 0 );
+		for ( int corner = 0; corner < 1 << n; ++corner )
+		{
+			long o = base;
+			double w = 1;
+			for ( int d = 0; d < n; ++d )
+			{
+				if ( ( corner & ( 1 << d ) ) == 0 )
+					w *= 1.0 - frac[ d ];
+				else
+				{
+					w *= frac[ d ];
+					o += ( hi[ d ] - lo[ d ] ) * strides[ d ];
+				}
+			}
+			if ( w != 0 )
+				for ( int c = 0; c < value.length; ++c )
+					value[ c ] += w * component( o + c );
+		}
+	}
+
+	@Override
+	public RealLocalizable get()
+	{
+		stencil();
+		interpolate();
+		return valuePoint;
+	}
+
+	/**
+	 * Interpolate all components at the current position and compute their
+	 * partial derivatives with respect to the grid coordinates.  The
+	 * derivative along a dimension is the difference between the two
+	 * neighboring hyperplanes of the stencil, computed with the same
+	 * interpolation kernel by moving the weight of one dimension to one
+	 * side, i.e. n + 1 kernel evaluations on the same stencil.  At grid
+	 * points, the derivatives are taken from the upper cell, outside of the
+	 * grid, where the field is constant, they are 0.
+	 *
+	 * @param gradient
+	 *            receives the partial derivative of component c along
+	 *            dimension d at gradient[c][d]
+	 * @return the interpolated components (reused)
+	 */
+	public RealLocalizable gradient( final double[][] gradient )
+	{
+		stencil();
+		interpolate();
+		final int nc = value.length;
+		System.arraycopy( value, 0, center, 0, nc );
+		for ( int d = 0; d < n; ++d )
+		{
+			final double f = frac[ d ];
+			if ( lo[ d ] == hi[ d ] )
+			{
+				for ( int c = 0; c < nc; ++c )
+					gradient[ c ][ d ] = 0;
+			}
+			else if ( f < 0.5 )
+			{
+				frac[ d ] = 1;
+				interpolate();
+				final double s = 1.0 / ( 1.0 - f );
+				for ( int c = 0; c < nc; ++c )
+					gradient[ c ][ d ] = ( value[ c ] - center[ c ] ) * s;
+			}
+			else
+			{
+				frac[ d ] = 0;
+				interpolate();
+				final double s = 1.0 / f;
+				for ( int c = 0; c < nc; ++c )
+					gradient[ c ][ d ] = ( center[ c ] - value[ c ] ) * s;
+			}
+			frac[ d ] = f;
+		}
+		System.arraycopy( center, 0, value, 0, nc );
+		return valuePoint;
+	}
+
+	@Override
+	public RealLocalizable getType()
+	{
+		return valuePoint;
+	}
+
+	@Override
+	public abstract VectorFieldAccess copy();
+}
@@ -0,0 +1,205 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+
+/**
+ * Conversions from vector field images with the vector components in
+ * dimension 0, e.g. as created by
+ * {@link net.imglib2.realtransform.DisplacementFieldTransform#createDisplacementField},
+ * into compact {@link VectorField}s.  The results can be used as
+ * displacement fields directly or with a pixel spacing:
+ *
+ * <pre>
+ * new DisplacementFieldTransform( RealViews.affine( VectorFields.quantize16( field ), new Scale3D( spacing ) ) );
+ * </pre>
+ *
+ * All fields are stored in a single array and are therefore limited to
+ * 2<sup>31</sup>-1 components.
+ */
+public class VectorFields
+{
+	private VectorFields()
+	{}
+
+	private static long[] gridDimensions( final RandomAccessibleInterval< ? > field )
+	{
+		final long[] dimensions = new long[ field.numDimensions() - 1 ];
+		for ( int d = 0; d < dimensions.length; ++d )
+			dimensions[ d ] = field.dimension( d + 1 );
+		return dimensions;
+	}
+
+	private static int size( final RandomAccessibleInterval< ? > field )
+	{
+		long size = 1;
+		for ( int d = 0; d < field.numDimensions(); ++d )
+			size *= field.dimension( d );
+		if ( size > Integer.MAX_VALUE - 8 )
+			throw new IllegalArgumentException( "Vector field with " + size + " components does not fit into an array." );
+		return ( int )size;
+	}
+
+	/**
+	 * Copy a vector field into a double precision {@link ArrayVectorField}.
+	 *
+	 * @param <T>
+	 *            component type
+	 * @param field
+	 *            the vector field, components in dimension 0
+	 * @return the array vector field
+	 */
+	public static < T extends RealType< T > > ArrayVectorField toDouble( final RandomAccessibleInterval< T > field )
+	{
+		final double[] data = new double[ size( field ) ];
+		int i = 0;
+		for ( final T t : Views.flatIterable( field ) )
+			data[ i++ ] = t.getRealDouble();
+		return new ArrayVectorField( data, ( int )field.dimension( 0 ), gridDimensions( field ) );
+	}
+
+	/**
+	 * Copy a vector field into a single precision {@link ArrayVectorField}.
+	 *
+	 * @param <T>
+	 *            component type
+	 * @param field
+	 *            the vector field, components in dimension 0
+	 * @return the array vector field
+	 */
+	public static < T extends RealType< T > > ArrayVectorField toFloat( final RandomAccessibleInterval< T > field )
+	{
+		final float[] data = new float[ size( field ) ];
+		int i = 0;
+		for ( final T t : Views.flatIterable( field ) )
+			data[ i++ ] = t.getRealFloat();
+		return new ArrayVectorField( data, ( int )field.dimension( 0 ), gridDimensions( field ) );
+	}
+
+	/**
+	 * Quantize a vector field to 16 bit per component.  The range of each
+	 * component is mapped linearly to the full short range, the maximal
+	 * error is half of {@link QuantizedVectorField#scale(int)}.
+	 *
+	 * @param <T>
+	 *            component type
+	 * @param field
+	 *            the vector field, components in dimension 0
+	 * @return the quantized vector field
+	 */
+	public static < T extends RealType< T > > QuantizedVectorField quantize16( final RandomAccessibleInterval< T > field )
+	{
+		final int nc = ( int )field.dimension( 0 );
+		final double[] scale = new double[ nc ];
+		final double[] offset = new double[ nc ];
+		final short[] data = new short[ size( field ) ];
+		quantize( field, Short.MIN_VALUE, Short.MAX_VALUE, scale, offset, ( i, q ) -> data[ i ] = ( short )q );
+		return new QuantizedVectorField( data, scale, offset, gridDimensions( field ) );
+	}
+
+	/**
+	 * Quantize a vector field to 8 bit per component.  The range of each
+	 * component is mapped linearly to the full byte range, the maximal error
+	 * is half of {@link QuantizedVectorField#scale(int)}.
+	 *
+	 * @param <T>
+	 *            component type
+	 * @param field
+	 *            the vector field, components in dimension 0
+	 * @return the quantized vector field
+	 */
+	public static < T extends RealType< T > > QuantizedVectorField quantize8( final RandomAccessibleInterval< T > field )
+	{
+		final int nc = ( int )field.dimension( 0 );
+		final double[] scale = new double[ nc ];
+		final double[] offset = new double[ nc ];
+		final byte[] data = new byte[ size( field ) ];
+		quantize( field, Byte.MIN_VALUE, Byte.MAX_VALUE, scale, offset, ( i, q ) -> data[ i ] = ( byte )q );
+		return new QuantizedVectorField( data, scale, offset, gridDimensions( field ) );
+	}
+
+	private interface QuantizedSink
+	{
+		void set( int i, int q );
+	}
+
+	private static < T extends RealType< T > > void quantize(
+			final RandomAccessibleInterval< T > field,
+			final int qMin,
+			final int qMax,
+			final double[] scale,
+			final double[] offset,
+			final QuantizedSink sink )
+	{
+		final int nc = scale.length;
+		final double[] min = new double[ nc ];
+		final double[] max = new double[ nc ];
+		for ( int c = 0; c < nc; ++c )
+		{
+			min[ c ] = Double.POSITIVE_INFINITY;
+			max[ c ] = Double.NEGATIVE_INFINITY;
+		}
+
+		int c = 0;
+		for ( final T t : Views.flatIterable( field ) )
+		{
+			final double v = t.getRealDouble();
+			if ( v < min[ c ] )
+				min[ c ] = v;
+			if ( v > max[ c ] )
+				max[ c ] = v;
+			if ( ++c == nc )
+				c = 0;
+		}
+
+		for ( c = 0; c < nc; ++c )
+		{
+			scale[ c ] = ( max[ c ] - min[ c ] ) / ( ( double )qMax - qMin );
+			offset[ c ] = min[ c ] - scale[ c ] * qMin;
+		}
+
+		c = 0;
+		int i = 0;
+		for ( final T t : Views.flatIterable( field ) )
+		{
+			final long q = scale[ c ] == 0 ? qMin : qMin + Math.round( ( t.getRealDouble() - min[ c ] ) / scale[ c ] );
+			sink.set( i++, ( int )Math.max( qMin, Math.min( qMax, q ) ) );
+			if ( ++c == nc )
+				c = 0;
+		}
+	}
+}
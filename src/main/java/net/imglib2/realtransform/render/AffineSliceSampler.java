@@ -0,0 +1,1126 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.render;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealLocalizable;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.realtransform.AffineRandomAccessible;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Samples a 2D plane of a 3D source mapped through an
+ * {@link AffineTransform3D} into primitive arrays.
+ * <p>
+ * This is the same as copying a
+ * {@link net.imglib2.view.Views#hyperSlice(net.imglib2.RandomAccessible, int, long)
+ * hyperslice} at z=0 of an {@link AffineRandomAccessible}, but the plane
+ * origin and the two in-plane step vectors are computed once and samples are
+ * read directly from the primitive storage of {@link ArrayImg}s and
+ * {@link AbstractCellImg CellImg}s of the common {@link RealType}s.  For each
+ * row, the range of pixels whose interpolation kernel is entirely inside of
+ * the source is computed such that only pixels near the source boundary are
+ * bounds checked.  Inside of that range, the voxel indices of a row are
+ * computed first and then gathered from the storage array in one loop per
+ * storage type.  Other sources, and cells without array storage, are read
+ * through a {@link RandomAccess}.
+ * <p>
+ * Values are interpolated in double precision.  Nearest neighbor sampling
+ * into integer targets copies the raw integer values of integer sources, such
+ * that large label values are preserved exactly.
+ * <p>
+ * Pixels that map outside of the source are set to a background value.
+ * Trilinear interpolation at the boundary treats voxels outside of the
+ * source as background, i.e. is equivalent to n-linear interpolation of the
+ * source extended by the background value.
+ * <p>
+ * Calls to the sample methods are independent and can be made concurrently
+ * from multiple threads, e.g. for different tiles of a target.
+ * {@link #setTransform(AffineTransform3D)} publishes a new immutable plane,
+ * calls to the sample methods that are in progress complete with the
+ * previous one.
+ *
+ * @param <T> data type
+ */
+public class AffineSliceSampler< T extends RealType< T > >
+{
+	public enum Interpolation
+	{
+		NEAREST,
+		TRILINEAR
+	}
+
+	/**
+	 * Origin and in-plane step vectors of the target plane in zero-min source
+	 * coordinates.
+	 */
+	protected static class Plane
+	{
+		final double[] origin = new double[ 3 ];
+
+		final double[] stepX = new double[ 3 ];
+
+		final double[] stepY = new double[ 3 ];
+	}
+
+	protected final RandomAccessibleInterval< T > source;
+
+	protected final Interpolation interpolation;
+
+	protected final long[] min = new long[ 3 ];
+
+	protected final long[] max = new long[ 3 ];
+
+	protected volatile Plane plane;
+
+	/**
+	 * @param source
+	 *            the 3D source
+	 * @param interpolation
+	 *            the interpolation kernel
+	 */
+	public AffineSliceSampler( final RandomAccessibleInterval< T > source, final Interpolation interpolation )
+	{
+		assert source.numDimensions() == 3 : "Source must be 3D.";
+
+		this.source = source;
+		this.interpolation = interpolation;
+		source.min( min );
+		source.max( max );
+		setTransform( new AffineTransform3D() );
+	}
+
+	/**
+	 * Set the transformation from source to target coordinates.  The target
+	 * plane is z=0.
+	 *
+	 * @param sourceToTarget
+	 *            the transformation
+	 */
+	public void setTransform( final AffineTransform3D sourceToTarget )
+	{
+		final Plane plane = new Plane();
+		final AffineTransform3D targetToSource = sourceToTarget.inverse();
+		targetToSource.apply( new double[ 3 ], plane.origin );
+		final RealLocalizable dx = targetToSource.d( 0 );
+		final RealLocalizable dy = targetToSource.d( 1 );
+		for ( int d = 0; d < 3; ++d )
+		{
+			plane.origin[ d ] -= min[ d ];
+			plane.stepX[ d ] = dx.getDoublePosition( d );
+			plane.stepY[ d ] = dy.getDoublePosition( d );
+		}
+		this.plane = plane;
+	}
+
+	/**
+	 * Sample a rectangle of the target plane.
+	 *
+	 * @param minX
+	 *            min x of the rectangle in target coordinates
+	 * @param minY
+	 *            min y of the rectangle in target coordinates
+	 * @param width
+	 *            width of the rectangle
+	 * @param height
+	 *            height of the rectangle
+	 * @param target
+	 *            the target array, row by row, of length {@code >=}
+	 *            width&times;height
+	 * @param background
+	 *            value for pixels outside of the source
+	 */
+	public void sample( final long minX, final long minY, final int width, final int height, final float[] target, final float background )
+	{
+		final Plane plane = this.plane;
+		final Volume volume = volume();
+		final double[] p = new double[ 3 ];
+		final int[] range = new int[ 2 ];
+		final double[] row = new double[ width ];
+		for ( int y = 0, i = 0; y < height; ++y )
+		{
+			rowStart( plane, minX, minY + y, p );
+			fastRange( plane, p, width, range );
+			volume.sampleRow( p, plane.stepX, width, range, row, background );
+			for ( int x = 0; x < width; ++x, ++i )
+				target[ i ] = ( float )row[ x ];
+		}
+	}
+
+	/**
+	 * Sample a rectangle of the target plane into integers.  Nearest neighbor
+	 * samples of integer sources are copied exactly, interpolated values and
+	 * values of real sources are rounded to the nearest integer.  Values of
+	 * unsigned 32 bit and 64 bit sources keep their lower 32 bits, use
+	 * {@link #sample(long, long, int, int, long[], long)} for labels that do
+	 * not fit into an int.
+	 *
+	 * @param minX
+	 *            min x of the rectangle in target coordinates
+	 * @param minY
+	 *            min y of the rectangle in target coordinates
+	 * @param width
+	 *            width of the rectangle
+	 * @param height
+	 *            height of the rectangle
+	 * @param target
+	 *            the target array, row by row, of length {@code >=}
+	 *            width&times;height
+	 * @param background
+	 *            value for pixels outside of the source
+	 */
+	public void sample( final long minX, final long minY, final int width, final int height, final int[] target, final int background )
+	{
+		final Plane plane = this.plane;
+		final Volume volume = volume();
+		final double[] p = new double[ 3 ];
+		final int[] range = new int[ 2 ];
+		final long[] row = new long[ width ];
+		for ( int y = 0, i = 0; y < height; ++y )
+		{
+			rowStart( plane, minX, minY + y, p );
+			fastRange( plane, p, width, range );
+			volume.sampleRow( p, plane.stepX, width, range, row, background );
+			for ( int x = 0; x < width; ++x, ++i )
+				target[ i ] = ( int )row[ x ];
+		}
+	}
+
+	/**
+	 * Sample a rectangle of the target plane into longs.  Nearest neighbor
+	 * samples of integer sources are copied exactly, interpolated values and
+	 * values of real sources are rounded to the nearest integer.
+	 *
+	 * @param minX
+	 *            min x of the rectangle in target coordinates
+	 * @param minY
+	 *            min y of the rectangle in target coordinates
+	 * @param width
+	 *            width of the rectangle
+	 * @param height
+	 *            height of the rectangle
+	 * @param target
+	 *            the target array, row by row, of length {@code >=}
+	 *            width&times;height
+	 * @param background
+	 *            value for pixels outside of the source
+	 */
+	public void sample( final long minX, final long minY, final int width, final int height, final long[] target, final long background )
+	{
+		final Plane plane = this.plane;
+		final Volume volume = volume();
+		final double[] p = new double[ 3 ];
+		final int[] range = new int[ 2 ];
+		final long[] row = new long[ width ];
+		for ( int y = 0, i = 0; y < height; ++y )
+		{
+			rowStart( plane, minX, minY + y, p );
+			fastRange( plane, p, width, range );
+			volume.sampleRow( p, plane.stepX, width, range, row, background );
+			System.arraycopy( row, 0, target, i, width );
+			i += width;
+		}
+	}
+
+	protected static void rowStart( final Plane plane, final long x, final long y, final double[] p )
+	{
+		for ( int d = 0; d < 3; ++d )
+			p[ d ] = plane.origin[ d ] + x * plane.stepX[ d ] + y * plane.stepY[ d ];
+	}
+
+	/**
+	 * Compute the range [range[0], range[1]) of pixels in a row starting at
+	 * p whose interpolation kernel is inside of the source.  The range is
+	 * shrunk by one pixel on both ends to be robust against rounding errors.
+	 */
+	protected void fastRange( final Plane plane, final double[] p, final int width, final int[] range )
+	{
+		double t0 = 0;
+		double t1 = width - 1;
+		final double margin = interpolation == Interpolation.NEAREST ? 0.5 : 0;
+		for ( int d = 0; d < 3 && t0 <= t1; ++d )
+		{
+			final double lo = -margin;
+			final double hi = max[ d ] - min[ d ] + margin - ( interpolation == Interpolation.NEAREST ? 0 : 1 );
+			final double s = plane.stepX[ d ];
+			if ( s == 0 )
+			{
+				if ( p[ d ] < lo || p[ d ] >= hi )
+					t0 = t1 + 1;
+			}
+			else
+			{
+				final double a = ( lo - p[ d ] ) / s;
+				final double b = ( hi - p[ d ] ) / s;
+				t0 = Math.max( t0, Math.min( a, b ) );
+				t1 = Math.min( t1, Math.max( a, b ) );
+			}
+		}
+		if ( t0 > t1 )
+		{
+			range[ 0 ] = 0;
+			range[ 1 ] = 0;
+		}
+		else
+		{
+			range[ 0 ] = ( int )Math.ceil( t0 ) + 1;
+			range[ 1 ] = Math.max( range[ 0 ], ( int )Math.floor( t1 ) );
+		}
+	}
+
+	protected Volume volume()
+	{
+		final T type = source.getType();
+		final boolean unsigned = type instanceof UnsignedByteType || type instanceof UnsignedShortType || type instanceof UnsignedIntType;
+		if ( isPrimitive( type ) )
+		{
+			if ( source instanceof ArrayImg )
+			{
+				final Object data = ( ( ArrayImg< ?, ? > )source ).update( null );
+				if ( data instanceof ArrayDataAccess )
+				{
+					final Storage storage = storage( ( ( ArrayDataAccess< ? > )data ).getCurrentStorageArray(), unsigned );
+					if ( storage != null )
+						return new StorageVolume( storage );
+				}
+			}
+			else if ( source instanceof AbstractCellImg )
+				return new StorageVolume( ( AbstractCellImg< ?, ?, ?, ? > )source, unsigned );
+		}
+		return new AccessVolume();
+	}
+
+	protected static boolean isPrimitive( final RealType< ? > type )
+	{
+		final Class< ? > c = type.getClass();
+		return c == UnsignedByteType.class || c == ByteType.class ||
+				c == UnsignedShortType.class || c == ShortType.class ||
+				c == UnsignedIntType.class || c == IntType.class ||
+				c == LongType.class || c == FloatType.class || c == DoubleType.class;
+	}
+
+	/**
+	 * Read access to a flat 3D block of voxels.  The gather methods copy the
+	 * voxels at a list of indices in one loop that is specialized for the
+	 * storage type.
+	 */
+	protected static abstract class Storage
+	{
+		abstract double get( int i );
+
+		abstract long getLong( int i );
+
+		/**
+		 * Set out[offset + k] to the voxel at index[k] for k in [from, to).
+		 */
+		abstract void gather( int[] index, int from, int to, double[] out, int offset );
+
+		/**
+		 * Set out[offset + k] to the voxel at index[k] for k in [from, to).
+		 */
+		abstract void gatherLong( int[] index, int from, int to, long[] out, int offset );
+	}
+
+	protected static Storage storage( final Object array, final boolean unsigned )
+	{
+		if ( array instanceof byte[] )
+			return unsigned ? new UnsignedByteStorage( ( byte[] )array ) : new ByteStorage( ( byte[] )array );
+		if ( array instanceof short[] )
+			return unsigned ? new UnsignedShortStorage( ( short[] )array ) : new ShortStorage( ( short[] )array );
+		if ( array instanceof int[] )
+			return unsigned ? new UnsignedIntStorage( ( int[] )array ) : new IntStorage( ( int[] )array );
+		if ( array instanceof long[] )
+			return new LongStorage( ( long[] )array );
+		if ( array instanceof float[] )
+			return new FloatStorage( ( float[] )array );
+		if ( array instanceof double[] )
+			return new DoubleStorage( ( double[] )array );
+		return null;
+	}
+
+	static final class ByteStorage extends Storage
+	{
+		final byte[] a;
+
+		ByteStorage( final byte[] a )
+		{
+			this.a = a;
+		}
+
+		@Override
+		double get( final int i )
+		{
+			return a[ i ];
+		}
+
+		@Override
+		long getLong( final int i )
+		{
+			return a[ i ];
+		}
+
+		@Override
+		void gather( final int[] index, final int from, final int to, final double[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = a[ index[ k ] ];
+		}
+
+		@Override
+		void gatherLong( final int[] index, final int from, final int to, final long[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = a[ index[ k ] ];
+		}
+	}
+
+	static final class UnsignedByteStorage extends Storage
+	{
+		final byte[] a;
+
+		UnsignedByteStorage( final byte[] a )
+		{
+			this.a = a;
+		}
+
+		@Override
+		double get( final int i )
+		{
+			return a[ i ] & 0xff;
+		}
+
+		@Override
+		long getLong( final int i )
+		{
+			return a[ i ] & 0xff;
+		}
+
+		@Override
+		void gather( final int[] index, final int from, final int to, final double[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = a[ index[ k ] ] & 0xff;
+		}
+
+		@Override
+		void gatherLong( final int[] index, final int from, final int to, final long[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = a[ index[ k ] ] & 0xff;
+		}
+	}
+
+	static final class ShortStorage extends Storage
+	{
+		final short[] a;
+
+		ShortStorage( final short[] a )
+		{
+			this.a = a;
+		}
+
+		@Override
+		double get( final int i )
+		{
+			return a[ i ];
+		}
+
+		@Override
+		long getLong( final int i )
+		{
+			return a[ i ];
+		}
+
+		@Override
+		void gather( final int[] index, final int from, final int to, final double[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = a[ index[ k ] ];
+		}
+
+		@Override
+		void gatherLong( final int[] index, final int from, final int to, final long[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = a[ index[ k ] ];
+		}
+	}
+
+	static final class UnsignedShortStorage extends Storage
+	{
+		final short[] a;
+
+		UnsignedShortStorage( final short[] a )
+		{
+			this.a = a;
+		}
+
+		@Override
+		double get( final int i )
+		{
+			return a[ i ] & 0xffff;
+		}
+
+		@Override
+		long getLong( final int i )
+		{
+			return a[ i ] & 0xffff;
+		}
+
+		@Override
+		void gather( final int[] index, final int from, final int to, final double[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = a[ index[ k ] ] & 0xffff;
+		}
+
+		@Override
+		void gatherLong( final int[] index, final int from, final int to, final long[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = a[ index[ k ] ] & 0xffff;
+		}
+	}
+
+	static final class IntStorage extends Storage
+	{
+		final int[] a;
+
+		IntStorage( final int[] a )
+		{
+			this.a = a;
+		}
+
+		@Override
+		double get( final int i )
+		{
+			return a[ i ];
+		}
+
+		@Override
+		long getLong( final int i )
+		{
+			return a[ i ];
+		}
+
+		@Override
+		void gather( final int[] index, final int from, final int to, final double[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = a[ index[ k ] ];
+		}
+
+		@Override
+		void gatherLong( final int[] index, final int from, final int to, final long[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = a[ index[ k ] ];
+		}
+	}
+
+	static final class UnsignedIntStorage extends Storage
+	{
+		final int[] a;
+
+		UnsignedIntStorage( final int[] a )
+		{
+			this.a = a;
+		}
+
+		@Override
+		double get( final int i )
+		{
+			return a[ i ] & 0xffffffffL;
+		}
+
+		@Override
+		long getLong( final int i )
+		{
+			return a[ i ] & 0xffffffffL;
+		}
+
+		@Override
+		void gather( final int[] index, final int from, final int to, final double[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = a[ index[ k ] ] & 0xffffffffL;
+		}
+
+		@Override
+		void gatherLong( final int[] index, final int from, final int to, final long[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = a[ index[ k ] ] & 0xffffffffL;
+		}
+	}
+
+	static final class LongStorage extends Storage
+	{
+		final long[] a;
+
+		LongStorage( final long[] a )
+		{
+			this.a = a;
+		}
+
+		@Override
+		double get( final int i )
+		{
+			return a[ i ];
+		}
+
+		@Override
+		long getLong( final int i )
+		{
+			return a[ i ];
+		}
+
+		@Override
+		void gather( final int[] index, final int from, final int to, final double[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = a[ index[ k ] ];
+		}
+
+		@Override
+		void gatherLong( final int[] index, final int from, final int to, final long[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = a[ index[ k ] ];
+		}
+	}
+
+	static final class FloatStorage extends Storage
+	{
+		final float[] a;
+
+		FloatStorage( final float[] a )
+		{
+			this.a = a;
+		}
+
+		@Override
+		double get( final int i )
+		{
+			return a[ i ];
+		}
+
+		@Override
+		long getLong( final int i )
+		{
+			return Math.round( ( double )a[ i ] );
+		}
+
+		@Override
+		void gather( final int[] index, final int from, final int to, final double[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = a[ index[ k ] ];
+		}
+
+		@Override
+		void gatherLong( final int[] index, final int from, final int to, final long[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = Math.round( ( double )a[ index[ k ] ] );
+		}
+	}
+
+	static final class DoubleStorage extends Storage
+	{
+		final double[] a;
+
+		DoubleStorage( final double[] a )
+		{
+			this.a = a;
+		}
+
+		@Override
+		double get( final int i )
+		{
+			return a[ i ];
+		}
+
+		@Override
+		long getLong( final int i )
+		{
+			return Math.round( a[ i ] );
+		}
+
+		@Override
+		void gather( final int[] index, final int from, final int to, final double[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = a[ index[ k ] ];
+		}
+
+		@Override
+		void gatherLong( final int[] index, final int from, final int to, final long[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = Math.round( a[ index[ k ] ] );
+		}
+	}
+
+	/**
+	 * Reads a cell without array storage through a {@link RandomAccess} into
+	 * the source.
+	 */
+	protected class AccessStorage extends Storage
+	{
+		final RandomAccess< T > access;
+
+		final boolean integer = source.getType() instanceof IntegerType;
+
+		final long[] cellMin;
+
+		final long sx, sxy;
+
+		AccessStorage( final RandomAccess< T > access, final long[] cellMin, final long sx, final long sxy )
+		{
+			this.access = access;
+			this.cellMin = cellMin.clone();
+			this.sx = sx;
+			this.sxy = sxy;
+		}
+
+		T at( final int i )
+		{
+			final long z = i / sxy;
+			final long r = i - z * sxy;
+			final long y = r / sx;
+			final long x = r - y * sx;
+			return access.setPositionAndGet( cellMin[ 0 ] + x + min[ 0 ], cellMin[ 1 ] + y + min[ 1 ], cellMin[ 2 ] + z + min[ 2 ] );
+		}
+
+		@Override
+		double get( final int i )
+		{
+			return at( i ).getRealDouble();
+		}
+
+		@Override
+		long getLong( final int i )
+		{
+			final T t = at( i );
+			return integer ? ( ( IntegerType< ? > )t ).getIntegerLong() : Math.round( t.getRealDouble() );
+		}
+
+		@Override
+		void gather( final int[] index, final int from, final int to, final double[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = get( index[ k ] );
+		}
+
+		@Override
+		void gatherLong( final int[] index, final int from, final int to, final long[] out, final int offset )
+		{
+			for ( int k = from; k < to; ++k )
+				out[ offset + k ] = getLong( index[ k ] );
+		}
+	}
+
+	/**
+	 * A 3D source with zero min that is sampled with the selected
+	 * interpolation kernel.
+	 */
+	protected abstract class Volume
+	{
+		/**
+		 * Read a voxel, the voxel must be inside of the source.
+		 */
+		protected abstract double get( long x, long y, long z );
+
+		/**
+		 * Read a voxel as an integer, the voxel must be inside of the source.
+		 */
+		protected abstract long getLong( long x, long y, long z );
+
+		protected boolean isInside( final long x, final long y, final long z )
+		{
+			return x >= 0 && y >= 0 && z >= 0 && x <= max[ 0 ] - min[ 0 ] && y <= max[ 1 ] - min[ 1 ] && z <= max[ 2 ] - min[ 2 ];
+		}
+
+		/**
+		 * Sample pixels [range[0], range[1]) of a row starting at p, whose
+		 * interpolation kernels are inside of the source, into out.
+		 */
+		protected void sampleInside( final double[] p, final double[] step, final int[] range, final double[] out )
+		{
+			for ( int x = range[ 0 ]; x < range[ 1 ]; ++x )
+				out[ x ] = sample( p[ 0 ] + x * step[ 0 ], p[ 1 ] + x * step[ 1 ], p[ 2 ] + x * step[ 2 ], 0, false );
+		}
+
+		/**
+		 * Sample pixels [range[0], range[1]) of a row starting at p, whose
+		 * interpolation kernels are inside of the source, into out.
+		 */
+		protected void sampleInside( final double[] p, final double[] step, final int[] range, final long[] out )
+		{
+			for ( int x = range[ 0 ]; x < range[ 1 ]; ++x )
+				out[ x ] = sampleLong( p[ 0 ] + x * step[ 0 ], p[ 1 ] + x * step[ 1 ], p[ 2 ] + x * step[ 2 ], 0, false );
+		}
+
+		/**
+		 * Sample a row starting at p.  Pixels outside of the range are
+		 * sampled with bounds checks.
+		 */
+		protected void sampleRow( final double[] p, final double[] step, final int width, final int[] range, final double[] out, final double background )
+		{
+			for ( int x = 0; x < width; ++x )
+				if ( x < range[ 0 ] || x >= range[ 1 ] )
+					out[ x ] = sample( p[ 0 ] + x * step[ 0 ], p[ 1 ] + x * step[ 1 ], p[ 2 ] + x * step[ 2 ], background, true );
+			if ( range[ 0 ] < range[ 1 ] )
+				sampleInside( p, step, range, out );
+		}
+
+		/**
+		 * Sample a row starting at p.  Pixels outside of the range are
+		 * sampled with bounds checks.
+		 */
+		protected void sampleRow( final double[] p, final double[] step, final int width, final int[] range, final long[] out, final long background )
+		{
+			for ( int x = 0; x < width; ++x )
+				if ( x < range[ 0 ] || x >= range[ 1 ] )
+					out[ x ] = sampleLong( p[ 0 ] + x * step[ 0 ], p[ 1 ] + x * step[ 1 ], p[ 2 ] + x * step[ 2 ], background, true );
+			if ( range[ 0 ] < range[ 1 ] )
+				sampleInside( p, step, range, out );
+		}
+
+		protected double get( final long x, final long y, final long z, final double background, final boolean checked )
+		{
+			return checked && !isInside( x, y, z ) ? background : get( x, y, z );
+		}
+
+		protected double sample( final double x, final double y, final double z, final double background, final boolean checked )
+		{
+			if ( interpolation == Interpolation.NEAREST )
+				return get( ( long )Math.floor( x + 0.5 ), ( long )Math.floor( y + 0.5 ), ( long )Math.floor( z + 0.5 ), background, checked );
+
+			final long x0 = ( long )Math.floor( x );
+			final long y0 = ( long )Math.floor( y );
+			final long z0 = ( long )Math.floor( z );
+			return trilinear( x - x0, y - y0, z - z0,
+					get( x0, y0, z0, background, checked ),
+					get( x0 + 1, y0, z0, background, checked ),
+					get( x0, y0 + 1, z0, background, checked ),
+					get( x0 + 1, y0 + 1, z0, background, checked ),
+					get( x0, y0, z0 + 1, background, checked ),
+					get( x0 + 1, y0, z0 + 1, background, checked ),
+					get( x0, y0 + 1, z0 + 1, background, checked ),
+					get( x0 + 1, y0 + 1, z0 + 1, background, checked ) );
+		}
+
+		protected long sampleLong( final double x, final double y, final double z, final long background, final boolean checked )
+		{
+			if ( interpolation == Interpolation.NEAREST )
+			{
+				final long xi = ( long )Math.floor( x + 0.5 );
+				final long yi = ( long )Math.floor( y + 0.5 );
+				final long zi = ( long )Math.floor( z + 0.5 );
+				return checked && !isInside( xi, yi, zi ) ? background : getLong( xi, yi, zi );
+			}
+			return Math.round( sample( x, y, z, background, checked ) );
+		}
+	}
+
+	protected static double trilinear(
+			final double fx, final double fy, final double fz,
+			final double v000, final double v100, final double v010, final double v110,
+			final double v001, final double v101, final double v011, final double v111 )
+	{
+		final double v00 = v000 + fx * ( v100 - v000 );
+		final double v10 = v010 + fx * ( v110 - v010 );
+		final double v01 = v001 + fx * ( v101 - v001 );
+		final double v11 = v011 + fx * ( v111 - v011 );
+		final double v0 = v00 + fy * ( v10 - v00 );
+		final double v1 = v01 + fy * ( v11 - v01 );
+		return v0 + fz * ( v1 - v0 );
+	}
+
+	/**
+	 * A volume backed by the {@link Storage} of an {@link ArrayImg}, treated
+	 * as a single cell, or the cells of an {@link AbstractCellImg}.
+	 */
+	protected class StorageVolume extends Volume
+	{
+		final RandomAccess< ? extends Cell< ? > > cellsAccess;
+
+		final boolean unsigned;
+
+		final long cw, ch, cd;
+
+		final long[] cellMin = new long[ 3 ];
+
+		long gx = -1, gy = -1, gz = -1;
+
+		long cellSx, cellSxy;
+
+		Storage storage;
+
+		/** access for cells without array storage */
+		RandomAccess< T > cellDataAccess = null;
+
+		/* row buffers */
+
+		int[] indices = new int[ 0 ];
+
+		long[] x0 = new long[ 0 ], y0 = new long[ 0 ], z0 = new long[ 0 ];
+
+		double[] fx = new double[ 0 ], fy = new double[ 0 ], fz = new double[ 0 ];
+
+		double[] corners = new double[ 0 ];
+
+		double[] values = new double[ 0 ];
+
+		StorageVolume( final Storage storage )
+		{
+			cellsAccess = null;
+			unsigned = false;
+			cw = ch = cd = Long.MAX_VALUE;
+			gx = gy = gz = 0;
+			cellSx = source.dimension( 0 );
+			cellSxy = cellSx * source.dimension( 1 );
+			this.storage = storage;
+		}
+
+		StorageVolume( final AbstractCellImg< ?, ?, ?, ? > img, final boolean unsigned )
+		{
+			cellsAccess = img.getCells().randomAccess();
+			this.unsigned = unsigned;
+			final CellGrid grid = img.getCellGrid();
+			cw = grid.cellDimension( 0 );
+			ch = grid.cellDimension( 1 );
+			cd = grid.cellDimension( 2 );
+		}
+
+		/**
+		 * Make the cell that contains a voxel current and return the index of
+		 * the voxel in its {@link #storage}.
+		 */
+		protected int index( final long x, final long y, final long z )
+		{
+			final long cx = x / cw;
+			final long cy = y / ch;
+			final long cz = z / cd;
+			if ( cx != gx || cy != gy || cz != gz )
+			{
+				gx = cx;
+				gy = cy;
+				gz = cz;
+				final Cell< ? > cell = cellsAccess.setPositionAndGet( cx, cy, cz );
+				cell.min( cellMin );
+				cellSx = cell.dimension( 0 );
+				cellSxy = cellSx * cell.dimension( 1 );
+				final Object data = cell.getData();
+				storage = data instanceof ArrayDataAccess ? storage( ( ( ArrayDataAccess< ? > )data ).getCurrentStorageArray(), unsigned ) : null;
+				if ( storage == null )
+				{
+					if ( cellDataAccess == null )
+						cellDataAccess = source.randomAccess();
+					storage = new AccessStorage( cellDataAccess, cellMin, cellSx, cellSxy );
+				}
+			}
+			return ( int )( ( x - cellMin[ 0 ] ) + ( y - cellMin[ 1 ] ) * cellSx + ( z - cellMin[ 2 ] ) * cellSxy );
+		}
+
+		@Override
+		protected double get( final long x, final long y, final long z )
+		{
+			final int i = index( x, y, z );
+			return storage.get( i );
+		}
+
+		@Override
+		protected long getLong( final long x, final long y, final long z )
+		{
+			final int i = index( x, y, z );
+			return storage.getLong( i );
+		}
+
+		protected void ensureCapacity( final int n )
+		{
+			if ( indices.length < n )
+			{
+				indices = new int[ n ];
+				x0 = new long[ n ];
+				y0 = new long[ n ];
+				z0 = new long[ n ];
+				fx = new double[ n ];
+				fy = new double[ n ];
+				fz = new double[ n ];
+				corners = interpolation == Interpolation.NEAREST ? corners : new double[ 8 * n ];
+			}
+		}
+
+		/**
+		 * Compute the voxel positions of pixels [range[0], range[1]) of a row
+		 * starting at p, rounded to the nearest voxel or floored with
+		 * fractions for trilinear interpolation.
+		 */
+		protected void positions( final double[] p, final double[] step, final int[] range )
+		{
+			ensureCapacity( range[ 1 ] - range[ 0 ] );
+			final double offset = interpolation == Interpolation.NEAREST ? 0.5 : 0;
+			for ( int x = range[ 0 ], k = 0; x < range[ 1 ]; ++x, ++k )
+			{
+				final double px = p[ 0 ] + x * step[ 0 ] + offset;
+				final double py = p[ 1 ] + x * step[ 1 ] + offset;
+				final double pz = p[ 2 ] + x * step[ 2 ] + offset;
+				x0[ k ] = ( long )Math.floor( px );
+				y0[ k ] = ( long )Math.floor( py );
+				z0[ k ] = ( long )Math.floor( pz );
+				fx[ k ] = px - x0[ k ];
+				fy[ k ] = py - y0[ k ];
+				fz[ k ] = pz - z0[ k ];
+			}
+		}
+
+		/**
+		 * Gather the voxels at the positions computed by
+		 * {@link #positions(double[], double[], int[])}, shifted by a corner
+		 * offset, into out[offset + k], one run of voxels in the same cell at
+		 * a time.
+		 */
+		protected void gather( final int count, final int dx, final int dy, final int dz, final double[] out, final long[] outLong, final int offset )
+		{
+			Storage current = null;
+			int from = 0;
+			for ( int k = 0; k < count; ++k )
+			{
+				final int i = index( x0[ k ] + dx, y0[ k ] + dy, z0[ k ] + dz );
+				if ( storage != current )
+				{
+					if ( current != null )
+					{
+						if ( out == null )
+							current.gatherLong( indices, from, k, outLong, offset );
+						else
+							current.gather( indices, from, k, out, offset );
+					}
+					current = storage;
+					from = k;
+				}
+				indices[ k ] = i;
+			}
+			if ( out == null )
+				current.gatherLong( indices, from, count, outLong, offset );
+			else
+				current.gather( indices, from, count, out, offset );
+		}
+
+		@Override
+		protected void sampleInside( final double[] p, final double[] step, final int[] range, final double[] out )
+		{
+			positions( p, step, range );
+			final int count = range[ 1 ] - range[ 0 ];
+			if ( interpolation == Interpolation.NEAREST )
+			{
+				gather( count, 0, 0, 0, out, null, range[ 0 ] );
+				return;
+			}
+
+			for ( int c = 0; c < 8; ++c )
+				gather( count, c & 1, ( c >> 1 ) & 1, c >> 2, corners, null, c * count );
+			for ( int k = 0; k < count; ++k )
+				out[ range[ 0 ] + k ] = trilinear( fx[ k ], fy[ k ], fz[ k ],
+						corners[ k ],
+						corners[ count + k ],
+						corners[ 2 * count + k ],
+						corners[ 3 * count + k ],
+						corners[ 4 * count + k ],
+						corners[ 5 * count + k ],
+						corners[ 6 * count + k ],
+						corners[ 7 * count + k ] );
+		}
+
+		@Override
+		protected void sampleInside( final double[] p, final double[] step, final int[] range, final long[] out )
+		{
+			if ( interpolation == Interpolation.NEAREST )
+			{
+				positions( p, step, range );
+				gather( range[ 1 ] - range[ 0 ], 0, 0, 0, null, out, range[ 0 ] );
+			}
+			else
+			{
+				if ( values.length < range[ 1 ] )
+					values = new double[ range[ 1 ] ];
+				sampleInside( p, step, range, values );
+				for ( int x = range[ 0 ]; x < range[ 1 ]; ++x )
+					out[ x ] = Math.round( values[ x ] );
+			}
+		}
+	}
+
+	/**
+	 * Reads any source through a {@link RandomAccess}.
+	 */
+	protected class AccessVolume extends Volume
+	{
+		final RandomAccess< T > access = source.randomAccess();
+
+		final boolean integer = source.getType() instanceof IntegerType;
+
+		@Override
+		protected double get( final long x, final long y, final long z )
+		{
+			return access.setPositionAndGet( x + min[ 0 ], y + min[ 1 ], z + min[ 2 ] ).getRealDouble();
+		}
+
+		@Override
+		protected long getLong( final long x, final long y, final long z )
+		{
+			final T t = access.setPositionAndGet( x + min[ 0 ], y + min[ 1 ], z + min[ 2 ] );
+			return integer ? ( ( IntegerType< ? > )t ).getIntegerLong() : Math.round( t.getRealDouble() );
+		}
+	}
+}
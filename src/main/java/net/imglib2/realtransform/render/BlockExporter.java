@@ -0,0 +1,384 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.realtransform.InvertibleRealTransform;
+import net.imglib2.realtransform.RealViews;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedLongType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+/**
+ * Exports an interval of a {@link RandomAccessible}, typically a transformed
+ * view created with
+ * {@link RealViews#transform(RealRandomAccessible, InvertibleRealTransform)}
+ * or {@link RealViews#affine}, into an uncompressed N5 dataset on the local
+ * file system, block by block.
+ * <p>
+ * The dataset directory contains an <code>attributes.json</code> with
+ * dimensions, block size, data type and raw compression, and one file per
+ * block at <code>dataset/<em>x</em>/<em>y</em>/<em>z</em>/...</code>
+ * for grid position (<em>x</em>, <em>y</em>, <em>z</em>, ...).  Each block
+ * file starts with the N5 header (mode 0, number of dimensions and the size
+ * of the possibly truncated block) followed by the big-endian samples in
+ * flat iteration order.
+ * <p>
+ * Blocks are computed in parallel by a pool of worker threads and handed to
+ * the calling thread, which writes them, through a bounded queue.  Workers
+ * block when the queue is full, so at most <em>queue capacity</em> +
+ * <em>number of workers</em> encoded blocks are held in memory at any time,
+ * and computation continues while blocks are written.  Supported types are
+ * the signed and unsigned 8, 16, 32 and 64 bit integer types,
+ * {@link FloatType} and {@link DoubleType}.
+ *
+ * @param <T> data type
+ */
+public class BlockExporter< T extends NativeType< T > & RealType< T > >
+{
+	/**
+	 * N5 data types.
+	 */
+	protected enum DataType
+	{
+		UINT8( "uint8", 1 ), INT8( "int8", 1 ),
+		UINT16( "uint16", 2 ), INT16( "int16", 2 ),
+		UINT32( "uint32", 4 ), INT32( "int32", 4 ),
+		UINT64( "uint64", 8 ), INT64( "int64", 8 ),
+		FLOAT32( "float32", 4 ), FLOAT64( "float64", 8 );
+
+		final String name;
+
+		final int bytes;
+
+		DataType( final String name, final int bytes )
+		{
+			this.name = name;
+			this.bytes = bytes;
+		}
+
+		static DataType of( final Object type )
+		{
+			if ( type instanceof UnsignedByteType ) return UINT8;
+			if ( type instanceof ByteType ) return INT8;
+			if ( type instanceof UnsignedShortType ) return UINT16;
+			if ( type instanceof ShortType ) return INT16;
+			if ( type instanceof UnsignedIntType ) return UINT32;
+			if ( type instanceof IntType ) return INT32;
+			if ( type instanceof UnsignedLongType ) return UINT64;
+			if ( type instanceof LongType ) return INT64;
+			if ( type instanceof FloatType ) return FLOAT32;
+			if ( type instanceof DoubleType ) return FLOAT64;
+			throw new IllegalArgumentException( "Unsupported type " + type.getClass().getSimpleName() + "." );
+		}
+
+		void put( final ByteBuffer buffer, final RealType< ? > t )
+		{
+			switch ( this )
+			{
+			case UINT8:
+			case INT8:
+				buffer.put( ( byte )t.getRealDouble() );
+				break;
+			case UINT16:
+			case INT16:
+				buffer.putShort( ( short )( int )t.getRealDouble() );
+				break;
+			case UINT32:
+			case INT32:
+				buffer.putInt( ( int )( long )t.getRealDouble() );
+				break;
+			case UINT64:
+				buffer.putLong( ( ( UnsignedLongType )t ).get() );
+				break;
+			case INT64:
+				buffer.putLong( ( ( LongType )t ).get() );
+				break;
+			case FLOAT32:
+				buffer.putFloat( t.getRealFloat() );
+				break;
+			default:
+				buffer.putDouble( t.getRealDouble() );
+			}
+		}
+	}
+
+	/**
+	 * An encoded block and its grid position, or the failure of a worker.
+	 */
+	protected static class EncodedBlock
+	{
+		final long[] gridPosition;
+
+		final byte[] bytes;
+
+		final Throwable failure;
+
+		EncodedBlock( final long[] gridPosition, final byte[] bytes, final Throwable failure )
+		{
+			this.gridPosition = gridPosition;
+			this.bytes = bytes;
+			this.failure = failure;
+		}
+	}
+
+	final protected RandomAccessible< T > source;
+
+	final protected Interval interval;
+
+	final protected int[] blockSize;
+
+	final protected DataType dataType;
+
+	protected int numWorkers = Runtime.getRuntime().availableProcessors();
+
+	protected int queueCapacity = 16;
+
+	protected boolean skipEmptyBlocks = false;
+
+	/**
+	 * @param source
+	 *            the source
+	 * @param interval
+	 *            the interval to export, its min is stored at position 0
+	 *            of the dataset
+	 * @param blockSize
+	 *            the block size, the last entry is used for all remaining
+	 *            dimensions
+	 */
+	public BlockExporter( final RandomAccessible< T > source, final Interval interval, final int... blockSize )
+	{
+		this.source = source;
+		this.interval = interval;
+		this.blockSize = new int[ interval.numDimensions() ];
+		for ( int d = 0; d < this.blockSize.length; ++d )
+			this.blockSize[ d ] = blockSize[ Math.min( d, blockSize.length - 1 ) ];
+		dataType = DataType.of( source.getType() );
+	}
+
+	/**
+	 * Set the number of threads that compute blocks.
+	 *
+	 * @param numWorkers
+	 *            the number of threads
+	 */
+	public void setNumWorkers( final int numWorkers )
+	{
+		this.numWorkers = numWorkers;
+	}
+
+	/**
+	 * Set the maximum number of computed blocks waiting to be written.
+	 *
+	 * @param queueCapacity
+	 *            the capacity
+	 */
+	public void setQueueCapacity( final int queueCapacity )
+	{
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Do not write blocks whose samples are all 0.  N5 readers treat missing
+	 * blocks as filled with 0, so existing files of such blocks are
+	 * deleted.
+	 *
+	 * @param skipEmptyBlocks
+	 *            whether to skip empty blocks
+	 */
+	public void setSkipEmptyBlocks( final boolean skipEmptyBlocks )
+	{
+		this.skipEmptyBlocks = skipEmptyBlocks;
+	}
+
+	/**
+	 * Export all blocks into a dataset directory.  Existing blocks are
+	 * overwritten.
+	 *
+	 * @param dataset
+	 *            the dataset directory, created if it does not exist
+	 * @throws IOException
+	 *             if writing fails or a block could not be computed
+	 */
+	public void export( final Path dataset ) throws IOException
+	{
+		Files.createDirectories( dataset );
+		Files.write( dataset.resolve( "attributes.json" ), attributes().getBytes( StandardCharsets.UTF_8 ) );
+
+		final List< Interval > blocks = TiledRenderer.tiles( interval, blockSize );
+		final BlockingQueue< EncodedBlock > queue = new ArrayBlockingQueue<>( queueCapacity );
+		final AtomicInteger next = new AtomicInteger();
+		final ExecutorService workers = Executors.newFixedThreadPool( numWorkers );
+		try
+		{
+			for ( int i = 0; i < numWorkers; ++i )
+				workers.submit( () -> {
+					for ( int j = next.getAndIncrement(); j < blocks.size(); j = next.getAndIncrement() )
+					{
+						final Interval block = blocks.get( j );
+						EncodedBlock encoded;
+						try
+						{
+							encoded = new EncodedBlock( gridPosition( block ), encode( block ), null );
+						}
+						catch ( final Throwable t )
+						{
+							encoded = new EncodedBlock( null, null, t );
+						}
+						queue.put( encoded );
+					}
+					return null;
+				} );
+
+			for ( int i = 0; i < blocks.size(); ++i )
+			{
+				final EncodedBlock encoded = queue.take();
+				if ( encoded.failure != null )
+					throw new IOException( "Computing a block failed.", encoded.failure );
+				write( dataset, encoded );
+			}
+		}
+		catch ( final InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException( "Export was interrupted.", e );
+		}
+		finally
+		{
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return the content of the N5 <code>attributes.json</code>
+	 */
+	protected String attributes()
+	{
+		final StringBuilder dimensions = new StringBuilder();
+		final StringBuilder blockSizes = new StringBuilder();
+		for ( int d = 0; d < blockSize.length; ++d )
+		{
+			final String separator = d == 0 ? "" : ",";
+			dimensions.append( separator ).append( interval.dimension( d ) );
+			blockSizes.append( separator ).append( blockSize[ d ] );
+		}
+		return "{\"dimensions\":[" + dimensions + "],\"blockSize\":[" + blockSizes +
+				"],\"dataType\":\"" + dataType.name + "\",\"compression\":{\"type\":\"raw\"}}";
+	}
+
+	protected long[] gridPosition( final Interval block )
+	{
+		final long[] gridPosition = new long[ blockSize.length ];
+		for ( int d = 0; d < gridPosition.length; ++d )
+			gridPosition[ d ] = ( block.min( d ) - interval.min( d ) ) / blockSize[ d ];
+		return gridPosition;
+	}
+
+	/**
+	 * Compute and encode one block.
+	 *
+	 * @param block
+	 *            the block
+	 * @return the encoded block including the N5 header or null if the
+	 *         block is empty and empty blocks are skipped
+	 */
+	protected byte[] encode( final Interval block )
+	{
+		final int n = block.numDimensions();
+		long numElements = 1;
+		for ( int d = 0; d < n; ++d )
+			numElements *= block.dimension( d );
+
+		final ByteBuffer buffer = ByteBuffer.allocate( 4 + 4 * n + ( int )numElements * dataType.bytes ).order( ByteOrder.BIG_ENDIAN );
+		buffer.putShort( ( short )0 );
+		buffer.putShort( ( short )n );
+		for ( int d = 0; d < n; ++d )
+			buffer.putInt( ( int )block.dimension( d ) );
+
+		boolean empty = true;
+		final Cursor< T > cursor = Views.flatIterable( Views.interval( source, block ) ).cursor();
+		while ( cursor.hasNext() )
+		{
+			final T t = cursor.next();
+			empty &= t.getRealDouble() == 0;
+			dataType.put( buffer, t );
+		}
+		return empty && skipEmptyBlocks ? null : buffer.array();
+	}
+
+	/**
+	 * Write an encoded block or, if it was skipped because it is empty,
+	 * delete the file of the block left by an earlier export.
+	 */
+	protected void write( final Path dataset, final EncodedBlock encoded ) throws IOException
+	{
+		Path path = dataset;
+		for ( final long p : encoded.gridPosition )
+			path = path.resolve( Long.toString( p ) );
+		if ( encoded.bytes == null )
+			Files.deleteIfExists( path );
+		else
+		{
+			Files.createDirectories( path.getParent() );
+			Files.write( path, encoded.bytes );
+		}
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.realtransform.AffineRandomAccessible;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.type.Type;
+import net.imglib2.view.Views;
+
+/**
+ * Renders the <em>z</em>=0 plane of a 3D {@link RealRandomAccessible}
+ * transformed by a viewer {@link AffineTransform3D} into a 2D frame and
+ * re-renders incrementally when the viewer transform changes.
+ * <p>
+ * The renderer keeps the transform of the last rendered frame.  If the new
+ * transform differs from it only by a translation by whole pixels within the
+ * screen plane, the content of the frame is shifted in place and only the
+ * exposed strips at the borders are rendered.  For any other change, the
+ * whole frame is re-rendered.  Call {@link #invalidate()} if the source
+ * changed such that the next frame is fully re-rendered.
+ * <p>
+ * This class is not thread safe, rendering itself is parallelized with the
+ * {@link Parallelization} task executor of the calling thread.
+ *
+ * @param <T> data type
+ */
+public class IncrementalRenderer< T extends Type< T > >
+{
+	/** tolerance for the comparison of transforms */
+	final static protected double EPS = 1e-9;
+
+	/** number of rows rendered by one parallel task */
+	final static protected int ROWS_PER_TASK = 64;
+
+	final protected RealRandomAccessible< T > source;
+
+	final protected RandomAccessibleInterval< T > frame;
+
+	/** viewer transform of the last frame, null if the frame is invalid */
+	protected AffineTransform3D lastTransform = null;
+
+	/**
+	 * @param source
+	 *            the 3D source
+	 * @param frame
+	 *            the 2D frame in screen coordinates
+	 */
+	public IncrementalRenderer( final RealRandomAccessible< T > source, final RandomAccessibleInterval< T > frame )
+	{
+		assert source.numDimensions() == 3 && frame.numDimensions() == 2;
+
+		this.source = source;
+		this.frame = frame;
+	}
+
+	/**
+	 * @return the frame
+	 */
+	public RandomAccessibleInterval< T > getFrame()
+	{
+		return frame;
+	}
+
+	/**
+	 * Force the next call to {@link #render(AffineTransform3D)} to re-render
+	 * the whole frame.
+	 */
+	public void invalidate()
+	{
+		lastTransform = null;
+	}
+
+	/**
+	 * Render the frame for a viewer transform.
+	 *
+	 * @param viewerTransform
+	 *            transformation from source to screen coordinates
+	 * @return the number of pixels that were rendered
+	 */
+	public long render( final AffineTransform3D viewerTransform )
+	{
+		final long[] shift = lastTransform == null ? null : integerShift( lastTransform, viewerTransform );
+		final RandomAccessible< T > view = Views.hyperSlice(
+				new AffineRandomAccessible<>( source, viewerTransform.inverse().copy() ),
+				2, 0 );
+		lastTransform = viewerTransform.copy();
+
+		if ( shift == null )
+		{
+			render( frame, view );
+			return frame.dimension( 0 ) * frame.dimension( 1 );
+		}
+
+		final long width = frame.dimension( 0 );
+		final long height = frame.dimension( 1 );
+		final long dx = shift[ 0 ];
+		final long dy = shift[ 1 ];
+		if ( Math.abs( dx ) >= width || Math.abs( dy ) >= height )
+		{
+			render( frame, view );
+			return width * height;
+		}
+		if ( dx == 0 && dy == 0 )
+			return 0;
+
+		shift( dx, dy );
+
+		/* exposed rows over the full width, then exposed columns */
+		long rendered = 0;
+		final long minX = frame.min( 0 );
+		final long maxX = frame.max( 0 );
+		long minY = frame.min( 1 );
+		long maxY = frame.max( 1 );
+		if ( dy > 0 )
+		{
+			rendered += render( new FinalInterval( new long[] { minX, minY }, new long[] { maxX, minY + dy - 1 } ), view );
+			minY += dy;
+		}
+		else if ( dy < 0 )
+		{
+			rendered += render( new FinalInterval( new long[] { minX, maxY + dy + 1 }, new long[] { maxX, maxY } ), view );
+			maxY += dy;
+		}
+		if ( dx > 0 )
+			rendered += render( new FinalInterval( new long[] { minX, minY }, new long[] { minX + dx - 1, maxY } ), view );
+		else if ( dx < 0 )
+			rendered += render( new FinalInterval( new long[] { maxX + dx + 1, minY }, new long[] { maxX, maxY } ), view );
+		return rendered;
+	}
+
+	/**
+	 * Find the screen shift from one viewer transform to another.
+	 *
+	 * @return the shift in pixels along x and y if the transforms differ by
+	 *         an integer translation within the screen plane, null otherwise
+	 */
+	protected static long[] integerShift( final AffineTransform3D from, final AffineTransform3D to )
+	{
+		final long[] shift = new long[ 2 ];
+		for ( int r = 0; r < 3; ++r )
+			for ( int c = 0; c < 3; ++c )
+				if ( Math.abs( from.get( r, c ) - to.get( r, c ) ) > EPS )
+					return null;
+
+		if ( Math.abs( from.get( 2, 3 ) - to.get( 2, 3 ) ) > EPS )
+			return null;
+
+		for ( int d = 0; d < 2; ++d )
+		{
+			final double t = to.get( d, 3 ) - from.get( d, 3 );
+			shift[ d ] = Math.round( t );
+			if ( Math.abs( t - shift[ d ] ) > EPS )
+				return null;
+		}
+		return shift;
+	}
+
+	/**
+	 * Move the content of the frame by (dx, dy) pixels.  Rows and columns are
+	 * traversed away from the direction of the shift such that no pixel is
+	 * overwritten before it has been moved.
+	 */
+	protected void shift( final long dx, final long dy )
+	{
+		final RandomAccess< T > from = frame.randomAccess();
+		final RandomAccess< T > to = frame.randomAccess();
+		final long width = frame.dimension( 0 ) - Math.abs( dx );
+		final long height = frame.dimension( 1 ) - Math.abs( dy );
+		final long toX = dx > 0 ? frame.max( 0 ) : frame.min( 0 );
+		final int stepX = dx > 0 ? -1 : 1;
+		final long toY = dy > 0 ? frame.max( 1 ) : frame.min( 1 );
+		final long stepY = dy > 0 ? -1 : 1;
+		for ( long y = 0; y < height; ++y )
+		{
+			to.setPosition( toX, 0 );
+			to.setPosition( toY + y * stepY, 1 );
+			from.setPosition( toX - dx, 0 );
+			from.setPosition( toY + y * stepY - dy, 1 );
+			for ( long x = 0; x < width; ++x )
+			{
+				to.get().set( from.get() );
+				to.move( stepX, 0 );
+				from.move( stepX, 0 );
+			}
+		}
+	}
+
+	/**
+	 * Render an interval of the frame in parallel blocks of rows.
+	 *
+	 * @return the number of rendered pixels
+	 */
+	protected long render( final Interval interval, final RandomAccessible< T > view )
+	{
+		Parallelization.getTaskExecutor().forEach(
+				TiledRenderer.tiles( interval, ( int )Math.min( Integer.MAX_VALUE, interval.dimension( 0 ) ), ROWS_PER_TASK ),
+				tile -> TiledRenderer.copy( tile, view, frame ) );
+		return interval.dimension( 0 ) * interval.dimension( 1 );
+	}
+}
@@ -0,0 +1,448 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import Jama.Matrix;
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.parallel.TaskExecutor;
+import net.imglib2.realtransform.AffineGet;
+import net.imglib2.realtransform.AffineRandomAccessible;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.transform.integer.MixedTransform;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.MixedTransformView;
+import net.imglib2.view.Views;
+
+/**
+ * Resamples a {@link RandomAccessible} source transformed by an
+ * {@link AffineGet affine transformation} in <em>n</em> one-dimensional
+ * passes, one per axis, in the spirit of shear-warp and Catmull-Smith
+ * multi-pass warping.
+ * <p>
+ * Pass <em>k</em> replaces the source coordinate of one axis by the target
+ * coordinate of that axis.  The intermediate coordinates are a mix of target
+ * coordinates for axes that have been processed and source coordinates for
+ * axes that have not been processed yet.  Within each pass, the source
+ * coordinate of the processed axis is an affine function of the
+ * intermediate coordinates, so each pass is a linear 1D resampling along one
+ * axis with constant step.  Intermediate results are kept in flat
+ * <code>double[]</code> buffers that are traversed in storage order, and each
+ * pass is executed in parallel over lines with the {@link Parallelization}
+ * task executor of the calling thread.  Random access into the source is
+ * replaced by one sequential copy of the required source region.
+ * <p>
+ * The order in which the axes are processed and a permutation of the source
+ * axes applied while copying the source region are chosen per call such that
+ * the total number of intermediate samples is minimal.  Combinations for
+ * which an intermediate mapping is singular are never chosen.  The source
+ * permutation makes rotations by 90&deg; possible, for which every axis
+ * order would be singular otherwise.
+ * <p>
+ * Each pass interpolates linearly, so the result is exact for sources that
+ * are linear functions of the coordinates, but it is not identical to
+ * n-linear interpolation through an {@link AffineRandomAccessible}.
+ * Intermediate buffers cover the axis aligned bounding boxes of the required
+ * samples and must each have fewer than 2<sup>31</sup> elements; render large
+ * targets in blocks, e.g. with {@link TiledRenderer#tiles(Interval, int...)}.
+ *
+ * @param <T> source type
+ */
+public class MultiPassAffineResampler< T extends RealType< T > >
+{
+	final protected RandomAccessible< T > source;
+
+	final protected AffineGet transformToSource;
+
+	/**
+	 * @param source
+	 *            the source, must be defined for all accessed coordinates,
+	 *            e.g. by extending it
+	 * @param transformToSource
+	 *            transformation from target to source coordinates
+	 */
+	public MultiPassAffineResampler( final RandomAccessible< T > source, final AffineGet transformToSource )
+	{
+		assert source.numDimensions() == transformToSource.numTargetDimensions() &&
+				transformToSource.numSourceDimensions() == transformToSource.numTargetDimensions();
+
+		this.source = source;
+		this.transformToSource = transformToSource;
+	}
+
+	/**
+	 * One resampling pass.  The source coordinate along {@link #axis} is
+	 * <code>r &middot; y + c</code> for intermediate coordinates
+	 * <code>y</code> after the pass.
+	 */
+	protected static class Pass
+	{
+		final int axis;
+
+		final double[] r;
+
+		final double c;
+
+		Pass( final int axis, final double[] r, final double c )
+		{
+			this.axis = axis;
+			this.r = r;
+			this.c = c;
+		}
+	}
+
+	/**
+	 * A flat buffer over an interval, dimension 0 is the fastest.
+	 */
+	protected static class Block
+	{
+		final long[] min;
+
+		final int[] dimensions;
+
+		final int[] strides;
+
+		final double[] data;
+
+		Block( final Interval interval )
+		{
+			final int n = interval.numDimensions();
+			final long size = Intervals.numElements( interval );
+			if ( size > Integer.MAX_VALUE - 8 )
+				throw new IllegalArgumentException( "Intermediate buffer " + Intervals.toString( interval ) + " is too large, render in smaller blocks." );
+
+			min = interval.minAsLongArray();
+			dimensions = new int[ n ];
+			strides = new int[ n ];
+			int stride = 1;
+			for ( int d = 0; d < n; ++d )
+			{
+				dimensions[ d ] = ( int )interval.dimension( d );
+				strides[ d ] = stride;
+				stride *= dimensions[ d ];
+			}
+			data = new double[ ( int )size ];
+		}
+	}
+
+	/**
+	 * A permutation of the source axes for the initial copy and the passes
+	 * for the permuted source.
+	 */
+	protected static class Plan
+	{
+		final int[] permutation;
+
+		final Pass[] passes;
+
+		final Interval[] intervals;
+
+		Plan( final int[] permutation, final Pass[] passes, final Interval[] intervals )
+		{
+			this.permutation = permutation;
+			this.passes = passes;
+			this.intervals = intervals;
+		}
+	}
+
+	/**
+	 * Compute the passes for a permutation of the source axes and an axis
+	 * order.
+	 *
+	 * @param permutation
+	 *            axis <em>i</em> of the copied source is source axis
+	 *            <code>permutation[i]</code>
+	 * @param order
+	 *            the axes in processing order
+	 * @return the passes or null if an intermediate mapping is singular
+	 */
+	protected static Pass[] passes( final AffineGet transformToSource, final int[] permutation, final int[] order )
+	{
+		final int n = order.length;
+		final Matrix a = new Matrix( n, n );
+		final double[] b = new double[ n ];
+		for ( int i = 0; i < n; ++i )
+		{
+			for ( int j = 0; j < n; ++j )
+				a.set( i, j, transformToSource.get( permutation[ i ], j ) );
+			b[ i ] = transformToSource.get( permutation[ i ], n );
+		}
+
+		/* intermediate coordinates y = B t + bb for target coordinates t */
+		final Matrix bm = a.copy();
+		final double[] bb = b.clone();
+		final Pass[] passes = new Pass[ n ];
+		for ( int k = 0; k < n; ++k )
+		{
+			final int axis = order[ k ];
+			for ( int j = 0; j < n; ++j )
+				bm.set( axis, j, j == axis ? 1 : 0 );
+			bb[ axis ] = 0;
+
+			if ( Math.abs( bm.det() ) < 1e-12 )
+				return null;
+
+			final Matrix inverse = bm.inverse();
+			final double[] r = new double[ n ];
+			double c = b[ axis ];
+			for ( int j = 0; j < n; ++j )
+			{
+				for ( int i = 0; i < n; ++i )
+					r[ j ] += a.get( axis, i ) * inverse.get( i, j );
+				c -= r[ j ] * bb[ j ];
+			}
+			passes[ k ] = new Pass( axis, r, c );
+		}
+		return passes;
+	}
+
+	/**
+	 * Compute the intervals of all intermediate buffers, from the permuted
+	 * source region (index 0) to the target (index n), by propagating the
+	 * target interval backwards through the passes.
+	 */
+	protected static Interval[] intervals( final Pass[] passes, final Interval target )
+	{
+		final int n = passes.length;
+		final Interval[] intervals = new Interval[ n + 1 ];
+		intervals[ n ] = target;
+		for ( int k = n - 1; k >= 0; --k )
+		{
+			final Pass pass = passes[ k ];
+			final Interval interval = intervals[ k + 1 ];
+			double min = pass.c;
+			double max = pass.c;
+			for ( int d = 0; d < n; ++d )
+			{
+				final double a = pass.r[ d ] * interval.min( d );
+				final double b = pass.r[ d ] * interval.max( d );
+				min += Math.min( a, b );
+				max += Math.max( a, b );
+			}
+			final long[] lo = interval.minAsLongArray();
+			final long[] hi = interval.maxAsLongArray();
+			lo[ pass.axis ] = ( long )Math.floor( min );
+			hi[ pass.axis ] = ( long )Math.floor( max ) + 1;
+			intervals[ k ] = new FinalInterval( lo, hi );
+		}
+		return intervals;
+	}
+
+	/**
+	 * Find the permutation of source axes and the axis order that require
+	 * the fewest intermediate samples.  Permuting the source axes during the
+	 * initial copy makes rotations by 90&deg; possible, for which every
+	 * axis order would be singular otherwise.
+	 *
+	 * @return the plan
+	 */
+	protected static Plan plan( final AffineGet transformToSource, final Interval target )
+	{
+		final int n = target.numDimensions();
+		final ArrayList< int[] > permutations = new ArrayList<>();
+		permutations( new int[ n ], new boolean[ n ], 0, permutations );
+
+		Plan best = null;
+		double bestCost = Double.POSITIVE_INFINITY;
+		for ( final int[] permutation : permutations )
+		{
+			for ( final int[] order : permutations )
+			{
+				final Pass[] passes = passes( transformToSource, permutation, order );
+				if ( passes == null )
+					continue;
+
+				final Interval[] intervals = intervals( passes, target );
+				double cost = 0;
+				for ( int k = 0; k < n; ++k )
+					cost += Intervals.numElements( intervals[ k ] );
+				if ( cost < bestCost )
+				{
+					bestCost = cost;
+					best = new Plan( permutation, passes, intervals );
+				}
+			}
+		}
+		if ( best == null )
+			throw new IllegalArgumentException( "Transformation is singular." );
+
+		return best;
+	}
+
+	private static void permutations( final int[] permutation, final boolean[] used, final int k, final List< int[] > permutations )
+	{
+		if ( k == permutation.length )
+			permutations.add( permutation.clone() );
+		else
+			for ( int d = 0; d < permutation.length; ++d )
+			{
+				if ( used[ d ] )
+					continue;
+				used[ d ] = true;
+				permutation[ k ] = d;
+				permutations( permutation, used, k + 1, permutations );
+				used[ d ] = false;
+			}
+	}
+
+	/**
+	 * Get the axis order that {@link #resample(RandomAccessibleInterval)}
+	 * would use for a target interval.
+	 *
+	 * @param target
+	 *            the target interval
+	 * @return the axes in processing order
+	 */
+	public int[] getPassOrder( final Interval target )
+	{
+		final Pass[] passes = plan( transformToSource, target ).passes;
+		final int[] order = new int[ passes.length ];
+		for ( int k = 0; k < passes.length; ++k )
+			order[ k ] = passes[ k ].axis;
+		return order;
+	}
+
+	/**
+	 * Resample the source into the target.
+	 *
+	 * @param target
+	 *            the target
+	 * @param <S> target type
+	 */
+	public < S extends RealType< S > > void resample( final RandomAccessibleInterval< S > target )
+	{
+		final Plan plan = plan( transformToSource.copy(), target );
+		final Pass[] passes = plan.passes;
+		final Interval[] intervals = plan.intervals;
+		final int n = passes.length;
+		final TaskExecutor taskExecutor = Parallelization.getTaskExecutor();
+
+		/* copy the source region with permuted axes */
+		final MixedTransform permute = new MixedTransform( n, n );
+		final int[] component = new int[ n ];
+		for ( int i = 0; i < n; ++i )
+			component[ plan.permutation[ i ] ] = i;
+		permute.setComponentMapping( component );
+		Block in = new Block( intervals[ 0 ] );
+		final Cursor< T > sourceCursor = Views.flatIterable(
+				Views.interval( new MixedTransformView<>( source, permute ), intervals[ 0 ] ) ).cursor();
+		for ( int i = 0; i < in.data.length; ++i )
+			in.data[ i ] = sourceCursor.next().getRealDouble();
+
+		for ( int k = 0; k < n; ++k )
+		{
+			final Block out = new Block( intervals[ k + 1 ] );
+			final Block input = in;
+			final Pass pass = passes[ k ];
+			taskExecutor.forEach(
+					chunks( out.data.length / out.dimensions[ 0 ], taskExecutor.suggestNumberOfTasks() ),
+					chunk -> resample( input, out, pass, chunk[ 0 ], chunk[ 1 ] ) );
+			in = out;
+		}
+
+		final double[] data = in.data;
+		final Cursor< S > targetCursor = Views.flatIterable( target ).cursor();
+		for ( int i = 0; i < data.length; ++i )
+			targetCursor.next().setReal( data[ i ] );
+	}
+
+	private static List< int[] > chunks( final int numLines, final int numTasks )
+	{
+		final ArrayList< int[] > chunks = new ArrayList<>();
+		final int chunkSize = Math.max( 1, ( numLines + numTasks - 1 ) / numTasks );
+		for ( int from = 0; from < numLines; from += chunkSize )
+			chunks.add( new int[] { from, Math.min( numLines, from + chunkSize ) } );
+		return chunks;
+	}
+
+	/**
+	 * Execute a pass for the lines along dimension 0 of the output with
+	 * indices in [from, to).
+	 */
+	protected static void resample( final Block in, final Block out, final Pass pass, final int from, final int to )
+	{
+		final int n = out.min.length;
+		final int a = pass.axis;
+		final double[] r = pass.r;
+		final int width = out.dimensions[ 0 ];
+		final int strideA = in.strides[ a ];
+		final int maxA = in.dimensions[ a ] - 1;
+		final long[] y = new long[ n ];
+
+		for ( int line = from; line < to; ++line )
+		{
+			/* intermediate coordinates of the first sample of the line */
+			y[ 0 ] = out.min[ 0 ];
+			for ( int d = 1, l = line; d < n; ++d )
+			{
+				y[ d ] = out.min[ d ] + l % out.dimensions[ d ];
+				l /= out.dimensions[ d ];
+			}
+
+			double s = pass.c;
+			int base = 0;
+			for ( int d = 0; d < n; ++d )
+			{
+				s += r[ d ] * y[ d ];
+				if ( d != a )
+					base += ( int )( y[ d ] - in.min[ d ] ) * in.strides[ d ];
+			}
+			s -= in.min[ a ];
+
+			/* dimensions other than a coincide between in and out */
+			final int step = a == 0 ? 0 : 1;
+			int o = line * width;
+			for ( int i = 0; i < width; ++i, ++o, base += step )
+			{
+				final double x = s + i * r[ 0 ];
+				final double floor = Math.floor( x );
+				final int j = Math.max( 0, Math.min( maxA, ( int )floor ) );
+				final double v0 = in.data[ base + j * strideA ];
+				final double w = x - floor;
+				if ( w == 0 || j == maxA )
+					out.data[ o ] = v0;
+				else
+					out.data[ o ] = v0 + w * ( in.data[ base + ( j + 1 ) * strideA ] - v0 );
+			}
+		}
+	}
+}
@@ -0,0 +1,285 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import java.util.function.BooleanSupplier;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.realtransform.RealTransformRandomAccessible;
+import net.imglib2.type.Type;
+
+/**
+ * Renders a {@link RandomAccessible}, typically a
+ * {@link RealTransformRandomAccessible}, into a target
+ * {@link RandomAccessibleInterval} in passes of decreasing pixel stride.
+ * <p>
+ * The first pass samples every <em>s</em>-th pixel along all dimensions and
+ * fills the <em>s</em><sup><em>n</em></sup> block anchored at each sample
+ * with its value such that a coarse version of the entire target is available
+ * early.  Each subsequent pass halves the stride and samples only pixels that
+ * have not been sampled by a previous pass, the final pass has a stride of 1.
+ * Samples computed in earlier passes are never re-evaluated.
+ * <p>
+ * Rendering can be interrupted after every row by a deadline or a
+ * cancellation token and continued with the next call to
+ * {@link #render(long, BooleanSupplier)}.  Call {@link #reset()} when the
+ * source changed, e.g. after modifying its transformation, or
+ * {@link #reset(RandomAccessible)} to render a different source.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @param <T> data type
+ */
+public class ProgressiveRenderer< T extends Type< T > >
+{
+	protected RandomAccessible< T > source;
+
+	protected final RandomAccessibleInterval< T > target;
+
+	protected final int coarsestStride;
+
+	protected final int n;
+
+	protected RandomAccess< T > sourceAccess;
+
+	protected final RandomAccess< T > targetAccess;
+
+	protected final long[] position;
+
+	protected final long[] blockMax;
+
+	/** stride of the current pass, 0 if rendering is complete */
+	protected int stride;
+
+	/** index of the next row of the current pass */
+	protected long row;
+
+	/**
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @param coarsestStride
+	 *            pixel stride of the first pass, rounded up to the next power
+	 *            of two
+	 */
+	public ProgressiveRenderer( final RandomAccessible< T > source, final RandomAccessibleInterval< T > target, final int coarsestStride )
+	{
+		assert source.numDimensions() == target.numDimensions();
+
+		this.source = source;
+		this.target = target;
+		this.coarsestStride = coarsestStride <= 1 ? 1 : Integer.highestOneBit( coarsestStride - 1 ) << 1;
+		n = target.numDimensions();
+		targetAccess = target.randomAccess();
+		position = new long[ n ];
+		blockMax = new long[ n ];
+		reset();
+	}
+
+	/**
+	 * Restart rendering with the coarsest pass.  Accesses into transformed
+	 * sources hold a copy of the transformation, so the source access is
+	 * recreated to pick up modifications.
+	 */
+	public void reset()
+	{
+		sourceAccess = source.randomAccess( target );
+		stride = coarsestStride;
+		row = 0;
+	}
+
+	/**
+	 * Restart rendering a new source with the coarsest pass.
+	 *
+	 * @param source
+	 *            the new source
+	 */
+	public void reset( final RandomAccessible< T > source )
+	{
+		assert source.numDimensions() == n;
+
+		this.source = source;
+		reset();
+	}
+
+	/**
+	 * @return true if all pixels of the target have been rendered
+	 */
+	public boolean isComplete()
+	{
+		return stride == 0;
+	}
+
+	/**
+	 * @return the stride of the pass in progress, 0 if rendering is complete
+	 */
+	public int getStride()
+	{
+		return stride;
+	}
+
+	/**
+	 * Continue rendering for at most approximately the given time.
+	 *
+	 * @param budgetNanos
+	 *            time budget in nanoseconds
+	 * @return true if rendering is complete
+	 */
+	public boolean render( final long budgetNanos )
+	{
+		return render( budgetNanos, () -> false );
+	}
+
+	/**
+	 * Continue rendering until the target is complete, the time budget is
+	 * exhausted, or rendering is cancelled.  Deadline and cancellation are
+	 * checked after each row such that the time budget may be exceeded by the
+	 * time required to render one row.
+	 *
+	 * @param budgetNanos
+	 *            time budget in nanoseconds
+	 * @param cancelled
+	 *            cancellation token
+	 * @return true if rendering is complete
+	 */
+	public boolean render( final long budgetNanos, final BooleanSupplier cancelled )
+	{
+		final long start = System.nanoTime();
+		while ( stride > 0 )
+		{
+			final long numRows = numRows( stride );
+			while ( row < numRows )
+			{
+				renderRow( row++ );
+				if ( cancelled.getAsBoolean() || System.nanoTime() - start > budgetNanos )
+				{
+					if ( row == numRows )
+						nextPass();
+					return isComplete();
+				}
+			}
+			nextPass();
+		}
+		return true;
+	}
+
+	protected void nextPass()
+	{
+		stride >>= 1;
+		row = 0;
+	}
+
+	protected long numRows( final int s )
+	{
+		long numRows = 1;
+		for ( int d = 1; d < n; ++d )
+			numRows *= ( target.dimension( d ) + s - 1 ) / s;
+		return numRows;
+	}
+
+	/**
+	 * Render a row along dimension 0 of the current pass.
+	 *
+	 * @param index
+	 *            flat index of the row
+	 */
+	protected void renderRow( final long index )
+	{
+		/* position of the row, check whether it was sampled by a previous pass */
+		boolean sampledRow = stride < coarsestStride;
+		long i = index;
+		for ( int d = 1; d < n; ++d )
+		{
+			final long numSamples = ( target.dimension( d ) + stride - 1 ) / stride;
+			final long k = i % numSamples;
+			i /= numSamples;
+			position[ d ] = target.min( d ) + k * stride;
+			blockMax[ d ] = Math.min( position[ d ] + stride - 1, target.max( d ) );
+			if ( ( k & 1 ) != 0 )
+				sampledRow = false;
+		}
+
+		/* in rows sampled by previous passes, only odd samples are new */
+		final long step = sampledRow ? 2L * stride : stride;
+		final long max = target.max( 0 );
+		for ( long x = target.min( 0 ) + ( sampledRow ? stride : 0 ); x <= max; x += step )
+		{
+			position[ 0 ] = x;
+			blockMax[ 0 ] = Math.min( x + stride - 1, max );
+			sourceAccess.setPosition( position );
+			fillBlock( sourceAccess.get() );
+		}
+	}
+
+	/**
+	 * Fill the block from {@link #position} to {@link #blockMax} with a value.
+	 */
+	protected void fillBlock( final T value )
+	{
+		targetAccess.setPosition( position );
+		if ( stride == 1 )
+		{
+			targetAccess.get().set( value );
+			return;
+		}
+
+		final long width = blockMax[ 0 ] - position[ 0 ] + 1;
+		while ( true )
+		{
+			for ( long x = 0; x < width; ++x )
+			{
+				targetAccess.get().set( value );
+				targetAccess.fwd( 0 );
+			}
+			targetAccess.setPosition( position[ 0 ], 0 );
+
+			int d = 1;
+			for ( ; d < n; ++d )
+			{
+				if ( targetAccess.getLongPosition( d ) < blockMax[ d ] )
+				{
+					targetAccess.fwd( d );
+					break;
+				}
+				targetAccess.setPosition( position[ d ], d );
+			}
+			if ( d == n )
+				return;
+		}
+	}
+}
@@ -0,0 +1,452 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.interpolation.InterpolatorFactory;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.realtransform.InversePerspective3D;
+import net.imglib2.realtransform.InvertibleRealTransform;
+import net.imglib2.realtransform.Perspective3D;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+
+/**
+ * Projects a 3D source along rays into a 2D target without resampling the
+ * transformed volume first.
+ * <p>
+ * The source is transformed into screen space by an
+ * {@link AffineTransform3D}, optionally followed by a projection such as
+ * {@link Perspective3D} or {@link InversePerspective3D}.  Each target pixel
+ * (<em>x</em>, <em>y</em>) casts a ray along screen depth from
+ * <em>zNear</em> to <em>zFar</em>.  If the ray is a straight line in source
+ * space, i.e. without projection or with {@link Perspective3D}, it is clipped
+ * to the source bounds and marched by adding a constant source space step.
+ * Rays through other projections are sampled at equidistant depths and
+ * mapped individually.
+ * <p>
+ * Supported accumulation modes are maximum, minimum, sum and front-to-back
+ * alpha compositing.  Marching stops early once the result cannot change
+ * anymore, i.e. when the maximum or minimum value of the type has been
+ * reached, or the accumulated opacity exceeds the termination threshold.
+ * Rows are projected in parallel with the {@link Parallelization} task
+ * executor of the calling thread.
+ *
+ * @param <T> source type
+ */
+public class RayCastingProjector< T extends RealType< T > >
+{
+	public enum Mode
+	{
+		/** maximum intensity projection */
+		MAX,
+		/** minimum intensity projection */
+		MIN,
+		/** sum of samples multiplied by the step length, i.e. the line integral */
+		SUM,
+		/**
+		 * front-to-back compositing of intensities normalized to the display
+		 * range, sample opacity is proportional to normalized intensity, the
+		 * result is in [0, 1]
+		 */
+		ALPHA
+	}
+
+	protected final RandomAccessibleInterval< T > source;
+
+	protected final RealRandomAccessible< T > interpolatedSource;
+
+	protected final AffineTransform3D sourceToScreen;
+
+	protected final InvertibleRealTransform projection;
+
+	protected final Mode mode;
+
+	protected double zNear;
+
+	protected double zFar;
+
+	protected double step = 1;
+
+	protected double background = 0;
+
+	/** range of the source type, where {@link Mode#MAX} and {@link Mode#MIN} rays saturate */
+	protected final double typeMin;
+
+	protected final double typeMax;
+
+	protected double displayMin;
+
+	protected double displayMax;
+
+	protected double opacity = 1;
+
+	protected double terminationThreshold = 0.99;
+
+	/**
+	 * @param source
+	 *            the 3D source
+	 * @param interpolatorFactory
+	 *            interpolation, the source is extended by its border
+	 * @param sourceToScreen
+	 *            transformation from source to screen coordinates
+	 * @param projection
+	 *            projection applied after sourceToScreen, or null
+	 * @param mode
+	 *            accumulation mode
+	 * @param zNear
+	 *            screen depth at which rays start
+	 * @param zFar
+	 *            screen depth at which rays end
+	 */
+	public RayCastingProjector(
+			final RandomAccessibleInterval< T > source,
+			final InterpolatorFactory< T, RandomAccessible< T > > interpolatorFactory,
+			final AffineTransform3D sourceToScreen,
+			final InvertibleRealTransform projection,
+			final Mode mode,
+			final double zNear,
+			final double zFar )
+	{
+		assert source.numDimensions() == 3 : "Source must be 3D.";
+
+		this.source = source;
+		this.interpolatedSource = Views.interpolate( Views.extendBorder( source ), interpolatorFactory );
+		this.sourceToScreen = sourceToScreen.copy();
+		this.projection = projection;
+		this.mode = mode;
+		this.zNear = zNear;
+		this.zFar = zFar;
+		final T type = source.getType();
+		typeMin = type.getMinValue();
+		typeMax = type.getMaxValue();
+		displayMin = typeMin;
+		displayMax = typeMax;
+	}
+
+	/**
+	 * @param source
+	 *            the 3D source
+	 * @param interpolatorFactory
+	 *            interpolation, the source is extended by its border
+	 * @param sourceToScreen
+	 *            transformation from source to screen coordinates
+	 * @param mode
+	 *            accumulation mode
+	 * @param zNear
+	 *            screen depth at which rays start
+	 * @param zFar
+	 *            screen depth at which rays end
+	 */
+	public RayCastingProjector(
+			final RandomAccessibleInterval< T > source,
+			final InterpolatorFactory< T, RandomAccessible< T > > interpolatorFactory,
+			final AffineTransform3D sourceToScreen,
+			final Mode mode,
+			final double zNear,
+			final double zFar )
+	{
+		this( source, interpolatorFactory, sourceToScreen, null, mode, zNear, zFar );
+	}
+
+	/**
+	 * @param step
+	 *            sampling distance along rays in source pixels, default 1
+	 */
+	public void setStep( final double step )
+	{
+		this.step = step;
+	}
+
+	/**
+	 * @param background
+	 *            value of target pixels whose rays miss the source, default 0
+	 */
+	public void setBackground( final double background )
+	{
+		this.background = background;
+	}
+
+	/**
+	 * Set the intensity range mapped to [0, 1] for {@link Mode#ALPHA}, the
+	 * range of the source type by default.  The display range does not affect
+	 * the other modes, {@link Mode#MAX} and {@link Mode#MIN} rays terminate
+	 * early only when they reach the upper or lower end of the range of the
+	 * source type.
+	 *
+	 * @param min
+	 *            intensity mapped to 0
+	 * @param max
+	 *            intensity mapped to 1, must be larger than min
+	 */
+	public void setDisplayRange( final double min, final double max )
+	{
+		if ( !( max > min ) )
+			throw new IllegalArgumentException( "Display range [" + min + ", " + max + "] is empty." );
+		displayMin = min;
+		displayMax = max;
+	}
+
+	/**
+	 * @param opacity
+	 *            opacity per source pixel of a sample at normalized
+	 *            intensity 1 for {@link Mode#ALPHA}, default 1
+	 */
+	public void setOpacity( final double opacity )
+	{
+		this.opacity = opacity;
+	}
+
+	/**
+	 * @param terminationThreshold
+	 *            accumulated opacity at which {@link Mode#ALPHA} rays stop,
+	 *            default 0.99
+	 */
+	public void setTerminationThreshold( final double terminationThreshold )
+	{
+		this.terminationThreshold = terminationThreshold;
+	}
+
+	/**
+	 * Project into a 2D target.
+	 *
+	 * @param target
+	 *            the 2D target in screen coordinates
+	 * @param <S> target type
+	 */
+	public < S extends RealType< S > > void project( final RandomAccessibleInterval< S > target )
+	{
+		assert target.numDimensions() == 2 : "Target must be 2D.";
+
+		final List< Long > rows = new ArrayList<>();
+		for ( long y = target.min( 1 ); y <= target.max( 1 ); ++y )
+			rows.add( y );
+
+		Parallelization.getTaskExecutor().forEach( rows, y -> {
+			final Ray ray = new Ray();
+			final RandomAccess< S > targetAccess = target.randomAccess();
+			targetAccess.setPosition( target.min( 0 ), 0 );
+			targetAccess.setPosition( y, 1 );
+			for ( long x = target.min( 0 ); x <= target.max( 0 ); ++x )
+			{
+				targetAccess.get().setReal( ray.cast( x, y ) );
+				targetAccess.fwd( 0 );
+			}
+		} );
+	}
+
+	/**
+	 * Per thread state of a ray.
+	 */
+	protected class Ray
+	{
+		final RealRandomAccess< T > access = interpolatedSource.realRandomAccess();
+
+		final InvertibleRealTransform projectionCopy = projection == null ? null : projection.copy();
+
+		final boolean straight = projection == null || projection instanceof Perspective3D;
+
+		final double[] near = new double[ 3 ];
+
+		final double[] far = new double[ 3 ];
+
+		final double[] p = new double[ 3 ];
+
+		final double[] min = new double[ 3 ];
+
+		final double[] max = new double[ 3 ];
+
+		double accumulator, alpha;
+
+		Ray()
+		{
+			for ( int d = 0; d < 3; ++d )
+			{
+				min[ d ] = source.min( d ) - 0.5;
+				max[ d ] = source.max( d ) + 0.5;
+			}
+		}
+
+		void toSource( final double x, final double y, final double z, final double[] q )
+		{
+			q[ 0 ] = x;
+			q[ 1 ] = y;
+			q[ 2 ] = z;
+			if ( projectionCopy != null )
+				projectionCopy.applyInverse( q, q );
+			sourceToScreen.applyInverse( q, q );
+		}
+
+		double cast( final double x, final double y )
+		{
+			toSource( x, y, zNear, near );
+			toSource( x, y, zFar, far );
+			return straight ? castStraight() : castCurved( x, y );
+		}
+
+		double castStraight()
+		{
+			/* clip the segment from near to far to the source bounds */
+			double t0 = 0;
+			double t1 = 1;
+			for ( int d = 0; d < 3; ++d )
+			{
+				final double dir = far[ d ] - near[ d ];
+				if ( dir == 0 )
+				{
+					if ( near[ d ] < min[ d ] || near[ d ] > max[ d ] )
+						return background;
+				}
+				else
+				{
+					final double a = ( min[ d ] - near[ d ] ) / dir;
+					final double b = ( max[ d ] - near[ d ] ) / dir;
+					t0 = Math.max( t0, Math.min( a, b ) );
+					t1 = Math.min( t1, Math.max( a, b ) );
+				}
+			}
+			if ( t0 > t1 )
+				return background;
+
+			final double dx = far[ 0 ] - near[ 0 ];
+			final double dy = far[ 1 ] - near[ 1 ];
+			final double dz = far[ 2 ] - near[ 2 ];
+			final double length = Math.sqrt( dx * dx + dy * dy + dz * dz ) * ( t1 - t0 );
+			final long numSteps = Math.max( 1, ( long )Math.ceil( length / step ) );
+			final double stepLength = length / numSteps;
+			final double dt = ( t1 - t0 ) / numSteps;
+			final double sx = dx * dt;
+			final double sy = dy * dt;
+			final double sz = dz * dt;
+
+			/* sample at the centers of the steps */
+			double px = near[ 0 ] + dx * ( t0 + 0.5 * dt );
+			double py = near[ 1 ] + dy * ( t0 + 0.5 * dt );
+			double pz = near[ 2 ] + dz * ( t0 + 0.5 * dt );
+			reset();
+			for ( long i = 0; i < numSteps; ++i )
+			{
+				access.setPosition( px, 0 );
+				access.setPosition( py, 1 );
+				access.setPosition( pz, 2 );
+				if ( accumulate( access.get().getRealDouble(), stepLength ) )
+					break;
+				px += sx;
+				py += sy;
+				pz += sz;
+			}
+			return result();
+		}
+
+		double castCurved( final double x, final double y )
+		{
+			double length = 0;
+			for ( int d = 0; d < 3; ++d )
+				length += ( far[ d ] - near[ d ] ) * ( far[ d ] - near[ d ] );
+			length = Math.sqrt( length );
+			final long numSteps = Math.max( 1, ( long )Math.ceil( length / step ) );
+			final double stepLength = length / numSteps;
+			final double dz = ( zFar - zNear ) / numSteps;
+			boolean hit = false;
+			reset();
+			for ( long i = 0; i < numSteps; ++i )
+			{
+				toSource( x, y, zNear + ( i + 0.5 ) * dz, p );
+				if ( p[ 0 ] < min[ 0 ] || p[ 0 ] > max[ 0 ] || p[ 1 ] < min[ 1 ] || p[ 1 ] > max[ 1 ] || p[ 2 ] < min[ 2 ] || p[ 2 ] > max[ 2 ] )
+					continue;
+				hit = true;
+				access.setPosition( p );
+				if ( accumulate( access.get().getRealDouble(), stepLength ) )
+					break;
+			}
+			return hit ? result() : background;
+		}
+
+		void reset()
+		{
+			alpha = 0;
+			switch ( mode )
+			{
+			case MAX:
+				accumulator = Double.NEGATIVE_INFINITY;
+				break;
+			case MIN:
+				accumulator = Double.POSITIVE_INFINITY;
+				break;
+			default:
+				accumulator = 0;
+			}
+		}
+
+		/**
+		 * @return true if the ray can be terminated
+		 */
+		boolean accumulate( final double value, final double stepLength )
+		{
+			switch ( mode )
+			{
+			case MAX:
+				accumulator = Math.max( accumulator, value );
+				return accumulator >= typeMax;
+			case MIN:
+				accumulator = Math.min( accumulator, value );
+				return accumulator <= typeMin;
+			case SUM:
+				accumulator += value * stepLength;
+				return false;
+			default:
+				final double intensity = Math.min( 1, Math.max( 0, ( value - displayMin ) / ( displayMax - displayMin ) ) );
+				final double sampleAlpha = 1 - Math.pow( 1 - Math.min( 1, intensity * opacity ), stepLength );
+				final double weight = ( 1 - alpha ) * sampleAlpha;
+				accumulator += weight * intensity;
+				alpha += weight;
+				return alpha >= terminationThreshold;
+			}
+		}
+
+		double result()
+		{
+			return accumulator;
+		}
+	}
+}
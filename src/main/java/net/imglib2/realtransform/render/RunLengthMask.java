@@ -0,0 +1,406 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.iterator.IntervalIterator;
+import net.imglib2.type.BooleanType;
+
+/**
+ * An immutable set of pixels stored as runs along dimension 0, sorted in
+ * flat iteration order.  Used to restrict rendering to a region of interest,
+ * see {@link TiledRenderer#render(RandomAccessibleInterval, RunLengthMask)}.
+ * <p>
+ * Each run is identified by the coordinates of its row in dimensions 1 to
+ * <em>n</em>-1 and the first and last coordinate in dimension 0.  Runs of
+ * the same row do not overlap and are not adjacent.
+ */
+public class RunLengthMask
+{
+	/**
+	 * Consumer of runs.
+	 */
+	public interface RunConsumer
+	{
+		/**
+		 * @param position
+		 *            coordinates of the first pixel of the run, must not be
+		 *            modified or retained
+		 * @param length
+		 *            number of pixels in the run
+		 * @param offset
+		 *            index of the first pixel of the run among all pixels of
+		 *            the mask in flat iteration order
+		 */
+		void accept( long[] position, long length, long offset );
+	}
+
+	final protected int n;
+
+	/** row coordinates, n - 1 per run */
+	final protected long[] rows;
+
+	final protected long[] mins;
+
+	final protected long[] maxs;
+
+	/** index of the first pixel of each run, plus the total as last entry */
+	final protected long[] offsets;
+
+	protected RunLengthMask( final int n, final long[] rows, final long[] mins, final long[] maxs )
+	{
+		this.n = n;
+		this.rows = rows;
+		this.mins = mins;
+		this.maxs = maxs;
+		offsets = new long[ mins.length + 1 ];
+		for ( int i = 0; i < mins.length; ++i )
+			offsets[ i + 1 ] = offsets[ i ] + maxs[ i ] - mins[ i ] + 1;
+	}
+
+	/**
+	 * Create a mask from all pixels of a boolean image that are true.
+	 *
+	 * @param mask
+	 *            the boolean image
+	 * @param <B> boolean type
+	 * @return the mask
+	 */
+	public static < B extends BooleanType< B > > RunLengthMask fromMask( final RandomAccessibleInterval< B > mask )
+	{
+		final int n = mask.numDimensions();
+		final Builder builder = new Builder( n );
+		final RandomAccess< B > access = mask.randomAccess();
+		final long min = mask.min( 0 );
+		final long max = mask.max( 0 );
+		final long[] row = new long[ n ];
+		final IntervalIterator rows = TiledRenderer.rows( mask );
+		while ( rows.hasNext() )
+		{
+			rows.fwd();
+			rows.localize( row );
+			access.setPosition( row );
+			long start = 0;
+			boolean inside = false;
+			for ( long x = min; x <= max; ++x, access.fwd( 0 ) )
+			{
+				final boolean value = access.get().get();
+				if ( value && !inside )
+					start = x;
+				else if ( !value && inside )
+					builder.add( row, start, x - 1 );
+				inside = value;
+			}
+			if ( inside )
+				builder.add( row, start, max );
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Create a mask from the union of a collection of intervals.
+	 *
+	 * @param n
+	 *            number of dimensions
+	 * @param intervals
+	 *            the intervals
+	 * @return the mask
+	 */
+	public static RunLengthMask fromIntervals( final int n, final Collection< ? extends Interval > intervals )
+	{
+		final ArrayList< long[] > runs = new ArrayList<>();
+		for ( final Interval interval : intervals )
+		{
+			final IntervalIterator rows = TiledRenderer.rows( interval );
+			while ( rows.hasNext() )
+			{
+				rows.fwd();
+				final long[] run = new long[ n + 1 ];
+				rows.localize( run );
+				run[ n ] = interval.max( 0 );
+				runs.add( run );
+			}
+		}
+		runs.sort( RunLengthMask::compareRuns );
+
+		final Builder builder = new Builder( n );
+		long[] current = null;
+		for ( final long[] run : runs )
+		{
+			if ( current != null && compareRows( current, run, n ) == 0 && run[ 0 ] <= current[ n ] + 1 )
+				current[ n ] = Math.max( current[ n ], run[ n ] );
+			else
+			{
+				if ( current != null )
+					builder.add( current, current[ 0 ], current[ n ] );
+				current = run;
+			}
+		}
+		if ( current != null )
+			builder.add( current, current[ 0 ], current[ n ] );
+		return builder.build();
+	}
+
+	/**
+	 * Compare the rows of two positions in flat iteration order.
+	 */
+	private static int compareRows( final long[] a, final long[] b, final int n )
+	{
+		for ( int d = n - 1; d > 0; --d )
+		{
+			final int c = Long.compare( a[ d ], b[ d ] );
+			if ( c != 0 )
+				return c;
+		}
+		return 0;
+	}
+
+	private static int compareRuns( final long[] a, final long[] b )
+	{
+		final int c = compareRows( a, b, a.length - 1 );
+		return c != 0 ? c : Long.compare( a[ 0 ], b[ 0 ] );
+	}
+
+	/**
+	 * Collects runs in flat iteration order.
+	 */
+	protected static class Builder
+	{
+		final int n;
+
+		final ArrayList< long[] > runs = new ArrayList<>();
+
+		Builder( final int n )
+		{
+			this.n = n;
+		}
+
+		void add( final long[] row, final long min, final long max )
+		{
+			final long[] run = new long[ n + 1 ];
+			System.arraycopy( row, 1, run, 2, n - 1 );
+			run[ 0 ] = min;
+			run[ 1 ] = max;
+			runs.add( run );
+		}
+
+		RunLengthMask build()
+		{
+			final int size = runs.size();
+			final long[] rows = new long[ size * ( n - 1 ) ];
+			final long[] mins = new long[ size ];
+			final long[] maxs = new long[ size ];
+			for ( int i = 0; i < size; ++i )
+			{
+				final long[] run = runs.get( i );
+				mins[ i ] = run[ 0 ];
+				maxs[ i ] = run[ 1 ];
+				System.arraycopy( run, 2, rows, i * ( n - 1 ), n - 1 );
+			}
+			return new RunLengthMask( n, rows, mins, maxs );
+		}
+	}
+
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	/**
+	 * @return the number of runs
+	 */
+	public int numRuns()
+	{
+		return mins.length;
+	}
+
+	/**
+	 * @return the number of pixels in the mask
+	 */
+	public long size()
+	{
+		return offsets[ mins.length ];
+	}
+
+	/**
+	 * @return the bounding interval of the mask or null if the mask is empty
+	 */
+	public Interval boundingInterval()
+	{
+		if ( mins.length == 0 )
+			return null;
+
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		Arrays.fill( min, Long.MAX_VALUE );
+		Arrays.fill( max, Long.MIN_VALUE );
+		for ( int i = 0; i < mins.length; ++i )
+		{
+			min[ 0 ] = Math.min( min[ 0 ], mins[ i ] );
+			max[ 0 ] = Math.max( max[ 0 ], maxs[ i ] );
+			for ( int d = 1; d < n; ++d )
+			{
+				final long x = rows[ i * ( n - 1 ) + d - 1 ];
+				min[ d ] = Math.min( min[ d ], x );
+				max[ d ] = Math.max( max[ d ], x );
+			}
+		}
+		return new FinalInterval( min, max );
+	}
+
+	/**
+	 * Index of the first run whose row is not before a position.
+	 */
+	protected int firstRun( final long[] position )
+	{
+		int lo = 0;
+		int hi = mins.length;
+		while ( lo < hi )
+		{
+			final int mid = ( lo + hi ) >>> 1;
+			if ( compareRow( mid, position ) < 0 )
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Compare the row of a run with the row of a position.
+	 */
+	protected int compareRow( final int run, final long[] position )
+	{
+		final int offset = run * ( n - 1 ) - 1;
+		for ( int d = n - 1; d > 0; --d )
+		{
+			final int c = Long.compare( rows[ offset + d ], position[ d ] );
+			if ( c != 0 )
+				return c;
+		}
+		return 0;
+	}
+
+	/**
+	 * Pass all runs to a consumer in flat iteration order.
+	 *
+	 * @param consumer
+	 *            the consumer
+	 */
+	public void forEachRun( final RunConsumer consumer )
+	{
+		forEachRun( 0, mins.length, consumer );
+	}
+
+	/**
+	 * Pass all runs clipped to an interval to a consumer in flat iteration
+	 * order.
+	 *
+	 * @param interval
+	 *            the interval
+	 * @param consumer
+	 *            the consumer
+	 */
+	public void forEachRun( final Interval interval, final RunConsumer consumer )
+	{
+		final long min = interval.min( 0 );
+		final long max = interval.max( 0 );
+		final long[] row = new long[ n ];
+		final long[] position = new long[ n ];
+		final IntervalIterator rows = TiledRenderer.rows( interval );
+		while ( rows.hasNext() )
+		{
+			rows.fwd();
+			rows.localize( row );
+			for ( int i = firstRun( row ); i < mins.length && compareRow( i, row ) == 0; ++i )
+			{
+				if ( maxs[ i ] < min )
+					continue;
+				if ( mins[ i ] > max )
+					break;
+				final long start = Math.max( min, mins[ i ] );
+				System.arraycopy( row, 0, position, 0, n );
+				position[ 0 ] = start;
+				consumer.accept( position, Math.min( max, maxs[ i ] ) - start + 1, offsets[ i ] + start - mins[ i ] );
+			}
+		}
+	}
+
+	/**
+	 * Pass a range of runs to a consumer.
+	 *
+	 * @param fromRun
+	 *            index of the first run
+	 * @param toRun
+	 *            index of the last run + 1
+	 * @param consumer
+	 *            the consumer
+	 */
+	public void forEachRun( final int fromRun, final int toRun, final RunConsumer consumer )
+	{
+		final long[] position = new long[ n ];
+		for ( int i = fromRun; i < toRun; ++i )
+		{
+			position[ 0 ] = mins[ i ];
+			System.arraycopy( rows, i * ( n - 1 ), position, 1, n - 1 );
+			consumer.accept( position, maxs[ i ] - mins[ i ] + 1, offsets[ i ] );
+		}
+	}
+
+	/**
+	 * Split the runs into ranges of consecutive runs for parallel
+	 * processing.
+	 *
+	 * @param numRanges
+	 *            the desired number of ranges
+	 * @return pairs of first and last run index + 1
+	 */
+	public List< int[] > ranges( final int numRanges )
+	{
+		final ArrayList< int[] > ranges = new ArrayList<>();
+		final int rangeSize = Math.max( 1, ( mins.length + numRanges - 1 ) / numRanges );
+		for ( int from = 0; from < mins.length; from += rangeSize )
+			ranges.add( new int[] { from, Math.min( mins.length, from + rangeSize ) } );
+		return ranges;
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import java.util.Arrays;
+
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.iterator.IntervalIterator;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.realtransform.SeparableRealTransform;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Renders a {@link RandomAccessible} source transformed by a
+ * {@link SeparableRealTransform} into a target
+ * {@link RandomAccessibleInterval}.
+ * <p>
+ * Since the transformation maps each dimension independently, the source
+ * coordinates of all target pixels are computed once per dimension and
+ * target coordinate, not once per pixel.  Source indices and interpolation
+ * weights are precomputed for every target coordinate and reused for all
+ * rows.  Each row is then accumulated from the
+ * 2<sup><em>n</em>-1</sup> source rows that contribute to it with
+ * weights that are constant along the row.
+ * <p>
+ * The source must be defined for all accessed coordinates, e.g. by
+ * extending it.  Rows are rendered in parallel with the
+ * {@link Parallelization} task executor of the calling thread.
+ *
+ * @param <T> source type
+ */
+public class SeparableRenderer< T extends RealType< T > >
+{
+	public enum Interpolation
+	{
+		NEAREST,
+		NLINEAR
+	}
+
+	final protected RandomAccessible< T > source;
+
+	final protected SeparableRealTransform transformFromSource;
+
+	final protected Interpolation interpolation;
+
+	protected int blockSize = 16;
+
+	/**
+	 * @param source
+	 *            the source
+	 * @param transformFromSource
+	 *            the transformation from source to target coordinates
+	 * @param interpolation
+	 *            the interpolation method
+	 */
+	public SeparableRenderer(
+			final RandomAccessible< T > source,
+			final SeparableRealTransform transformFromSource,
+			final Interpolation interpolation )
+	{
+		assert source.numDimensions() == transformFromSource.numSourceDimensions();
+
+		this.source = source;
+		this.transformFromSource = transformFromSource;
+		this.interpolation = interpolation;
+	}
+
+	/**
+	 * Set the edge length of the blocks of rows that are rendered as one
+	 * parallel task in all dimensions but the first.
+	 *
+	 * @param blockSize
+	 *            the block size
+	 */
+	public void setBlockSize( final int blockSize )
+	{
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Render the entire target.
+	 *
+	 * @param target
+	 *            the target
+	 * @param <S> target type
+	 */
+	public < S extends RealType< S > > void render( final RandomAccessibleInterval< S > target )
+	{
+		final int n = target.numDimensions();
+		final long[][] indices = new long[ n ][];
+		final double[][] weights = new double[ n ][];
+		for ( int d = 0; d < n; ++d )
+		{
+			final int size = ( int )target.dimension( d );
+			final long min = target.min( d );
+			indices[ d ] = new long[ size ];
+			weights[ d ] = new double[ size ];
+			for ( int i = 0; i < size; ++i )
+			{
+				final double x = transformFromSource.applyInverse( min + i, d );
+				if ( interpolation == Interpolation.NEAREST )
+					indices[ d ][ i ] = ( long )Math.floor( x + 0.5 );
+				else
+				{
+					final double floor = Math.floor( x );
+					indices[ d ][ i ] = ( long )floor;
+					weights[ d ][ i ] = x - floor;
+				}
+			}
+		}
+
+		final int[] tileSize = new int[ n ];
+		tileSize[ 0 ] = ( int )target.dimension( 0 );
+		for ( int d = 1; d < n; ++d )
+			tileSize[ d ] = blockSize;
+
+		Parallelization.getTaskExecutor().forEach(
+				TiledRenderer.tiles( target, tileSize ),
+				tile -> renderTile( tile, target, indices, weights ) );
+	}
+
+	protected < S extends RealType< S > > void renderTile(
+			final Interval tile,
+			final RandomAccessibleInterval< S > target,
+			final long[][] indices,
+			final double[][] weights )
+	{
+		final int n = tile.numDimensions();
+		final int width = ( int )tile.dimension( 0 );
+		final int offset = ( int )( tile.min( 0 ) - target.min( 0 ) );
+		final long[] xIndices = indices[ 0 ];
+		final double[] xWeights = weights[ 0 ];
+		final int numCorners = interpolation == Interpolation.NEAREST ? 1 : 1 << ( n - 1 );
+
+		final RandomAccess< T > sourceAccess = source.randomAccess();
+		final RandomAccess< S > targetAccess = target.randomAccess( tile );
+		final double[] row = new double[ width ];
+		final long[] rowPosition = new long[ n ];
+		final long[] sourcePosition = new long[ n ];
+
+		final IntervalIterator rows = TiledRenderer.rows( tile );
+		while ( rows.hasNext() )
+		{
+			rows.fwd();
+			rows.localize( rowPosition );
+			Arrays.fill( row, 0 );
+
+			for ( int corner = 0; corner < numCorners; ++corner )
+			{
+				double w = 1;
+				for ( int d = 1; d < n; ++d )
+				{
+					final int i = ( int )( rowPosition[ d ] - target.min( d ) );
+					final int bit = ( corner >> ( d - 1 ) ) & 1;
+					sourcePosition[ d ] = indices[ d ][ i ] + bit;
+					w *= bit == 0 ? 1 - weights[ d ][ i ] : weights[ d ][ i ];
+				}
+				if ( w == 0 )
+					continue;
+
+				sourcePosition[ 0 ] = xIndices[ offset ];
+				sourceAccess.setPosition( sourcePosition );
+				long x = sourcePosition[ 0 ];
+				for ( int i = 0; i < width; ++i )
+				{
+					final long xi = xIndices[ offset + i ];
+					sourceAccess.move( xi - x, 0 );
+					x = xi;
+					final double wx = xWeights[ offset + i ];
+					final double a = sourceAccess.get().getRealDouble();
+					if ( wx == 0 )
+						row[ i ] += w * a;
+					else
+					{
+						sourceAccess.fwd( 0 );
+						row[ i ] += w * ( a + wx * ( sourceAccess.get().getRealDouble() - a ) );
+						sourceAccess.bck( 0 );
+					}
+				}
+			}
+
+			targetAccess.setPosition( rowPosition );
+			for ( int i = 0; i < width; ++i )
+			{
+				targetAccess.get().setReal( row[ i ] );
+				targetAccess.fwd( 0 );
+			}
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RealInterval;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.iterator.LocalizingIntervalIterator;
+
+/**
+ * Loads the source data within a source interval ahead of rendering, e.g.
+ * the cells of a lazily loaded cached cell image.  Renderers call
+ * {@link #prefetch(RealInterval)} asynchronously with the source bounds of
+ * tiles they will render next, see
+ * {@link TiledRenderer#setPrefetcher(SourcePrefetcher, java.util.concurrent.ExecutorService, int)}.
+ * Implementations must be thread safe.
+ */
+@FunctionalInterface
+public interface SourcePrefetcher
+{
+	/**
+	 * Load the source data within an interval.
+	 *
+	 * @param sourceBounds
+	 *            the interval in source coordinates
+	 */
+	void prefetch( RealInterval sourceBounds );
+
+	/**
+	 * Create a {@link SourcePrefetcher} that requests every cell of a cell
+	 * image that intersects the source bounds, which loads the cells of a
+	 * lazily loaded image into its cache.
+	 *
+	 * @param img
+	 *            the cell image
+	 * @return the prefetcher
+	 */
+	static SourcePrefetcher cells( final AbstractCellImg< ?, ?, ?, ? > img )
+	{
+		return sourceBounds -> {
+			final CellGrid grid = img.getCellGrid();
+			final int n = grid.numDimensions();
+			final long[] min = new long[ n ];
+			final long[] max = new long[ n ];
+			for ( int d = 0; d < n; ++d )
+			{
+				final long lo = Math.max( 0, ( long )Math.floor( sourceBounds.realMin( d ) ) - img.min( d ) );
+				final long hi = Math.min( grid.imgDimension( d ) - 1, ( long )Math.ceil( sourceBounds.realMax( d ) ) - img.min( d ) );
+				if ( lo > hi )
+					return;
+				min[ d ] = lo / grid.cellDimension( d );
+				max[ d ] = hi / grid.cellDimension( d );
+			}
+			final RandomAccess< ? > cells = img.getCells().randomAccess();
+			final LocalizingIntervalIterator gridPositions = new LocalizingIntervalIterator( min, max );
+			while ( gridPositions.hasNext() )
+			{
+				gridPositions.fwd();
+				cells.setPosition( gridPositions );
+				cells.get();
+			}
+		};
+	}
+}
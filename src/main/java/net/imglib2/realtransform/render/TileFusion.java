@@ -0,0 +1,466 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealInterval;
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.interpolation.InterpolatorFactory;
+import net.imglib2.iterator.IntervalIterator;
+import net.imglib2.iterator.LocalizingIntervalIterator;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.realtransform.AffineGet;
+import net.imglib2.realtransform.InvertibleRealTransform;
+import net.imglib2.realtransform.RealTransform;
+import net.imglib2.realtransform.interval.IntervalSamplingMethod;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+/**
+ * Fuses many overlapping {@link RandomAccessibleInterval} tiles, each placed
+ * in a common target space by an {@link InvertibleRealTransform}, into one
+ * target.
+ * <p>
+ * The target bounds of each tile are computed once with
+ * {@link RealTransform#boundingInterval(RealInterval, IntervalSamplingMethod)}.
+ * For each call to {@link #fuse(RandomAccessibleInterval)}, the tiles are
+ * indexed in a grid of target blocks by their bounds, and each target block
+ * evaluates only the tiles whose bounds intersect it.  Within a block, only
+ * the part that intersects the bounds of a tile is visited, and each pixel
+ * contributes only if it maps inside the tile.  For {@link AffineGet affine}
+ * tile transforms, tile coordinates are computed incrementally along rows.
+ * <p>
+ * Overlapping contributions are combined by {@link Mode#AVERAGE averaging},
+ * by their {@link Mode#MAX maximum} or by a {@link Mode#BLENDED weighted
+ * average} whose weights fall off with a cosine ramp towards the tile
+ * borders.  Target pixels that are not covered by any tile are set to the
+ * background value.  Blocks are fused in parallel with the
+ * {@link Parallelization} task executor of the calling thread.
+ *
+ * @param <T> tile type
+ */
+public class TileFusion< T extends RealType< T > >
+{
+	public enum Mode
+	{
+		/** average of all contributions */
+		AVERAGE,
+		/** maximum of all contributions */
+		MAX,
+		/** average weighted by the distance to the tile borders */
+		BLENDED
+	}
+
+	/**
+	 * A tile, its transformation into target space and its target bounds.
+	 */
+	protected static class Tile< T >
+	{
+		final RandomAccessibleInterval< T > source;
+
+		final RealRandomAccessible< T > interpolated;
+
+		final RealTransform transformToSource;
+
+		final RealInterval bounds;
+
+		Tile(
+				final RandomAccessibleInterval< T > source,
+				final RealRandomAccessible< T > interpolated,
+				final RealTransform transformToSource,
+				final RealInterval bounds )
+		{
+			this.source = source;
+			this.interpolated = interpolated;
+			this.transformToSource = transformToSource;
+			this.bounds = bounds;
+		}
+	}
+
+	final protected InterpolatorFactory< T, RandomAccessible< T > > interpolatorFactory;
+
+	final protected ArrayList< Tile< T > > tiles = new ArrayList<>();
+
+	protected Mode mode = Mode.AVERAGE;
+
+	protected double blendingWidth = 10;
+
+	protected double background = 0;
+
+	protected int[] blockSize = { 64 };
+
+	protected IntervalSamplingMethod samplingMethod = IntervalSamplingMethod.CORNERS;
+
+	/**
+	 * @param interpolatorFactory
+	 *            interpolation used to sample the tiles at real coordinates
+	 */
+	public TileFusion( final InterpolatorFactory< T, RandomAccessible< T > > interpolatorFactory )
+	{
+		this.interpolatorFactory = interpolatorFactory;
+	}
+
+	public void setMode( final Mode mode )
+	{
+		this.mode = mode;
+	}
+
+	/**
+	 * Set the distance from the tile border in tile pixels over which the
+	 * weight of {@link Mode#BLENDED} rises from almost 0 to 1.
+	 *
+	 * @param blendingWidth
+	 *            the blending width
+	 */
+	public void setBlendingWidth( final double blendingWidth )
+	{
+		this.blendingWidth = blendingWidth;
+	}
+
+	public void setBackground( final double background )
+	{
+		this.background = background;
+	}
+
+	/**
+	 * @param blockSize
+	 *            size of the target blocks, the last entry is used for all
+	 *            remaining dimensions
+	 */
+	public void setBlockSize( final int... blockSize )
+	{
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Set the method used to compute the target bounds of tiles added after
+	 * this call.  The default {@link IntervalSamplingMethod#CORNERS} is exact
+	 * for {@link AffineGet affine transformations}.
+	 *
+	 * @param samplingMethod
+	 *            the sampling method
+	 */
+	public void setSamplingMethod( final IntervalSamplingMethod samplingMethod )
+	{
+		this.samplingMethod = samplingMethod;
+	}
+
+	/**
+	 * Add a tile.
+	 *
+	 * @param source
+	 *            the tile
+	 * @param transformFromSource
+	 *            transformation from tile to target coordinates
+	 * @return the index of the tile
+	 */
+	public int addTile( final RandomAccessibleInterval< T > source, final InvertibleRealTransform transformFromSource )
+	{
+		final RealTransform transformToSource = transformFromSource instanceof AffineGet
+				? ( ( AffineGet )transformFromSource ).inverse().copy()
+				: transformFromSource.inverse().copy();
+		final RealInterval bounds = transformFromSource.boundingInterval( source, samplingMethod );
+		tiles.add( new Tile<>(
+				source,
+				Views.interpolate( Views.extendBorder( source ), interpolatorFactory ),
+				transformToSource,
+				bounds ) );
+		return tiles.size() - 1;
+	}
+
+	public int numTiles()
+	{
+		return tiles.size();
+	}
+
+	/**
+	 * @param i
+	 *            index of the tile
+	 * @return the target bounds of the tile
+	 */
+	public RealInterval getBounds( final int i )
+	{
+		return tiles.get( i ).bounds;
+	}
+
+	/**
+	 * Index the tiles by the target blocks that their bounds intersect.
+	 *
+	 * @param blocks
+	 *            the grid of target blocks
+	 * @param target
+	 *            the target interval
+	 * @return the indices of the tiles intersecting each block, in flat
+	 *         block order
+	 */
+	protected int[][] index( final CellGrid blocks, final Interval target )
+	{
+		final long[] gridDimensions = blocks.getGridDimensions();
+		final int numBlocks = ( int )Intervals.numElements( gridDimensions );
+		final long[][] ranges = new long[ tiles.size() ][];
+		final int[] counts = new int[ numBlocks ];
+		for ( int t = 0; t < tiles.size(); ++t )
+		{
+			ranges[ t ] = blockRange( tiles.get( t ).bounds, target, blocks, gridDimensions );
+			forEachBlock( ranges[ t ], gridDimensions, i -> ++counts[ i ] );
+		}
+
+		final int[][] index = new int[ numBlocks ][];
+		for ( int i = 0; i < numBlocks; ++i )
+			index[ i ] = new int[ counts[ i ] ];
+		Arrays.fill( counts, 0 );
+		for ( int t = 0; t < tiles.size(); ++t )
+		{
+			final int tile = t;
+			forEachBlock( ranges[ t ], gridDimensions, i -> index[ i ][ counts[ i ]++ ] = tile );
+		}
+		return index;
+	}
+
+	/**
+	 * Pass the flat indices of all blocks in a range of grid positions to a
+	 * consumer.
+	 */
+	private static void forEachBlock( final long[] range, final long[] gridDimensions, final IntConsumer consumer )
+	{
+		if ( range == null )
+			return;
+
+		final int n = gridDimensions.length;
+		final LocalizingIntervalIterator gridPositions = new LocalizingIntervalIterator(
+				Arrays.copyOfRange( range, 0, n ),
+				Arrays.copyOfRange( range, n, 2 * n ) );
+		final long[] gridPosition = new long[ n ];
+		while ( gridPositions.hasNext() )
+		{
+			gridPositions.fwd();
+			gridPositions.localize( gridPosition );
+			consumer.accept( ( int )IntervalIndexer.positionToIndex( gridPosition, gridDimensions ) );
+		}
+	}
+
+	/**
+	 * @return min and max grid positions of the blocks that intersect the
+	 *         bounds, null if there are none
+	 */
+	private static long[] blockRange( final RealInterval bounds, final Interval target, final CellGrid blocks, final long[] gridDimensions )
+	{
+		final int n = target.numDimensions();
+		final long[] range = new long[ 2 * n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			final long min = Math.max( target.min( d ), ( long )Math.floor( bounds.realMin( d ) ) );
+			final long max = Math.min( target.max( d ), ( long )Math.ceil( bounds.realMax( d ) ) );
+			if ( min > max )
+				return null;
+			range[ d ] = ( min - target.min( d ) ) / blocks.cellDimension( d );
+			range[ n + d ] = Math.min( gridDimensions[ d ] - 1, ( max - target.min( d ) ) / blocks.cellDimension( d ) );
+		}
+		return range;
+	}
+
+	/**
+	 * Fuse all tiles into the target.
+	 *
+	 * @param target
+	 *            the target
+	 * @param <S> target type
+	 */
+	public < S extends RealType< S > > void fuse( final RandomAccessibleInterval< S > target )
+	{
+		final int n = target.numDimensions();
+		final int[] cellDimensions = new int[ n ];
+		for ( int d = 0; d < n; ++d )
+			cellDimensions[ d ] = blockSize[ Math.min( d, blockSize.length - 1 ) ];
+		final CellGrid blocks = new CellGrid( target.dimensionsAsLongArray(), cellDimensions );
+		final int[][] index = index( blocks, target );
+		final List< Interval > intervals = TiledRenderer.tiles( target, cellDimensions );
+
+		final ArrayList< Integer > indices = new ArrayList<>( intervals.size() );
+		for ( int i = 0; i < intervals.size(); ++i )
+			indices.add( i );
+		Parallelization.getTaskExecutor().forEach(
+				indices,
+				i -> fuseBlock( intervals.get( i ), index[ i ], target ) );
+	}
+
+	/**
+	 * Fuse the tiles into one target block.
+	 *
+	 * @param block
+	 *            the block
+	 * @param candidates
+	 *            indices of the tiles whose bounds intersect the block
+	 * @param target
+	 *            the target
+	 */
+	protected < S extends RealType< S > > void fuseBlock( final Interval block, final int[] candidates, final RandomAccessible< S > target )
+	{
+		final int size = ( int )Intervals.numElements( block );
+		final double[] values = new double[ size ];
+		final double[] weights = new double[ size ];
+		if ( mode == Mode.MAX )
+			Arrays.fill( values, Double.NEGATIVE_INFINITY );
+
+		for ( final int t : candidates )
+			accumulate( tiles.get( t ), block, values, weights );
+
+		final RandomAccess< S > targetAccess = target.randomAccess( block );
+		final IntervalIterator rows = TiledRenderer.rows( block );
+		final long width = block.dimension( 0 );
+		int i = 0;
+		while ( rows.hasNext() )
+		{
+			rows.fwd();
+			targetAccess.setPosition( rows );
+			for ( long x = 0; x < width; ++x, ++i )
+			{
+				final double weight = weights[ i ];
+				final double value;
+				if ( weight == 0 )
+					value = background;
+				else if ( mode == Mode.MAX )
+					value = values[ i ];
+				else
+					value = values[ i ] / weight;
+				targetAccess.get().setReal( value );
+				targetAccess.fwd( 0 );
+			}
+		}
+	}
+
+	/**
+	 * Add the contributions of one tile to the values and weights of a
+	 * block.
+	 */
+	protected void accumulate( final Tile< T > tile, final Interval block, final double[] values, final double[] weights )
+	{
+		final int n = block.numDimensions();
+
+		/* part of the block that intersects the tile bounds */
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			min[ d ] = Math.max( block.min( d ), ( long )Math.floor( tile.bounds.realMin( d ) ) );
+			max[ d ] = Math.min( block.max( d ), ( long )Math.ceil( tile.bounds.realMax( d ) ) );
+			if ( min[ d ] > max[ d ] )
+				return;
+		}
+		final FinalInterval part = new FinalInterval( min, max );
+
+		final RealTransform transform = tile.transformToSource.copy();
+		final RealLocalizable step = transform instanceof AffineGet ? ( ( AffineGet )transform ).d( 0 ) : null;
+		final RealRandomAccess< T > access = tile.interpolated.realRandomAccess();
+		final int m = tile.source.numDimensions();
+		final double[] position = new double[ n ];
+		final double[] x = new double[ m ];
+		final long width = part.dimension( 0 );
+
+		final IntervalIterator rows = TiledRenderer.rows( part );
+		while ( rows.hasNext() )
+		{
+			rows.fwd();
+			rows.localize( position );
+			int i = 0;
+			for ( int d = n - 1; d >= 0; --d )
+				i = i * ( int )block.dimension( d ) + ( int )( rows.getLongPosition( d ) - block.min( d ) );
+			transform.apply( position, x );
+
+			for ( long k = 0; k < width; ++k, ++i )
+			{
+				if ( k > 0 )
+				{
+					if ( step == null )
+					{
+						position[ 0 ] += 1;
+						transform.apply( position, x );
+					}
+					else
+						for ( int d = 0; d < m; ++d )
+							x[ d ] += step.getDoublePosition( d );
+				}
+
+				final double weight = weight( tile.source, x );
+				if ( weight <= 0 )
+					continue;
+
+				access.setPosition( x );
+				final double value = access.get().getRealDouble();
+				if ( mode == Mode.MAX )
+				{
+					values[ i ] = Math.max( values[ i ], value );
+					weights[ i ] += 1;
+				}
+				else
+				{
+					values[ i ] += weight * value;
+					weights[ i ] += weight;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Weight of a tile coordinate, 0 outside of the tile.
+	 */
+	protected double weight( final Interval source, final double[] x )
+	{
+		double weight = 1;
+		for ( int d = 0; d < x.length; ++d )
+		{
+			final double distance = Math.min( x[ d ] - source.min( d ), source.max( d ) - x[ d ] );
+			if ( distance < 0 )
+				return 0;
+			if ( mode == Mode.BLENDED && distance < blendingWidth )
+				weight *= 0.5 - 0.5 * Math.cos( Math.PI * ( distance + 1 ) / ( blendingWidth + 1 ) );
+		}
+		return weight;
+	}
+}
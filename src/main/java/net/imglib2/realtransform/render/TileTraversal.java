@@ -0,0 +1,329 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Order in which the pixels of a tile are visited.
+ * <p>
+ * Space filling curve orders keep consecutive target pixels spatially close,
+ * and with them the source coordinates they map to.  This keeps source
+ * accesses cache and cell local under rotations and strong deformations,
+ * where raster order would sweep through the source along oblique lines.
+ * <p>
+ * Curve orders are those of the smallest power of two hypercube that
+ * contains the tile, restricted to the pixels of the tile.  They are
+ * generated by sorting the curve keys of the tile pixels, such that the cost
+ * depends on the number of pixels in the tile, not on the size of the
+ * hypercube.  Keys have 63 bits, i.e. the hypercube side length in bits
+ * times the number of dimensions must not exceed 63.  Orders are cached per
+ * tile size.
+ */
+public enum TileTraversal
+{
+	/** Flat iteration order, dimension 0 is the fastest. */
+	RASTER
+	{
+		@Override
+		protected int[] createOrder( final int[] dimensions )
+		{
+			final int n = dimensions.length;
+			final int size = size( dimensions );
+			final int[] order = new int[ size * n ];
+			final int[] position = new int[ n ];
+			for ( int i = 0, j = 0; i < size; ++i, j += n )
+			{
+				System.arraycopy( position, 0, order, j, n );
+				for ( int d = 0; d < n; ++d )
+				{
+					if ( ++position[ d ] < dimensions[ d ] )
+						break;
+					position[ d ] = 0;
+				}
+			}
+			return order;
+		}
+	},
+
+	/** Morton (Z-curve) order, bits of all coordinates are interleaved. */
+	MORTON
+	{
+		@Override
+		protected int[] createOrder( final int[] dimensions )
+		{
+			final int n = dimensions.length;
+			final int bits = keyBits( dimensions );
+			final long[] keys = sortedKeys( dimensions, position -> {
+				long h = 0;
+				for ( int k = 0; k < bits; ++k )
+					for ( int d = 0; d < n; ++d )
+						h |= ( long )( ( position[ d ] >>> k ) & 1 ) << ( k * n + d );
+				return h;
+			} );
+
+			final int[] order = new int[ keys.length * n ];
+			for ( int i = 0, j = 0; i < keys.length; ++i, j += n )
+			{
+				final long h = keys[ i ];
+				for ( int d = 0; d < n; ++d )
+				{
+					int p = 0;
+					for ( int k = 0; k < bits; ++k )
+						p |= ( int )( ( h >>> ( k * n + d ) ) & 1 ) << k;
+					order[ j + d ] = p;
+				}
+			}
+			return order;
+		}
+	},
+
+	/**
+	 * Hilbert order, consecutive pixels are face neighbors within power of
+	 * two hypercubes.
+	 */
+	HILBERT
+	{
+		@Override
+		protected int[] createOrder( final int[] dimensions )
+		{
+			final int n = dimensions.length;
+			final int bits = keyBits( dimensions );
+			if ( bits == 0 || n == 1 )
+				return RASTER.createOrder( dimensions );
+
+			final long[] keys = sortedKeys( dimensions, position -> {
+				axesToTranspose( position, bits );
+				long h = 0;
+				for ( int k = 0; k < bits; ++k )
+					for ( int i = 0; i < n; ++i )
+						h |= ( long )( ( position[ i ] >>> k ) & 1 ) << ( k * n + n - 1 - i );
+				return h;
+			} );
+
+			final int[] order = new int[ keys.length * n ];
+			final int[] position = new int[ n ];
+			for ( int i = 0, j = 0; i < keys.length; ++i, j += n )
+			{
+				/* distribute the bits of h into the transposed representation */
+				final long h = keys[ i ];
+				Arrays.fill( position, 0 );
+				for ( int k = 0; k < bits; ++k )
+					for ( int d = 0; d < n; ++d )
+						position[ d ] |= ( int )( ( h >>> ( k * n + n - 1 - d ) ) & 1 ) << k;
+				transposeToAxes( position, bits );
+				System.arraycopy( position, 0, order, j, n );
+			}
+			return order;
+		}
+	};
+
+	private final ConcurrentHashMap< Key, int[] > orders = new ConcurrentHashMap<>();
+
+	/**
+	 * Get the pixel coordinates of a tile in traversal order.
+	 *
+	 * @param dimensions
+	 *            the tile dimensions
+	 * @return the coordinates relative to the tile min of all pixels in
+	 *         traversal order, interleaved, i.e. the <em>d</em>-th coordinate
+	 *         of the <em>i</em>-th pixel is at index
+	 *         <em>i</em>&times;<em>n</em>+<em>d</em>, the returned array
+	 *         is shared and must not be modified
+	 */
+	public int[] order( final int... dimensions )
+	{
+		return orders.computeIfAbsent( new Key( dimensions ), key -> createOrder( key.dimensions ) );
+	}
+
+	protected abstract int[] createOrder( final int[] dimensions );
+
+	/**
+	 * Compute the curve keys of all pixels of a tile and sort them.
+	 *
+	 * @param dimensions
+	 *            the tile dimensions
+	 * @param key
+	 *            computes the key of a pixel, may modify the position
+	 */
+	private static long[] sortedKeys( final int[] dimensions, final ToLongFunction< int[] > key )
+	{
+		final int n = dimensions.length;
+		final long[] keys = new long[ size( dimensions ) ];
+		final int[] position = new int[ n ];
+		final int[] tmp = new int[ n ];
+		for ( int i = 0; i < keys.length; ++i )
+		{
+			System.arraycopy( position, 0, tmp, 0, n );
+			keys[ i ] = key.applyAsLong( tmp );
+			for ( int d = 0; d < n; ++d )
+			{
+				if ( ++position[ d ] < dimensions[ d ] )
+					break;
+				position[ d ] = 0;
+			}
+		}
+		Arrays.sort( keys );
+		return keys;
+	}
+
+	/**
+	 * Hilbert curve transposition by John Skilling, "Programming the Hilbert
+	 * curve", AIP Conference Proceedings 707, 2004.  Converts coordinates
+	 * into a Hilbert index in transposed representation in place.
+	 */
+	private static void axesToTranspose( final int[] x, final int bits )
+	{
+		final int n = x.length;
+		final int m = 1 << ( bits - 1 );
+
+		/* inverse undo */
+		for ( int q = m; q > 1; q >>= 1 )
+		{
+			final int p = q - 1;
+			for ( int i = 0; i < n; ++i )
+			{
+				if ( ( x[ i ] & q ) != 0 )
+					x[ 0 ] ^= p;
+				else
+				{
+					final int t = ( x[ 0 ] ^ x[ i ] ) & p;
+					x[ 0 ] ^= t;
+					x[ i ] ^= t;
+				}
+			}
+		}
+
+		/* Gray encode */
+		for ( int i = 1; i < n; ++i )
+			x[ i ] ^= x[ i - 1 ];
+		int t = 0;
+		for ( int q = m; q > 1; q >>= 1 )
+			if ( ( x[ n - 1 ] & q ) != 0 )
+				t ^= q - 1;
+		for ( int i = 0; i < n; ++i )
+			x[ i ] ^= t;
+	}
+
+	/**
+	 * Inverse of the Hilbert curve transposition by John Skilling,
+	 * "Programming the Hilbert curve", AIP Conference Proceedings 707, 2004.
+	 * Converts a Hilbert index in transposed representation into coordinates
+	 * in place.
+	 */
+	private static void transposeToAxes( final int[] x, final int bits )
+	{
+		final int n = x.length;
+		final int size = 1 << bits;
+
+		/* Gray decode */
+		int t = x[ n - 1 ] >> 1;
+		for ( int i = n - 1; i > 0; --i )
+			x[ i ] ^= x[ i - 1 ];
+		x[ 0 ] ^= t;
+
+		/* undo excess work */
+		for ( int q = 2; q != size; q <<= 1 )
+		{
+			final int p = q - 1;
+			for ( int i = n - 1; i >= 0; --i )
+			{
+				if ( ( x[ i ] & q ) != 0 )
+					x[ 0 ] ^= p;
+				else
+				{
+					t = ( x[ 0 ] ^ x[ i ] ) & p;
+					x[ 0 ] ^= t;
+					x[ i ] ^= t;
+				}
+			}
+		}
+	}
+
+	private static int size( final int[] dimensions )
+	{
+		long size = 1;
+		for ( final int s : dimensions )
+			size *= s;
+		if ( size > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "Tile too large: " + Arrays.toString( dimensions ) );
+		return ( int )size;
+	}
+
+	private static int bits( final int[] dimensions )
+	{
+		int max = 1;
+		for ( final int s : dimensions )
+			max = Math.max( max, s );
+		return 32 - Integer.numberOfLeadingZeros( max - 1 );
+	}
+
+	/**
+	 * @return the number of bits per coordinate of the curve keys
+	 * @throws IllegalArgumentException
+	 *             if the keys do not fit into 63 bits
+	 */
+	private static int keyBits( final int[] dimensions )
+	{
+		final int bits = bits( dimensions );
+		if ( bits * dimensions.length > 63 )
+			throw new IllegalArgumentException( "Curve keys of tile " + Arrays.toString( dimensions ) + " exceed 63 bits." );
+		return bits;
+	}
+
+	private static final class Key
+	{
+		final int[] dimensions;
+
+		Key( final int[] dimensions )
+		{
+			this.dimensions = dimensions.clone();
+		}
+
+		@Override
+		public boolean equals( final Object o )
+		{
+			return o instanceof Key && Arrays.equals( dimensions, ( ( Key )o ).dimensions );
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Arrays.hashCode( dimensions );
+		}
+	}
+}
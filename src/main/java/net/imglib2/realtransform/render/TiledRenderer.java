@@ -0,0 +1,737 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.FinalRealInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealInterval;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.interpolation.InterpolatorFactory;
+import net.imglib2.outofbounds.OutOfBoundsConstantValueFactory;
+import net.imglib2.iterator.IntervalIterator;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.parallel.TaskExecutor;
+import net.imglib2.realtransform.AffineGet;
+import net.imglib2.realtransform.AffineRandomAccessible;
+import net.imglib2.realtransform.RealTransform;
+import net.imglib2.realtransform.RealTransformRandomAccessible;
+import net.imglib2.realtransform.interval.IntervalSamplingMethod;
+import net.imglib2.type.Type;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+/**
+ * Renders a {@link RandomAccessibleInterval} source transformed by a
+ * {@link RealTransform} into a target {@link RandomAccessibleInterval} tile
+ * by tile.
+ * <p>
+ * Before rendering a tile, its bounds are mapped into source space with
+ * {@link RealTransform#boundingInterval(RealInterval, IntervalSamplingMethod)}
+ * and compared with the source interval.  Tiles that map entirely outside of
+ * the source are filled with the out-of-bounds value without evaluating the
+ * transform per pixel.  Tiles that map entirely inside of the source are
+ * rendered from an interpolated source without out-of-bounds extension.  All
+ * other tiles are rendered from the source extended by the out-of-bounds
+ * value.
+ * <p>
+ * The classification is only as good as the bounding interval estimate.  For
+ * {@link AffineGet affine transformations}, the default
+ * {@link IntervalSamplingMethod#CORNERS} is exact, for other transformations,
+ * use a {@link IntervalSamplingMethod} that samples densely enough to capture
+ * the extent of the transformed tile.
+ * <p>
+ * Tiles are rendered in parallel with the {@link Parallelization} task
+ * executor of the calling thread.  Every thread maps tiles with its own copy
+ * of the transformation, the transformation must not be modified while
+ * rendering.  Pixels within a tile are visited in the
+ * order of a {@link TileTraversal}, raster order by default.
+ * <p>
+ * Rendering can be restricted to the pixels of a {@link RunLengthMask}, in
+ * which case the transform is evaluated and the source is sampled only at
+ * masked pixels.  The result is either written into a dense target, leaving
+ * other pixels untouched, or into a sparse target that holds one value per
+ * masked pixel.
+ *
+ * @param <T> data type
+ */
+public class TiledRenderer< T extends Type< T > >
+{
+	/**
+	 * Location of a target tile relative to the source after mapping it into
+	 * source space.
+	 */
+	public enum TileLocation
+	{
+		/** The tile maps entirely outside of the source. */
+		OUTSIDE,
+		/** The tile maps entirely inside of the source. */
+		INSIDE,
+		/** The tile overlaps the boundary of the source. */
+		BORDER
+	}
+
+	protected final RandomAccessibleInterval< T > source;
+
+	protected final RealTransform transformToSource;
+
+	protected final T outOfBoundsValue;
+
+	protected final int[] tileSize;
+
+	protected final RealRandomAccessible< T > boundedSource;
+
+	protected final RealRandomAccessible< T > extendedSource;
+
+	protected IntervalSamplingMethod samplingMethod = IntervalSamplingMethod.CORNERS;
+
+	protected double interpolationMargin = 1;
+
+	protected TileTraversal traversal = TileTraversal.RASTER;
+
+	protected SourcePrefetcher prefetcher = null;
+
+	protected ExecutorService prefetchService = null;
+
+	protected int prefetchDistance = 1;
+
+	/**
+	 * @param source
+	 *            the source
+	 * @param interpolatorFactory
+	 *            interpolation used to sample the source at real coordinates
+	 * @param transformToSource
+	 *            transformation from target to source coordinates
+	 * @param outOfBoundsValue
+	 *            value for target pixels that map outside of the source
+	 * @param tileSize
+	 *            size of the rendered tiles, the last entry is used for
+	 *            all remaining dimensions
+	 */
+	public TiledRenderer(
+			final RandomAccessibleInterval< T > source,
+			final InterpolatorFactory< T, RandomAccessible< T > > interpolatorFactory,
+			final RealTransform transformToSource,
+			final T outOfBoundsValue,
+			final int... tileSize )
+	{
+		assert source.numDimensions() == transformToSource.numTargetDimensions();
+
+		this.source = source;
+		this.transformToSource = transformToSource;
+		this.outOfBoundsValue = outOfBoundsValue.copy();
+		this.tileSize = tileSize;
+		boundedSource = Views.interpolate( source, interpolatorFactory );
+		extendedSource = Views.interpolate( Views.extend( source, new OutOfBoundsConstantValueFactory<>( this.outOfBoundsValue ) ), interpolatorFactory );
+	}
+
+	/**
+	 * Set the method used to estimate the source bounds of a target tile.
+	 *
+	 * @param samplingMethod
+	 *            the sampling method
+	 */
+	public void setSamplingMethod( final IntervalSamplingMethod samplingMethod )
+	{
+		this.samplingMethod = samplingMethod;
+	}
+
+	/**
+	 * Set the distance from the source boundary in pixels that the
+	 * interpolator reads beyond a coordinate.  A tile is considered inside if
+	 * its source bounds stay at least this distance inside of the source
+	 * interval, and outside if its source bounds stay at least this distance
+	 * outside of the source interval.  The default of 1 is safe for nearest
+	 * neighbor and n-linear interpolation.
+	 *
+	 * @param interpolationMargin
+	 *            the margin
+	 */
+	public void setInterpolationMargin( final double interpolationMargin )
+	{
+		this.interpolationMargin = interpolationMargin;
+	}
+
+	/**
+	 * Set the order in which the pixels of each tile are rendered.
+	 *
+	 * @param traversal
+	 *            the traversal order
+	 */
+	public void setTraversal( final TileTraversal traversal )
+	{
+		this.traversal = traversal;
+	}
+
+	/**
+	 * Prefetch the source data of tiles ahead of rendering them.  Before a
+	 * tile is rendered, the source bounds of the tile that is
+	 * <code>prefetchDistance</code> tiles ahead in rendering order are
+	 * clipped to the source interval and passed to the prefetcher on the
+	 * prefetch executor.  For I/O bound sources, an executor with many
+	 * threads, or virtual threads on Java 21, is a good choice.  Prefetching
+	 * is best effort, the renderer does not wait for it to complete.
+	 *
+	 * @param prefetcher
+	 *            the prefetcher, null to disable prefetching
+	 * @param prefetchService
+	 *            executor for prefetch tasks, required if prefetcher is not
+	 *            null
+	 * @param prefetchDistance
+	 *            number of tiles to prefetch ahead, typically the number of
+	 *            rendering threads
+	 */
+	public void setPrefetcher( final SourcePrefetcher prefetcher, final ExecutorService prefetchService, final int prefetchDistance )
+	{
+		if ( prefetcher != null && prefetchService == null )
+			throw new IllegalArgumentException( "Prefetching requires an executor." );
+		this.prefetcher = prefetcher;
+		this.prefetchService = prefetchService;
+		this.prefetchDistance = prefetchDistance;
+	}
+
+	public int numDimensions()
+	{
+		return transformToSource.numSourceDimensions();
+	}
+
+	/**
+	 * Locate a target tile relative to the source.
+	 *
+	 * @param tile
+	 *            the target tile
+	 * @return the location of the tile
+	 */
+	public TileLocation locate( final Interval tile )
+	{
+		return locate( sourceBounds( tile, transformToSource.copy() ) );
+	}
+
+	/**
+	 * Map a target tile into source space.
+	 *
+	 * @param tile
+	 *            the target tile
+	 * @param transform
+	 *            a copy of the transformation that is not used by other
+	 *            threads
+	 * @return the source bounds of the tile
+	 */
+	protected RealInterval sourceBounds( final Interval tile, final RealTransform transform )
+	{
+		return transform.boundingInterval( tile, samplingMethod );
+	}
+
+	/**
+	 * Locate the source bounds of a target tile relative to the source.
+	 *
+	 * @param bounds
+	 *            the source bounds
+	 * @return the location of the tile
+	 */
+	protected TileLocation locate( final RealInterval bounds )
+	{
+		boolean inside = true;
+		for ( int d = 0; d < source.numDimensions(); ++d )
+		{
+			final double min = bounds.realMin( d );
+			final double max = bounds.realMax( d );
+			if ( max < source.min( d ) - interpolationMargin || min > source.max( d ) + interpolationMargin )
+				return TileLocation.OUTSIDE;
+			if ( !( min >= source.min( d ) + interpolationMargin && max <= source.max( d ) - interpolationMargin ) )
+				inside = false;
+		}
+		return inside ? TileLocation.INSIDE : TileLocation.BORDER;
+	}
+
+	/**
+	 * Render the entire target.
+	 *
+	 * @param target
+	 *            the target
+	 */
+	public void render( final RandomAccessibleInterval< T > target )
+	{
+		final List< Interval > tiles = tiles( target, tileSize );
+		final ThreadLocal< RealTransform > transforms = ThreadLocal.withInitial( transformToSource::copy );
+		if ( prefetcher == null )
+		{
+			Parallelization.getTaskExecutor().forEach(
+					tiles,
+					tile -> renderTile( tile, target, locate( sourceBounds( tile, transforms.get() ) ) ) );
+			return;
+		}
+
+		/*
+		 * The source bounds of a tile are computed by whichever task needs
+		 * them first, usually the task that prefetches the tile, and reused
+		 * for rendering it.
+		 */
+		final AtomicReferenceArray< RealInterval > bounds = new AtomicReferenceArray<>( tiles.size() );
+		final ArrayList< Integer > indices = new ArrayList<>( tiles.size() );
+		for ( int i = 0; i < tiles.size(); ++i )
+			indices.add( i );
+		for ( int i = 0; i < Math.min( prefetchDistance, tiles.size() ); ++i )
+			prefetch( sourceBounds( tiles, i, bounds, transforms.get() ) );
+		Parallelization.getTaskExecutor().forEach(
+				indices,
+				i -> {
+					final RealTransform transform = transforms.get();
+					if ( i + prefetchDistance < tiles.size() )
+						prefetch( sourceBounds( tiles, i + prefetchDistance, bounds, transform ) );
+					renderTile( tiles.get( i ), target, locate( sourceBounds( tiles, i, bounds, transform ) ) );
+				} );
+	}
+
+	/**
+	 * Get the cached source bounds of a tile or compute and cache them.
+	 */
+	private RealInterval sourceBounds( final List< Interval > tiles, final int i, final AtomicReferenceArray< RealInterval > bounds, final RealTransform transform )
+	{
+		final RealInterval b = bounds.get( i );
+		if ( b != null )
+			return b;
+		bounds.compareAndSet( i, null, sourceBounds( tiles.get( i ), transform ) );
+		return bounds.get( i );
+	}
+
+	/**
+	 * Submit prefetching the source bounds of a target tile unless the tile
+	 * maps outside of the source.
+	 *
+	 * @param bounds
+	 *            the source bounds of the target tile
+	 */
+	protected void prefetch( final RealInterval bounds )
+	{
+		prefetchService.submit( () -> {
+			final int n = bounds.numDimensions();
+			final double[] min = new double[ n ];
+			final double[] max = new double[ n ];
+			for ( int d = 0; d < n; ++d )
+			{
+				min[ d ] = Math.max( source.min( d ), bounds.realMin( d ) - interpolationMargin );
+				max[ d ] = Math.min( source.max( d ), bounds.realMax( d ) + interpolationMargin );
+				if ( min[ d ] > max[ d ] )
+					return;
+			}
+			prefetcher.prefetch( new FinalRealInterval( min, max ) );
+		} );
+	}
+
+	/**
+	 * Render one tile of the target.
+	 *
+	 * @param tile
+	 *            the tile
+	 * @param target
+	 *            the target
+	 */
+	public void renderTile( final Interval tile, final RandomAccessible< T > target )
+	{
+		renderTile( tile, target, locate( tile ) );
+	}
+
+	/**
+	 * Render one tile of the target at a known location.
+	 *
+	 * @param tile
+	 *            the tile
+	 * @param target
+	 *            the target
+	 * @param location
+	 *            the location of the tile relative to the source
+	 */
+	protected void renderTile( final Interval tile, final RandomAccessible< T > target, final TileLocation location )
+	{
+		switch ( location )
+		{
+		case OUTSIDE:
+			fill( tile, target, outOfBoundsValue );
+			break;
+		case INSIDE:
+			renderTile( tile, target, boundedSource );
+			break;
+		default:
+			renderTile( tile, target, extendedSource );
+		}
+	}
+
+	/**
+	 * Render the pixels of the target that are in a mask.  Tiles that do not
+	 * intersect the mask are skipped, other pixels of the target are not
+	 * modified.
+	 *
+	 * @param target
+	 *            the target
+	 * @param mask
+	 *            the mask
+	 */
+	public void render( final RandomAccessibleInterval< T > target, final RunLengthMask mask )
+	{
+		final ThreadLocal< RealTransform > transforms = ThreadLocal.withInitial( transformToSource::copy );
+		Parallelization.getTaskExecutor().forEach(
+				tiles( target, tileSize ),
+				tile -> renderTile( tile, target, mask, transforms.get() ) );
+	}
+
+	/**
+	 * Render the pixels of one tile of the target that are in a mask.
+	 *
+	 * @param tile
+	 *            the tile
+	 * @param target
+	 *            the target
+	 * @param mask
+	 *            the mask
+	 */
+	public void renderTile( final Interval tile, final RandomAccessible< T > target, final RunLengthMask mask )
+	{
+		renderTile( tile, target, mask, transformToSource.copy() );
+	}
+
+	/**
+	 * Render the pixels of one tile of the target that are in a mask.
+	 *
+	 * @param tile
+	 *            the tile
+	 * @param target
+	 *            the target
+	 * @param mask
+	 *            the mask
+	 * @param transform
+	 *            a copy of the transformation that is not used by other
+	 *            threads, used to locate the tile
+	 */
+	protected void renderTile( final Interval tile, final RandomAccessible< T > target, final RunLengthMask mask, final RealTransform transform )
+	{
+		final ArrayList< long[] > runs = new ArrayList<>();
+		mask.forEachRun( tile, ( position, length, offset ) -> {
+			final long[] run = Arrays.copyOf( position, position.length + 1 );
+			run[ position.length ] = length;
+			runs.add( run );
+		} );
+		if ( runs.isEmpty() )
+			return;
+
+		final int n = tile.numDimensions();
+		final RandomAccess< T > targetAccess = target.randomAccess( tile );
+		final TileLocation location = locate( sourceBounds( tile, transform ) );
+		final RandomAccess< T > sourceAccess = location == TileLocation.OUTSIDE ? null :
+				transformed( location == TileLocation.INSIDE ? boundedSource : extendedSource ).randomAccess( tile );
+		for ( final long[] run : runs )
+		{
+			final long length = run[ n ];
+			targetAccess.setPosition( run[ 0 ], 0 );
+			for ( int d = 1; d < n; ++d )
+				targetAccess.setPosition( run[ d ], d );
+			if ( sourceAccess == null )
+				for ( long x = 0; x < length; ++x, targetAccess.fwd( 0 ) )
+					targetAccess.get().set( outOfBoundsValue );
+			else
+			{
+				sourceAccess.setPosition( targetAccess );
+				for ( long x = 0; x < length; ++x, targetAccess.fwd( 0 ), sourceAccess.fwd( 0 ) )
+					targetAccess.get().set( sourceAccess.get() );
+			}
+		}
+	}
+
+	/**
+	 * Render the pixels in a mask into a sparse target that stores one value
+	 * per masked pixel in the flat iteration order of the mask.  The runs of
+	 * the mask are rendered in ranges, each range is located relative to the
+	 * source once by the bounding interval of its runs.
+	 *
+	 * @param mask
+	 *            the mask
+	 * @param values
+	 *            one-dimensional target with {@link RunLengthMask#size()}
+	 *            elements, starting at 0
+	 */
+	public void render( final RunLengthMask mask, final RandomAccessible< T > values )
+	{
+		final TaskExecutor taskExecutor = Parallelization.getTaskExecutor();
+		final RandomAccessible< T > bounded = transformed( boundedSource );
+		final RandomAccessible< T > extended = transformed( extendedSource );
+		final ThreadLocal< RealTransform > transforms = ThreadLocal.withInitial( transformToSource::copy );
+		final int n = mask.numDimensions();
+		taskExecutor.forEach(
+				mask.ranges( 4 * taskExecutor.suggestNumberOfTasks() ),
+				range -> {
+					final long[] min = new long[ n ];
+					final long[] max = new long[ n ];
+					Arrays.fill( min, Long.MAX_VALUE );
+					Arrays.fill( max, Long.MIN_VALUE );
+					mask.forEachRun( range[ 0 ], range[ 1 ], ( position, length, offset ) -> {
+						for ( int d = 0; d < n; ++d )
+						{
+							min[ d ] = Math.min( min[ d ], position[ d ] );
+							max[ d ] = Math.max( max[ d ], position[ d ] );
+						}
+						max[ 0 ] = Math.max( max[ 0 ], position[ 0 ] + length - 1 );
+					} );
+					if ( min[ 0 ] > max[ 0 ] )
+						return;
+
+					final TileLocation location = locate( sourceBounds( new FinalInterval( min, max ), transforms.get() ) );
+					final RandomAccess< T > valuesAccess = values.randomAccess();
+					final RandomAccess< T > sourceAccess = location == TileLocation.OUTSIDE ? null :
+							( location == TileLocation.INSIDE ? bounded : extended ).randomAccess();
+					mask.forEachRun( range[ 0 ], range[ 1 ], ( position, length, offset ) -> {
+						valuesAccess.setPosition( offset, 0 );
+						if ( sourceAccess == null )
+						{
+							for ( long x = 0; x < length; ++x, valuesAccess.fwd( 0 ) )
+								valuesAccess.get().set( outOfBoundsValue );
+						}
+						else
+						{
+							sourceAccess.setPosition( position );
+							for ( long x = 0; x < length; ++x, valuesAccess.fwd( 0 ), sourceAccess.fwd( 0 ) )
+								valuesAccess.get().set( sourceAccess.get() );
+						}
+					} );
+				} );
+	}
+
+	/**
+	 * Render one tile of the target from an interpolated source.
+	 *
+	 * @param tile
+	 *            the tile
+	 * @param target
+	 *            the target
+	 * @param interpolatedSource
+	 *            the interpolated source
+	 */
+	protected void renderTile( final Interval tile, final RandomAccessible< T > target, final RealRandomAccessible< T > interpolatedSource )
+	{
+		copy( tile, transformed( interpolatedSource ), target, traversal );
+	}
+
+	/**
+	 * Create a transformed {@link RandomAccessible} from an interpolated
+	 * source.  {@link AffineGet affine transformations} use incremental moves.
+	 *
+	 * @param interpolatedSource
+	 *            the interpolated source
+	 * @return the transformed source
+	 */
+	protected RandomAccessible< T > transformed( final RealRandomAccessible< T > interpolatedSource )
+	{
+		if ( transformToSource instanceof AffineGet )
+			return new AffineRandomAccessible<>( interpolatedSource, ( AffineGet )transformToSource );
+		else
+			return new RealTransformRandomAccessible<>( interpolatedSource, transformToSource );
+	}
+
+	/**
+	 * Copy an interval from one {@link RandomAccessible} into another, row by
+	 * row along dimension 0.
+	 *
+	 * @param interval
+	 *            the interval
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @param <T> data type
+	 */
+	public static < T extends Type< T > > void copy( final Interval interval, final RandomAccessible< T > source, final RandomAccessible< T > target )
+	{
+		final RandomAccess< T > sourceAccess = source.randomAccess( interval );
+		final RandomAccess< T > targetAccess = target.randomAccess( interval );
+		final long width = interval.dimension( 0 );
+		final IntervalIterator rows = rows( interval );
+		while ( rows.hasNext() )
+		{
+			rows.fwd();
+			sourceAccess.setPosition( rows );
+			targetAccess.setPosition( rows );
+			for ( long x = 0; x < width; ++x )
+			{
+				targetAccess.get().set( sourceAccess.get() );
+				sourceAccess.fwd( 0 );
+				targetAccess.fwd( 0 );
+			}
+		}
+	}
+
+	/**
+	 * Copy an interval from one {@link RandomAccessible} into another in the
+	 * order of a {@link TileTraversal}.  Accesses are moved relative to the
+	 * previous pixel such that incremental moves of the source access are
+	 * used.
+	 *
+	 * @param interval
+	 *            the interval
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @param traversal
+	 *            the traversal order
+	 * @param <T> data type
+	 */
+	public static < T extends Type< T > > void copy(
+			final Interval interval,
+			final RandomAccessible< T > source,
+			final RandomAccessible< T > target,
+			final TileTraversal traversal )
+	{
+		if ( traversal == TileTraversal.RASTER )
+		{
+			copy( interval, source, target );
+			return;
+		}
+
+		final int n = interval.numDimensions();
+		final int[] dimensions = new int[ n ];
+		for ( int d = 0; d < n; ++d )
+			dimensions[ d ] = ( int )interval.dimension( d );
+		final int[] order = traversal.order( dimensions );
+
+		final RandomAccess< T > sourceAccess = source.randomAccess( interval );
+		final RandomAccess< T > targetAccess = target.randomAccess( interval );
+		sourceAccess.setPosition( interval.minAsLongArray() );
+		targetAccess.setPosition( interval.minAsLongArray() );
+		final int[] previous = new int[ n ];
+		for ( int i = 0; i < order.length; i += n )
+		{
+			for ( int d = 0; d < n; ++d )
+			{
+				final int distance = order[ i + d ] - previous[ d ];
+				if ( distance != 0 )
+				{
+					sourceAccess.move( distance, d );
+					targetAccess.move( distance, d );
+					previous[ d ] = order[ i + d ];
+				}
+			}
+			targetAccess.get().set( sourceAccess.get() );
+		}
+	}
+
+	/**
+	 * Fill an interval of a {@link RandomAccessible} with a constant value.
+	 *
+	 * @param interval
+	 *            the interval
+	 * @param target
+	 *            the target
+	 * @param value
+	 *            the value
+	 * @param <T> data type
+	 */
+	public static < T extends Type< T > > void fill( final Interval interval, final RandomAccessible< T > target, final T value )
+	{
+		final RandomAccess< T > targetAccess = target.randomAccess( interval );
+		final long width = interval.dimension( 0 );
+		final IntervalIterator rows = rows( interval );
+		while ( rows.hasNext() )
+		{
+			rows.fwd();
+			targetAccess.setPosition( rows );
+			for ( long x = 0; x < width; ++x )
+			{
+				targetAccess.get().set( value );
+				targetAccess.fwd( 0 );
+			}
+		}
+	}
+
+	/**
+	 * Create an {@link IntervalIterator} over the first pixels of all rows
+	 * along dimension 0 of an interval.
+	 *
+	 * @param interval
+	 *            the interval
+	 * @return the row iterator
+	 */
+	public static IntervalIterator rows( final Interval interval )
+	{
+		final long[] max = interval.maxAsLongArray();
+		max[ 0 ] = interval.min( 0 );
+		return new IntervalIterator( new FinalInterval( interval.minAsLongArray(), max ) );
+	}
+
+	/**
+	 * Split an interval into tiles.
+	 *
+	 * @param interval
+	 *            the interval
+	 * @param tileSize
+	 *            size of the tiles, the last entry is used for all remaining
+	 *            dimensions
+	 * @return the tiles in flat iteration order
+	 */
+	public static List< Interval > tiles( final Interval interval, final int... tileSize )
+	{
+		final int n = interval.numDimensions();
+		final int[] cellDimensions = new int[ n ];
+		for ( int d = 0; d < n; ++d )
+			cellDimensions[ d ] = tileSize[ Math.min( d, tileSize.length - 1 ) ];
+
+		final CellGrid grid = new CellGrid( interval.dimensionsAsLongArray(), cellDimensions );
+		final long numTiles = Intervals.numElements( grid.getGridDimensions() );
+		final ArrayList< Interval > tiles = new ArrayList<>();
+		final long[] gridPosition = new long[ n ];
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		for ( long i = 0; i < numTiles; ++i )
+		{
+			grid.getCellGridPositionFlat( i, gridPosition );
+			grid.getCellInterval( gridPosition, min, max );
+			for ( int d = 0; d < n; ++d )
+			{
+				min[ d ] += interval.min( d );
+				max[ d ] += interval.min( d );
+			}
+			tiles.add( new FinalInterval( min, max ) );
+		}
+		return tiles;
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RealPoint;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.realtransform.inverse.RealTransformFiniteDerivatives;
+import net.imglib2.realtransform.inverse.WrappedIterativeInvertibleRealTransform;
+import net.imglib2.type.numeric.real.DoubleType;
+
+public class BSplineDeformationTransformTest
+{
+	private static BSplineDeformationTransform random( final Random rnd, final double amplitude, final int... gridSize )
+	{
+		final int n = gridSize.length;
+		final double[] spacing = new double[ n ];
+		final double[] origin = new double[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			spacing[ d ] = 5 + d;
+			origin[ d ] = -2 * spacing[ d ];
+		}
+		final BSplineDeformationTransform transform = new BSplineDeformationTransform( spacing, origin, gridSize );
+		final double[] coefficients = transform.getCoefficients();
+		for ( int i = 0; i < coefficients.length; ++i )
+			coefficients[ i ] = amplitude * ( rnd.nextDouble() - 0.5 );
+		return transform;
+	}
+
+	@Test
+	public void testIdentityAndTranslation()
+	{
+		final BSplineDeformationTransform transform = new BSplineDeformationTransform( new double[] { 4, 4 }, new double[] { 0, 0 }, 5, 6 );
+		final double[] p = new double[] { 3.3, -7.1 };
+		final double[] q = new double[ 2 ];
+		transform.apply( p, q );
+		assertArrayEquals( p, q, 0 );
+
+		/* B-splines are a partition of unity */
+		for ( int i = 0; i < transform.getCoefficients().length; i += 2 )
+			transform.setCoefficient( new int[] { i / 2 % 5, i / 10 }, 1.5, -2 );
+		transform.apply( p, q );
+		assertArrayEquals( new double[] { 4.8, -9.1 }, q, 1e-12 );
+		assertEquals( 1, transform.jacobian( p ).get( 0, 0 ), 1e-12 );
+		assertEquals( 0, transform.jacobian( p ).get( 1, 0 ), 1e-12 );
+	}
+
+	@Test
+	public void testLinearReproduction()
+	{
+		/* coefficients of a linear displacement, as field image */
+		final double[][] a = new double[][] { { 0.1, -0.2, 0.05 }, { 0.02, 0.1, 0 }, { -0.1, 0.03, 0.2 } };
+		final double[] spacing = new double[] { 3, 4, 5 };
+		final double[] origin = new double[] { -3, -4, -5 };
+		final ArrayImg< DoubleType, ? > img = ArrayImgs.doubles( 3, 7, 6, 5 );
+		final RandomAccess< DoubleType > access = img.randomAccess();
+		for ( int z = 0; z < 5; ++z )
+			for ( int y = 0; y < 6; ++y )
+				for ( int x = 0; x < 7; ++x )
+				{
+					final double[] pos = new double[] { origin[ 0 ] + x * spacing[ 0 ], origin[ 1 ] + y * spacing[ 1 ], origin[ 2 ] + z * spacing[ 2 ] };
+					for ( int c = 0; c < 3; ++c )
+					{
+						access.setPosition( new long[] { c, x, y, z } );
+						access.get().set( a[ c ][ 0 ] * pos[ 0 ] + a[ c ][ 1 ] * pos[ 1 ] + a[ c ][ 2 ] * pos[ 2 ] );
+					}
+				}
+
+		final BSplineDeformationTransform transform = new BSplineDeformationTransform( img, spacing, origin );
+		final Random rnd = new Random( 1 );
+		final double[] p = new double[ 3 ];
+		final double[] q = new double[ 3 ];
+		for ( int i = 0; i < 100; ++i )
+		{
+			/* inside the region with full support */
+			for ( int d = 0; d < 3; ++d )
+				p[ d ] = rnd.nextDouble() * spacing[ d ] * ( img.dimension( d + 1 ) - 4 );
+			transform.apply( p, q );
+			final AffineTransform jacobian = transform.jacobian( p );
+			for ( int c = 0; c < 3; ++c )
+			{
+				assertEquals( p[ c ] + a[ c ][ 0 ] * p[ 0 ] + a[ c ][ 1 ] * p[ 1 ] + a[ c ][ 2 ] * p[ 2 ], q[ c ], 1e-10 );
+				for ( int d = 0; d < 3; ++d )
+					assertEquals( ( c == d ? 1 : 0 ) + a[ c ][ d ], jacobian.get( c, d ), 1e-10 );
+			}
+		}
+	}
+
+	private static void testJacobian( final BSplineDeformationTransform transform, final Random rnd )
+	{
+		final int n = transform.numSourceDimensions();
+		final RealTransformFiniteDerivatives finite = new RealTransformFiniteDerivatives( transform.copy() );
+		finite.setStep( 1e-6 );
+		final double[] p = new double[ n ];
+		for ( int i = 0; i < 50; ++i )
+		{
+			for ( int d = 0; d < n; ++d )
+				p[ d ] = rnd.nextDouble() * 40 - 15;
+			final AffineTransform expected = finite.jacobian( p ).copy();
+			final AffineTransform actual = transform.jacobian( p );
+			for ( int r = 0; r < n; ++r )
+				for ( int c = 0; c < n; ++c )
+					assertEquals( expected.get( r, c ), actual.get( r, c ), 1e-5 );
+		}
+	}
+
+	@Test
+	public void testJacobian()
+	{
+		final Random rnd = new Random( 2 );
+		testJacobian( random( rnd, 4, 6, 7 ), rnd );
+		testJacobian( random( rnd, 4, 5, 6, 4 ), rnd );
+		testJacobian( random( rnd, 4, 4, 3, 3, 3 ), rnd );
+	}
+
+	@Test
+	public void testBatchAndInverse()
+	{
+		final Random rnd = new Random( 3 );
+		final BSplineDeformationTransform transform = random( rnd, 3, 8, 8, 6 );
+
+		final double[] points = new double[ 3 * 20 ];
+		for ( int i = 0; i < points.length; ++i )
+			points[ i ] = rnd.nextDouble() * 30;
+		final double[] batch = new double[ points.length ];
+		transform.apply( points, batch, 20 );
+
+		final double[] q = new double[ 3 ];
+		final RealPoint target = new RealPoint( 3 );
+		for ( int i = 0; i < 20; ++i )
+		{
+			final double[] p = new double[] { points[ 3 * i ], points[ 3 * i + 1 ], points[ 3 * i + 2 ] };
+			transform.apply( p, q );
+			assertArrayEquals( new double[] { batch[ 3 * i ], batch[ 3 * i + 1 ], batch[ 3 * i + 2 ] }, q, 1e-12 );
+			transform.apply( RealPoint.wrap( p ), target );
+			assertArrayEquals( q, target.positionAsDoubleArray(), 1e-12 );
+		}
+
+		final WrappedIterativeInvertibleRealTransform< BSplineDeformationTransform > invertible = new WrappedIterativeInvertibleRealTransform<>( transform );
+		invertible.getOptimzer().setTolerance( 1e-6 );
+		final double[] p = new double[] { 12, 17, 9 };
+		final double[] inverse = new double[ 3 ];
+		transform.apply( p, q );
+		invertible.applyInverse( inverse, q );
+		assertArrayEquals( p, inverse, 1e-4 );
+	}
+}
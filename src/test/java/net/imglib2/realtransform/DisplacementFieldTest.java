@@ -36,6 +36,7 @@ package net.imglib2.realtransform;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
+import java.util.Random;
 import java.util.function.BiConsumer;
 import java.util.stream.DoubleStream;
 import java.util.stream.Stream;
@@ -58,6 +59,7 @@ import net.imglib2.img.basictypeaccess.array.DoubleArray;
 import net.imglib2.interpolation.randomaccess.NLinearInterpolatorFactory;
 import net.imglib2.iterator.IntervalIterator;
 import net.imglib2.loops.LoopBuilder;
+import net.imglib2.realtransform.inverse.RealTransformFiniteDerivatives;
 import net.imglib2.type.numeric.real.DoubleType;
 import net.imglib2.type.numeric.real.FloatType;
 import net.imglib2.util.ConstantUtils;
@@ -192,6 +194,108 @@ public class DisplacementFieldTest
 		Assert.assertArrayEquals( p, q, EPS );
 	}
 
+	@Test
+	public void testAnalyticJacobian()
+	{
+		final Random rnd = new Random( 12 );
+		final ArrayImg< DoubleType, DoubleArray > img = ArrayImgs.doubles( 3, 9, 8, 7 );
+		for ( final DoubleType t : img )
+			t.set( rnd.nextDouble() * 4 - 2 );
+
+		final double[] spacing = new double[] { 2, 3, 1.5 };
+		final DisplacementFieldTransform analytic = new DisplacementFieldTransform( img, spacing );
+		final RealTransformFiniteDerivatives finite = new RealTransformFiniteDerivatives( analytic.copy() );
+		finite.setStep( 1e-6 );
+
+		/* the field is piecewise linear, so finite differences within a cell are exact */
+		final double[] p = new double[ 3 ];
+		for ( int i = 0; i < 100; ++i )
+		{
+			for ( int d = 0; d < 3; ++d )
+				p[ d ] = rnd.nextDouble() * 14 - 1;
+			final AffineTransform expected = finite.jacobian( p ).copy();
+			final AffineTransform actual = analytic.jacobian( p );
+			for ( int r = 0; r < 3; ++r )
+				for ( int c = 0; c < 3; ++c )
+					assertEquals( expected.get( r, c ), actual.get( r, c ), 1e-5 );
+		}
+
+		/* outside of the field, only the identity remains */
+		final AffineTransform outside = analytic.copy().jacobian( new double[] { -5, 3, 2 } );
+		assertEquals( 1, outside.get( 0, 0 ), 0 );
+		assertEquals( 0, outside.get( 1, 0 ), 0 );
+	}
+
+	@Test
+	public void testAnalyticJacobianOnGridLines()
+	{
+		/* u = ( 0.1 x, 0.2 y ) */
+		final ArrayImg< DoubleType, DoubleArray > linear = ArrayImgs.doubles( 2, 5, 5 );
+		final RandomAccess< DoubleType > access = linear.randomAccess();
+		for ( int y = 0; y < 5; ++y )
+			for ( int x = 0; x < 5; ++x )
+			{
+				access.setPositionAndGet( 0, x, y ).set( 0.1 * x );
+				access.setPositionAndGet( 1, x, y ).set( 0.2 * y );
+			}
+		final DisplacementFieldTransform scaled = new DisplacementFieldTransform( linear );
+		for ( final double[] p : new double[][] { { 0, 0 }, { 1e-9, 1e-9 }, { 1, 1 }, { 0, 2.5 } } )
+		{
+			final AffineTransform jacobian = scaled.jacobian( p );
+			assertEquals( 1.1, jacobian.get( 0, 0 ), 1e-12 );
+			assertEquals( 1.2, jacobian.get( 1, 1 ), 1e-12 );
+		}
+
+		final Random rnd = new Random( 13 );
+		final ArrayImg< DoubleType, DoubleArray > img = ArrayImgs.doubles( 3, 9, 8, 7 );
+		for ( final DoubleType t : img )
+			t.set( rnd.nextDouble() * 4 - 2 );
+
+		final double[] spacing = new double[] { 2, 3, 1.5 };
+		final DisplacementFieldTransform analytic = new DisplacementFieldTransform( img, spacing );
+		final RealTransformFiniteDerivatives finite = new RealTransformFiniteDerivatives( analytic.copy() );
+		finite.setStep( 1e-6 );
+
+		/* forward differences take the upper cell like the analytic Jacobian */
+		final double[] p = new double[ 3 ];
+		for ( int i = 0; i < 200; ++i )
+		{
+			for ( int d = 0; d < 3; ++d )
+				p[ d ] = rnd.nextBoolean() ? rnd.nextInt( ( int )img.dimension( d + 1 ) ) * spacing[ d ] : rnd.nextDouble() * ( img.dimension( d + 1 ) - 1 ) * spacing[ d ];
+			if ( i < 8 )
+				for ( int d = 0; d < 3; ++d )
+					p[ d ] = ( i & 1 << d ) == 0 ? 0 : p[ d ];
+			final AffineTransform expected = finite.jacobian( p ).copy();
+			final AffineTransform actual = analytic.jacobian( p );
+			for ( int r = 0; r < 3; ++r )
+				for ( int c = 0; c < 3; ++c )
+					assertEquals( expected.get( r, c ), actual.get( r, c ), 1e-5 );
+		}
+	}
+
+	@Test
+	public void testAnalyticJacobianInverse()
+	{
+		final ArrayImg< DoubleType, DoubleArray > img = ArrayImgs.doubles( 2, 12, 12 );
+		final ArrayCursor< DoubleType > c = img.cursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			final double x = c.getDoublePosition( 1 );
+			final double y = c.getDoublePosition( 2 );
+			c.get().set( c.getIntPosition( 0 ) == 0 ? 0.5 * Math.sin( 0.3 * y ) : 0.4 * Math.cos( 0.2 * x ) );
+		}
+
+		final InvertibleDisplacementFieldTransform inverse = new InvertibleDisplacementFieldTransform( new DisplacementFieldTransform( img ) );
+		inverse.getOptimzer().setTolerance( EPS / 2 );
+		final double[] p = new double[] { 5.3, 4.6 };
+		final double[] q = new double[ 2 ];
+		final double[] r = new double[ 2 ];
+		inverse.apply( p, q );
+		inverse.applyInverse( r, q );
+		Assert.assertArrayEquals( p, r, EPS );
+	}
+
 	@Test
 	public void testDifferentDimensions()
 	{
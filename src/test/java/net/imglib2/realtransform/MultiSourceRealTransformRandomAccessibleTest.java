@@ -0,0 +1,160 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPositionable;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.position.FunctionRealRandomAccessible;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.view.composite.Composite;
+
+public class MultiSourceRealTransformRandomAccessibleTest
+{
+	final static double EPS = 1e-9;
+
+	/**
+	 * Counts how often it is applied, shared by all copies.
+	 */
+	static class CountingTransform implements RealTransform
+	{
+		final RealTransform transform;
+
+		final AtomicInteger count;
+
+		CountingTransform( final RealTransform transform, final AtomicInteger count )
+		{
+			this.transform = transform;
+			this.count = count;
+		}
+
+		@Override
+		public int numSourceDimensions()
+		{
+			return transform.numSourceDimensions();
+		}
+
+		@Override
+		public int numTargetDimensions()
+		{
+			return transform.numTargetDimensions();
+		}
+
+		@Override
+		public void apply( final double[] source, final double[] target )
+		{
+			count.incrementAndGet();
+			transform.apply( source, target );
+		}
+
+		@Override
+		public void apply( final RealLocalizable source, final RealPositionable target )
+		{
+			count.incrementAndGet();
+			transform.apply( source, target );
+		}
+
+		@Override
+		public RealTransform copy()
+		{
+			return new CountingTransform( transform.copy(), count );
+		}
+	}
+
+	private static RealRandomAccessible< DoubleType > channel( final int c )
+	{
+		return new FunctionRealRandomAccessible<>(
+				2,
+				( x, t ) -> t.set( c * 1000 + x.getDoublePosition( 0 ) * x.getDoublePosition( 1 ) ),
+				DoubleType::new );
+	}
+
+	@Test
+	public void testSharedTransform()
+	{
+		final List< RealRandomAccessible< DoubleType > > channels = new ArrayList<>();
+		for ( int c = 0; c < 4; ++c )
+			channels.add( channel( c ) );
+
+		final AffineTransform2D affine = new AffineTransform2D();
+		affine.rotate( 0.4 );
+		affine.translate( 1.5, -2 );
+		final AtomicInteger count = new AtomicInteger();
+		final MultiSourceRealTransformRandomAccessible< DoubleType, RealTransform > multi =
+				new MultiSourceRealTransformRandomAccessible<>( channels, new CountingTransform( affine, count ) );
+
+		final RandomAccess< Composite< DoubleType > > access = multi.randomAccess();
+		final List< RandomAccess< DoubleType > > expected = new ArrayList<>();
+		for ( final RealRandomAccessible< DoubleType > channel : channels )
+			expected.add( new RealTransformRandomAccessible<>( channel, affine ).randomAccess() );
+
+		int gets = 0;
+		for ( long y = -3; y < 4; ++y )
+		{
+			for ( long x = -5; x < 6; ++x )
+			{
+				access.setPosition( new long[] { x, y } );
+				final Composite< DoubleType > composite = access.get();
+				++gets;
+				for ( int c = 0; c < channels.size(); ++c )
+				{
+					expected.get( c ).setPosition( access );
+					assertEquals( expected.get( c ).get().get(), composite.get( c ).get(), EPS );
+				}
+			}
+		}
+		assertEquals( gets, count.get() );
+	}
+
+	@Test
+	public void testRealViews()
+	{
+		final Translation2D translation = new Translation2D( 3, -1 );
+		final RandomAccess< Composite< DoubleType > > access = RealViews.transform( Arrays.asList( channel( 0 ), channel( 1 ) ), translation ).randomAccess();
+		access.setPosition( new long[] { 5, 2 } );
+		assertEquals( 2 * 3, access.get().get( 0 ).get(), EPS );
+		assertEquals( 1000 + 2 * 3, access.copy().get().get( 1 ).get(), EPS );
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.interpolation.randomaccess.NearestNeighborInterpolatorFactory;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.view.Views;
+
+public class NearestNeighborAffineRandomAccessibleTest
+{
+	@Test
+	public void testMatchesInterpolatedAffine()
+	{
+		final Random rnd = new Random( 42 );
+		final ArrayImg< IntType, IntArray > img = ArrayImgs.ints( 32, 24, 16 );
+		int i = 0;
+		for ( final IntType t : img )
+			t.set( i++ );
+		final RandomAccessible< IntType > extended = Views.extendValue( img, -1 );
+
+		for ( int k = 0; k < 10; ++k )
+		{
+			final AffineTransform3D affine = new AffineTransform3D();
+			affine.rotate( 0, rnd.nextDouble() * Math.PI );
+			affine.rotate( 1, rnd.nextDouble() * Math.PI );
+			affine.scale( 0.5 + rnd.nextDouble() );
+			affine.translate( rnd.nextDouble() * 20, rnd.nextDouble() * 20, rnd.nextDouble() * 10 );
+
+			final RandomAccessible< IntType > expected = RealViews.affine(
+					Views.interpolate( extended, new NearestNeighborInterpolatorFactory<>() ),
+					affine );
+			final NearestNeighborAffineRandomAccessible< IntType > actual =
+					new NearestNeighborAffineRandomAccessible<>( extended, affine.inverse() );
+
+			final RandomAccess< IntType > e = expected.randomAccess();
+			final RandomAccess< IntType > a = actual.randomAccess();
+			final long[] min = { -5, -7, -3 };
+			for ( long z = min[ 2 ]; z < 20; ++z )
+			{
+				for ( long y = min[ 1 ]; y < 30; ++y )
+				{
+					e.setPosition( new long[] { min[ 0 ], y, z } );
+					a.setPosition( new long[] { min[ 0 ], y, z } );
+					for ( long x = min[ 0 ]; x < 40; ++x )
+					{
+						assertEquals( e.get().get(), a.get().get() );
+						e.fwd( 0 );
+						a.fwd( 0 );
+					}
+					for ( long x = 40; x > min[ 0 ]; --x )
+					{
+						e.bck( 0 );
+						a.bck( 0 );
+						assertEquals( e.get().get(), a.get().get() );
+					}
+				}
+			}
+
+			e.setPosition( new long[] { 3, 4, 5 } );
+			a.setPosition( new long[] { 3, 4, 5 } );
+			e.move( 7, 1 );
+			a.move( 7, 1 );
+			assertEquals( e.get().get(), a.copy().get().get() );
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.position.FunctionRealRandomAccessible;
+import net.imglib2.type.numeric.real.DoubleType;
+
+public class ScaleAndTranslationRandomAccessibleTest
+{
+	final static double EPS = 1e-9;
+
+	/* a smooth function that identifies its position */
+	final static RealRandomAccessible< DoubleType > SOURCE = new FunctionRealRandomAccessible<>(
+			3,
+			( x, t ) -> t.set( x.getDoublePosition( 0 ) + 100 * x.getDoublePosition( 1 ) + 10000 * x.getDoublePosition( 2 ) ),
+			DoubleType::new );
+
+	final static AffineGet[] TRANSFORMS = {
+			new Translation3D( 1.5, -2.25, 3 ),
+			new Scale3D( 0.5, 2, 1.25 ),
+			new ScaleAndTranslation( new double[] { 0.5, 2, 1.25 }, new double[] { 1.5, -2.25, 3 } )
+	};
+
+	@Test
+	public void testRealViewsPicksSpecialization()
+	{
+		assertTrue( RealViews.affine( SOURCE, TRANSFORMS[ 0 ] ) instanceof TranslationRandomAccessible );
+		assertTrue( RealViews.affine( SOURCE, TRANSFORMS[ 1 ] ) instanceof ScaleAndTranslationRandomAccessible );
+		assertTrue( RealViews.affine( SOURCE, TRANSFORMS[ 2 ] ) instanceof ScaleAndTranslationRandomAccessible );
+		assertTrue( RealViews.affineReal( SOURCE, TRANSFORMS[ 0 ] ) instanceof TranslationRealRandomAccessible );
+		assertTrue( RealViews.affineReal( SOURCE, TRANSFORMS[ 2 ] ) instanceof ScaleAndTranslationRealRandomAccessible );
+		assertTrue( !( RealViews.affine( SOURCE, new AffineTransform3D() ) instanceof ScaleAndTranslationRandomAccessible ) );
+	}
+
+	@Test
+	public void testRandomAccess()
+	{
+		for ( final AffineGet transform : TRANSFORMS )
+		{
+			final RandomAccess< DoubleType > expected = new AffineRandomAccessible<>( SOURCE, transform.inverse() ).randomAccess();
+			final RandomAccess< DoubleType > actual = RealViews.affine( SOURCE, transform ).randomAccess();
+
+			expected.setPosition( new long[] { -3, 4, 7 } );
+			actual.setPosition( new long[] { -3, 4, 7 } );
+			assertEquals( expected.get().get(), actual.get().get(), EPS );
+			for ( int d = 0; d < 3; ++d )
+			{
+				expected.fwd( d );
+				actual.fwd( d );
+				assertEquals( expected.get().get(), actual.get().get(), EPS );
+				expected.move( -5, d );
+				actual.move( -5, d );
+				assertEquals( expected.get().get(), actual.get().get(), EPS );
+				expected.bck( d );
+				actual.bck( d );
+				assertEquals( expected.get().get(), actual.get().get(), EPS );
+				expected.setPosition( 11, d );
+				actual.setPosition( 11, d );
+				assertEquals( expected.get().get(), actual.get().get(), EPS );
+			}
+		}
+	}
+
+	@Test
+	public void testRealRandomAccess()
+	{
+		for ( final AffineGet transform : TRANSFORMS )
+		{
+			final RealRandomAccess< DoubleType > expected = new AffineRealRandomAccessible<>( SOURCE, transform.inverse() ).realRandomAccess();
+			final RealRandomAccess< DoubleType > actual = RealViews.affineReal( SOURCE, transform ).realRandomAccess();
+
+			expected.setPosition( new double[] { -3.5, 4.25, 7 } );
+			actual.setPosition( new double[] { -3.5, 4.25, 7 } );
+			assertEquals( expected.get().get(), actual.get().get(), EPS );
+			for ( int d = 0; d < 3; ++d )
+			{
+				expected.fwd( d );
+				actual.fwd( d );
+				assertEquals( expected.get().get(), actual.get().get(), EPS );
+				expected.move( -2.75, d );
+				actual.move( -2.75, d );
+				assertEquals( expected.get().get(), actual.get().get(), EPS );
+				expected.bck( d );
+				actual.bck( d );
+				assertEquals( expected.get().get(), actual.get().get(), EPS );
+				expected.setPosition( 1.125, d );
+				actual.setPosition( 1.125, d );
+				assertEquals( expected.get().get(), actual.get().get(), EPS );
+			}
+			assertEquals( expected.get().get(), actual.copy().get().get(), EPS );
+		}
+	}
+}
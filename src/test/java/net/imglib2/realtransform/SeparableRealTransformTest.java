@@ -0,0 +1,102 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SeparableRealTransformTest
+{
+	final static double EPS = 1e-9;
+
+	@Test
+	public void testApply()
+	{
+		final SeparableRealTransform t = new SeparableRealTransform( 3 );
+		assertTrue( t.isIdentity() );
+
+		t.setLinear( 0, 2, 1 );
+		t.setTable( 1, 0, 1, 3, 7 );
+		t.setTable( 2, 5, 4, 0 );
+		assertFalse( t.isIdentity() );
+
+		final double[] x = { 1.5, 1.5, 1.25 };
+		final double[] y = new double[ 3 ];
+		t.apply( x, y );
+		assertEquals( 4, y[ 0 ], EPS );
+		assertEquals( 2, y[ 1 ], EPS );
+		assertEquals( 3, y[ 2 ], EPS );
+
+		/* extrapolation */
+		assertEquals( -1, t.apply( -1, 1 ), EPS );
+		assertEquals( 15, t.apply( 5, 1 ), EPS );
+		assertEquals( -4, t.apply( 3, 2 ), EPS );
+	}
+
+	@Test
+	public void testInverse()
+	{
+		final SeparableRealTransform t = new SeparableRealTransform( 3 );
+		t.setLinear( 0, -0.5, 3 );
+		t.setTable( 1, 0, 0.5, 2, 2.25, 10 );
+		t.setTable( 2, 5, 4, 0, -1 );
+
+		final double[] x = new double[ 3 ];
+		final double[] y = new double[ 3 ];
+		final double[] z = new double[ 3 ];
+		for ( double s = -2; s < 6; s += 0.125 )
+		{
+			x[ 0 ] = x[ 1 ] = x[ 2 ] = s;
+			t.apply( x, y );
+			t.inverse().apply( y, z );
+			for ( int d = 0; d < 3; ++d )
+				assertEquals( s, z[ d ], EPS );
+		}
+
+		final SeparableRealTransform copy = t.copy();
+		copy.setLinear( 1, 1, 0 );
+		assertTrue( t.isTable( 1 ) );
+		assertFalse( copy.isTable( 1 ) );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testNonMonotoneTable()
+	{
+		new SeparableRealTransform( 1 ).setTable( 0, 0, 1, 1, 2 );
+	}
+}
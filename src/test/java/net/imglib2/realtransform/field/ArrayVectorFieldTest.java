@@ -0,0 +1,136 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import static net.imglib2.realtransform.field.VectorFieldTestUtil.fill;
+import static net.imglib2.realtransform.field.VectorFieldTestUtil.randomField;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.interpolation.randomaccess.NLinearInterpolatorFactory;
+import net.imglib2.realtransform.DisplacementFieldTransform;
+import net.imglib2.realtransform.PositionFieldTransform;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+import net.imglib2.view.composite.RealComposite;
+
+public class ArrayVectorFieldTest
+{
+	private static < T extends RealType< T > & NativeType< T > > void compare( final ArrayImg< T, ? > img, final long seed, final double eps )
+	{
+		final ArrayVectorField field = ArrayVectorField.wrap( img );
+		assertNotNull( field );
+		assertEquals( img.numDimensions() - 1, field.numDimensions() );
+		assertEquals( img.dimension( 0 ), field.numComponents() );
+
+		/* n-linear interpolation of the generic view stack */
+		final RealRandomAccessible< RealComposite< T > > reference = Views.interpolate(
+				Views.extendBorder( Views.collapseReal( Views.moveAxis( img, 0, img.numDimensions() - 1 ) ) ),
+				new NLinearInterpolatorFactory< RealComposite< T > >() );
+		VectorFieldTestUtil.compare( reference, field, seed, 500, eps );
+	}
+
+	@Test
+	public void testDouble()
+	{
+		compare( randomField( 3, 2, 7, 5 ), 3, 1e-9 );
+		compare( randomField( 4, 3, 6, 5, 4 ), 4, 1e-9 );
+		compare( randomField( 5, 2, 3, 4, 2, 3 ), 5, 1e-9 );
+		compare( randomField( 6, 3, 1, 5, 4 ), 6, 1e-9 );
+	}
+
+	@Test
+	public void testFloat()
+	{
+		final ArrayImg< FloatType, ? > img2d = ArrayImgs.floats( 2, 7, 5 );
+		fill( img2d, 7 );
+		compare( img2d, 7, 1e-5 );
+
+		final ArrayImg< FloatType, ? > img3d = ArrayImgs.floats( 3, 6, 5, 4 );
+		fill( img3d, 8 );
+		compare( img3d, 8, 1e-5 );
+	}
+
+	@Test
+	public void testWrap()
+	{
+		assertNull( ArrayVectorField.wrap( ArrayImgs.unsignedBytes( 2, 3, 4 ) ) );
+		assertNull( ArrayVectorField.wrap( Views.translate( ArrayImgs.doubles( 2, 3, 4 ), 0, 1, 1 ) ) );
+		assertNull( ArrayVectorField.wrap( ArrayImgs.doubles( 4 ) ) );
+	}
+
+	@Test
+	public void testFieldTransforms()
+	{
+		final Random rnd = new Random( 5 );
+		final ArrayImg< DoubleType, ? > img = randomField( 5, 3, 8, 7, 6 );
+
+		final PositionFieldTransform fast = new PositionFieldTransform( img, 0.5, 2, 1.5 );
+		final PositionFieldTransform generic = new PositionFieldTransform( Views.interval( img, img ), 0.5, 2, 1.5 );
+		final DisplacementFieldTransform fastDisplacement = new DisplacementFieldTransform( img );
+		final DisplacementFieldTransform genericDisplacement = new DisplacementFieldTransform( Views.interval( img, img ) );
+		assertEquals( 3, fast.numSourceDimensions() );
+		assertEquals( 3, fast.numTargetDimensions() );
+		assertEquals( 3, fastDisplacement.numTargetDimensions() );
+
+		final double[] p = new double[ 3 ];
+		final double[] expected = new double[ 3 ];
+		final double[] actual = new double[ 3 ];
+		for ( int i = 0; i < 200; ++i )
+		{
+			for ( int d = 0; d < 3; ++d )
+				p[ d ] = rnd.nextDouble() * 12 - 1;
+			generic.apply( p, expected );
+			fast.apply( p, actual );
+			assertArrayEquals( expected, actual, 1e-9 );
+			genericDisplacement.apply( p, expected );
+			fastDisplacement.apply( p, actual );
+			assertArrayEquals( expected, actual, 1e-9 );
+		}
+		assertTrue( fast.copy() instanceof PositionFieldTransform );
+	}
+}
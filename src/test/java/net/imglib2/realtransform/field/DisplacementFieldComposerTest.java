@@ -0,0 +1,129 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.img.array.ArrayCursor;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.realtransform.AffineTransform2D;
+import net.imglib2.realtransform.DisplacementFieldTransform;
+import net.imglib2.realtransform.RealTransformSequence;
+import net.imglib2.type.numeric.real.DoubleType;
+
+public class DisplacementFieldComposerTest
+{
+	private static DisplacementFieldTransform field( final double frequency, final double amplitude )
+	{
+		final ArrayImg< DoubleType, ? > img = ArrayImgs.doubles( 2, 40, 40 );
+		final ArrayCursor< DoubleType > c = img.cursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			final double x = c.getDoublePosition( 1 );
+			final double y = c.getDoublePosition( 2 );
+			c.get().set( c.getIntPosition( 0 ) == 0 ? amplitude * Math.sin( frequency * y ) : amplitude * Math.cos( frequency * x ) );
+		}
+		return new DisplacementFieldTransform( img, 2, 2 );
+	}
+
+	private static RealTransformSequence chain()
+	{
+		final AffineTransform2D affine = new AffineTransform2D();
+		affine.rotate( 0.1 );
+		affine.translate( 3, -2 );
+		final RealTransformSequence chain = new RealTransformSequence();
+		chain.add( field( 0.1, 2 ) );
+		chain.add( affine );
+		chain.add( field( 0.15, 1.5 ) );
+		return chain;
+	}
+
+	@Test
+	public void testCompose()
+	{
+		final RealTransformSequence chain = chain();
+		final DisplacementFieldComposer composer = new DisplacementFieldComposer( chain );
+		final AtomicReference< Double > progress = new AtomicReference<>( 0.0 );
+		composer.setProgress( progress::set );
+		final DisplacementFieldComposer.Result result = composer.compose( new FinalInterval( 60, 60 ), new double[] { 1, 1 }, new double[] { 5, 5 } );
+		assertEquals( 1.0, progress.get(), 0 );
+
+		/* exact at grid points */
+		final double[] x = new double[] { 17, 31 };
+		final double[] expected = new double[ 2 ];
+		final double[] actual = new double[ 2 ];
+		chain.apply( x, expected );
+		result.getTransform().apply( x, actual );
+		assertArrayEquals( expected, actual, 1e-12 );
+
+		assertTrue( result.getMaxError() < 0.05 );
+		assertTrue( result.getRmsError() <= result.getMaxError() );
+		assertEquals( 0, result.getNumClipped() );
+	}
+
+	@Test
+	public void testCompactStorage()
+	{
+		final DisplacementFieldComposer composer = new DisplacementFieldComposer( chain() );
+		final FinalInterval interval = new FinalInterval( 60, 60 );
+		final double[] spacing = new double[] { 1, 1 };
+		final double[] offset = new double[] { 5, 5 };
+		final double reference = composer.compose( interval, spacing, offset ).getMaxError();
+
+		composer.setStorage( DisplacementFieldComposer.Storage.FLOAT32 );
+		assertEquals( reference, composer.compose( interval, spacing, offset ).getMaxError(), 1e-4 );
+
+		composer.setStorage( DisplacementFieldComposer.Storage.INT16 );
+		composer.setQuantizationRange( 16 );
+		final DisplacementFieldComposer.Result int16 = composer.compose( interval, spacing, offset );
+		assertTrue( int16.getField() instanceof QuantizedVectorField );
+		assertEquals( 0, int16.getNumClipped() );
+		assertEquals( reference, int16.getMaxError(), 16.0 / Short.MAX_VALUE );
+
+		composer.setStorage( DisplacementFieldComposer.Storage.INT8 );
+		composer.setQuantizationRange( 1 );
+		final DisplacementFieldComposer.Result int8 = composer.compose( interval, spacing, offset );
+		assertTrue( int8.getNumClipped() > 0 );
+		assertTrue( int8.getMaxError() > 1 );
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.realtransform.DisplacementFieldTransform;
+import net.imglib2.realtransform.PositionFieldTransform;
+import net.imglib2.realtransform.Scale3D;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+public class FieldMaterializerTest
+{
+	private static AffineTransform3D transform()
+	{
+		final AffineTransform3D affine = new AffineTransform3D();
+		affine.rotate( 1, 0.4 );
+		affine.scale( 0.9 );
+		affine.translate( 1, 2, -3 );
+		return affine;
+	}
+
+	private static void assertFieldEquals( final RandomAccessibleInterval< DoubleType > expected, final RandomAccessibleInterval< ? extends RealType< ? > > actual, final double eps )
+	{
+		for ( int d = 0; d < expected.numDimensions(); ++d )
+			assertEquals( expected.dimension( d ), actual.dimension( d ) );
+		LoopBuilder.setImages( expected, actual ).forEachPixel( ( e, a ) -> assertEquals( e.getRealDouble(), a.getRealDouble(), eps ) );
+	}
+
+	@Test
+	public void testPositionField()
+	{
+		final FinalInterval interval = new FinalInterval( new long[] { -3, 0, 2 }, new long[] { 40, 37, 21 } );
+		final double[] spacing = new double[] { 0.5, 1, 2 };
+		final double[] offset = new double[] { 1, -1, 0 };
+		final List< Double > progress = new ArrayList<>();
+		final RandomAccessibleInterval< DoubleType > materialized = PositionFieldTransform.materializePositionField( transform(), interval, spacing, offset, progress::add );
+		assertFieldEquals( PositionFieldTransform.createPositionField( transform(), interval, spacing, offset ), materialized, 1e-12 );
+
+		assertTrue( progress.size() > 1 );
+		assertEquals( 1.0, progress.get( progress.size() - 1 ), 0 );
+		for ( int i = 1; i < progress.size(); ++i )
+			assertTrue( progress.get( i ) >= progress.get( i - 1 ) );
+	}
+
+	@Test
+	public void testDisplacementField()
+	{
+		final FinalInterval interval = new FinalInterval( 33, 20, 17 );
+		final double[] spacing = new double[] { 2, 2, 3 };
+		final RandomAccessibleInterval< DoubleType > lazy = DisplacementFieldTransform.createDisplacementField( transform(), interval, spacing );
+		assertFieldEquals( lazy, DisplacementFieldTransform.materializeDisplacementField( transform(), interval, spacing, new double[ 3 ], null ), 1e-12 );
+
+		final CellImg< FloatType, ? > cells = new CellImgFactory<>( new FloatType(), 3, 8, 5, 4 ).create( 3, 33, 20, 17 );
+		DisplacementFieldTransform.materializeDisplacementField( transform(), interval, new Scale3D( spacing ), cells, null );
+		assertFieldEquals( lazy, cells, 1e-4 );
+	}
+}
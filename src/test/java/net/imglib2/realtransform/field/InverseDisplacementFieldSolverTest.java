@@ -0,0 +1,134 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.img.array.ArrayCursor;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.realtransform.AffineTransform;
+import net.imglib2.realtransform.DisplacementFieldTransform;
+import net.imglib2.realtransform.ExplicitInvertibleRealTransform;
+import net.imglib2.type.numeric.real.DoubleType;
+
+public class InverseDisplacementFieldSolverTest
+{
+	private static DisplacementFieldTransform forward()
+	{
+		final ArrayImg< DoubleType, ? > img = ArrayImgs.doubles( 3, 20, 18, 16 );
+		final ArrayCursor< DoubleType > c = img.cursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			final double x = c.getDoublePosition( 1 );
+			final double y = c.getDoublePosition( 2 );
+			final double z = c.getDoublePosition( 3 );
+			switch ( c.getIntPosition( 0 ) )
+			{
+			case 0:
+				c.get().set( 1.5 * Math.sin( 0.2 * y ) + 0.5 );
+				break;
+			case 1:
+				c.get().set( 1.2 * Math.cos( 0.15 * z + 0.1 * x ) );
+				break;
+			default:
+				c.get().set( -0.8 * Math.sin( 0.1 * x * 0.5 + 0.2 * y ) );
+			}
+		}
+		return new DisplacementFieldTransform( img, 2, 2, 2 );
+	}
+
+	@Test
+	public void testInverse()
+	{
+		final DisplacementFieldTransform forward = forward();
+		final InverseDisplacementFieldSolver solver = new InverseDisplacementFieldSolver( forward );
+		solver.setTolerance( 1e-6 );
+		final InverseDisplacementFieldSolver.Result result = solver.solve( new FinalInterval( 30, 28, 24 ), new double[] { 1, 1, 1.25 }, new double[] { 3, 3, 3 } );
+
+		assertEquals( 30 * 28 * 24, result.getNumPoints() );
+		assertEquals( 0, result.getNumUnconverged() );
+		assertTrue( result.getMaxResidual() <= 1e-6 );
+		assertTrue( result.getMeanIterations() < 20 );
+		assertEquals( 3, result.getField().dimension( 0 ) );
+
+		/* exact on grid points, interpolation error in between */
+		final ExplicitInvertibleRealTransform invertible = result.asInvertible( forward );
+		final double[] y = new double[ 3 ];
+		final double[] x = new double[ 3 ];
+		final double[] fx = new double[ 3 ];
+		final Random rnd = new Random( 13 );
+		for ( int i = 0; i < 100; ++i )
+		{
+			y[ 0 ] = 3 + rnd.nextInt( 30 );
+			y[ 1 ] = 3 + rnd.nextInt( 28 );
+			y[ 2 ] = 3 + 1.25 * rnd.nextInt( 24 );
+			invertible.applyInverse( x, y );
+			forward.apply( x, fx );
+			assertArrayEquals( y, fx, 1e-5 );
+
+			for ( int d = 0; d < 3; ++d )
+				y[ d ] = 4 + rnd.nextDouble() * 25;
+			invertible.applyInverse( x, y );
+			forward.apply( x, fx );
+			assertArrayEquals( y, fx, 0.05 );
+
+			/* the Jacobian of the inverse field inverts the forward Jacobian */
+			final AffineTransform inverseJacobian = result.getInverse().jacobian( y ).copy();
+			final AffineTransform identity = forward.jacobian( x ).copy().preConcatenate( inverseJacobian );
+			for ( int r = 0; r < 3; ++r )
+				for ( int c = 0; c < 3; ++c )
+					assertEquals( r == c ? 1 : 0, identity.get( r, c ), 0.1 );
+		}
+	}
+
+	@Test
+	public void testUnconverged()
+	{
+		final InverseDisplacementFieldSolver solver = new InverseDisplacementFieldSolver( forward() );
+		solver.setTolerance( 1e-12 );
+		solver.setMaxIterations( 1 );
+		final InverseDisplacementFieldSolver.Result result = solver.solve( new FinalInterval( 10, 10, 10 ), new double[] { 2, 2, 2 }, new double[ 3 ] );
+		assertTrue( result.getNumUnconverged() > 0 );
+		assertTrue( result.getMaxResidual() > 1e-12 );
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import static net.imglib2.realtransform.field.VectorFieldTestUtil.compare;
+import static net.imglib2.realtransform.field.VectorFieldTestUtil.randomField;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.realtransform.field.MappedVectorField.DataType;
+import net.imglib2.type.numeric.real.DoubleType;
+
+public class MappedVectorFieldTest
+{
+	@Test
+	public void testMapping() throws IOException
+	{
+		final ArrayImg< DoubleType, ? > img = randomField( 10, 3, 7, 6, 5 );
+		final ArrayVectorField reference = ArrayVectorField.wrap( img );
+
+		final Path file = Files.createTempFile( "field", ".raw" );
+		try
+		{
+			MappedVectorField.write( img, file, DataType.FLOAT64, ByteOrder.LITTLE_ENDIAN );
+			assertEquals( 3 * 7 * 6 * 5 * 8, Files.size( file ) );
+			compare( reference, new MappedVectorField( file, 0, DataType.FLOAT64, ByteOrder.LITTLE_ENDIAN, 3, 7, 6, 5 ), 11, 500, 1e-12 );
+
+			/* small segments so that vectors span segment boundaries */
+			compare( reference, new MappedVectorField( file, 0, DataType.FLOAT64, ByteOrder.LITTLE_ENDIAN, 6, 3, new long[] { 7, 6, 5 } ), 11, 500, 1e-12 );
+
+			MappedVectorField.write( img, file, DataType.FLOAT32, ByteOrder.BIG_ENDIAN );
+			final MappedVectorField floats = new MappedVectorField( file, 0, DataType.FLOAT32, ByteOrder.BIG_ENDIAN, 5, 3, new long[] { 7, 6, 5 } );
+			assertEquals( img.firstElement().get(), floats.read( 0 ), 1e-6 );
+			compare( reference, floats, 11, 500, 1e-5 );
+		}
+		finally
+		{
+			Files.deleteIfExists( file );
+		}
+	}
+
+	@Test( expected = IOException.class )
+	public void testTooSmall() throws IOException
+	{
+		final Path file = Files.createTempFile( "field", ".raw" );
+		try
+		{
+			MappedVectorField.write( ArrayImgs.doubles( 2, 3, 3 ), file, DataType.FLOAT64, ByteOrder.BIG_ENDIAN );
+			new MappedVectorField( file, 8, DataType.FLOAT64, ByteOrder.BIG_ENDIAN, 2, 3, 3 );
+		}
+		finally
+		{
+			Files.deleteIfExists( file );
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import static net.imglib2.realtransform.field.VectorFieldTestUtil.compare;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.realtransform.DisplacementFieldTransform;
+import net.imglib2.realtransform.Scale3D;
+import net.imglib2.type.numeric.real.DoubleType;
+
+public class SparseVectorFieldTest
+{
+	/**
+	 * A zero field with a few localized random patches.
+	 */
+	private static ArrayImg< DoubleType, ? > image()
+	{
+		final Random rnd = new Random( 30 );
+		final ArrayImg< DoubleType, ? > img = ArrayImgs.doubles( 3, 40, 30, 20 );
+		final RandomAccess< DoubleType > access = img.randomAccess();
+		for ( int patch = 0; patch < 3; ++patch )
+		{
+			final long x0 = rnd.nextInt( 36 ), y0 = rnd.nextInt( 26 ), z0 = rnd.nextInt( 16 );
+			for ( long z = z0; z < z0 + 4; ++z )
+				for ( long y = y0; y < y0 + 4; ++y )
+					for ( long x = x0; x < x0 + 4; ++x )
+						for ( int c = 0; c < 3; ++c )
+							access.setPositionAndGet( c, x, y, z ).set( rnd.nextGaussian() );
+		}
+		return img;
+	}
+
+	@Test
+	public void testFromField()
+	{
+		final ArrayImg< DoubleType, ? > img = image();
+		final ArrayVectorField reference = ArrayVectorField.wrap( img );
+
+		final SparseVectorField sparse = SparseVectorField.fromField( img, 8, 8, 8 );
+		assertEquals( 3, sparse.numDimensions() );
+		assertEquals( 3, sparse.numComponents() );
+		/* each 4^3 patch touches at most 2^3 blocks */
+		assertEquals( true, sparse.numStoredBlocks() <= 3 * 8 );
+		compare( reference, sparse, 1, 5000, 1e-12 );
+
+		/* odd block sizes with partial blocks at the upper border */
+		compare( reference, SparseVectorField.fromField( img, 3, 7, 6 ), 2, 5000, 1e-12 );
+		compare( reference, SparseVectorField.fromField( img, 1, 1, 1 ), 3, 5000, 1e-12 );
+	}
+
+	@Test
+	public void testSet()
+	{
+		final SparseVectorField sparse = new SparseVectorField( 3, new int[] { 4, 4, 4 }, 1000, 1000, 1000 );
+		final RealRandomAccess< RealLocalizable > access = sparse.realRandomAccess();
+		access.setPosition( new double[] { 500.5, 500.5, 500.5 } );
+		assertArrayEquals( new double[] { 0, 0, 0 }, access.get().positionAsDoubleArray(), 0 );
+
+		/* zero vectors do not allocate blocks */
+		sparse.set( new long[] { 3, 4, 5 }, 0, 0, 0 );
+		assertEquals( 0, sparse.numStoredBlocks() );
+
+		/* enough blocks to grow the hash map several times */
+		for ( long i = 0; i < 250; ++i )
+			sparse.set( new long[] { 4 * i, 4 * i + 3, 500 }, i, -i, 1 );
+		assertEquals( 250, sparse.numStoredBlocks() );
+
+		for ( long i = 0; i < 250; ++i )
+		{
+			access.setPosition( new double[] { 4 * i, 4 * i + 3, 500 } );
+			assertArrayEquals( new double[] { i, -i, 1 }, access.get().positionAsDoubleArray(), 0 );
+			/* halfway into the next, absent block */
+			access.setPosition( new double[] { 4 * i, 4 * i + 3.5, 500 } );
+			if ( i < 249 )
+				assertArrayEquals( new double[] { 0.5 * i, -0.5 * i, 0.5 }, access.get().positionAsDoubleArray(), 1e-12 );
+		}
+
+		sparse.set( new long[] { 0, 3, 500 }, 7, 8, 9 );
+		assertEquals( 250, sparse.numStoredBlocks() );
+		access.setPosition( new double[] { 0, 3, 500 } );
+		assertArrayEquals( new double[] { 7, 8, 9 }, access.get().positionAsDoubleArray(), 0 );
+	}
+
+	@Test( expected = IndexOutOfBoundsException.class )
+	public void testSetOutside()
+	{
+		new SparseVectorField( 2, new int[] { 4, 4 }, 10, 10 ).set( new long[] { 10, 0 }, 1, 1 );
+	}
+
+	@Test
+	public void testDisplacementFieldTransform()
+	{
+		final ArrayImg< DoubleType, ? > img = image();
+		final Scale3D pixelToPhysical = new Scale3D( 2, 2, 3 );
+		final DisplacementFieldTransform dense = new DisplacementFieldTransform( ArrayVectorField.wrap( img ), pixelToPhysical );
+		final DisplacementFieldTransform sparse = new DisplacementFieldTransform( SparseVectorField.fromField( img, 8, 8, 8 ), pixelToPhysical );
+
+		final Random rnd = new Random( 4 );
+		final double[] p = new double[ 3 ];
+		final double[] expected = new double[ 3 ];
+		final double[] actual = new double[ 3 ];
+		for ( int i = 0; i < 1000; ++i )
+		{
+			for ( int d = 0; d < 3; ++d )
+				p[ d ] = rnd.nextDouble() * 80;
+			dense.apply( p, expected );
+			sparse.apply( p, actual );
+			assertArrayEquals( expected, actual, 1e-12 );
+		}
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import static net.imglib2.realtransform.field.VectorFieldTestUtil.compare;
+import static net.imglib2.realtransform.field.VectorFieldTestUtil.randomField;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.realtransform.field.TiledVectorField.TileLoader;
+import net.imglib2.type.numeric.real.DoubleType;
+
+public class TiledVectorFieldTest
+{
+	@Test
+	public void testTiles()
+	{
+		final ArrayImg< DoubleType, ? > img = randomField( 20, 3, 13, 11, 9 );
+		final ArrayVectorField reference = ArrayVectorField.wrap( img );
+
+		final TiledVectorField tiled = new TiledVectorField( TileLoader.fromField( img ), 3, new int[] { 4, 4, 4 }, 3, 13, 11, 9 );
+		compare( reference, tiled, 1, 1000, 1e-12 );
+		assertTrue( tiled.getNumCachedTiles() <= 3 );
+		assertTrue( tiled.getNumLoads() > 4 * 3 * 3 );
+
+		/* all tiles fit, every tile is loaded once */
+		final TiledVectorField cached = new TiledVectorField( TileLoader.fromField( img ), 100, new int[] { 5, 4, 3 }, 3, 13, 11, 9 );
+		compare( reference, cached, 2, 1000, 1e-12 );
+		compare( reference, cached, 3, 1000, 1e-12 );
+		assertEquals( 3 * 3 * 3, cached.getNumLoads() );
+		assertEquals( 3 * 3 * 3, cached.getNumCachedTiles() );
+		cached.invalidate();
+		assertEquals( 0, cached.getNumCachedTiles() );
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception
+	{
+		final ArrayImg< DoubleType, ? > img = randomField( 20, 3, 13, 11, 9 );
+		final ArrayVectorField reference = ArrayVectorField.wrap( img );
+		final TileLoader fromField = TileLoader.fromField( img );
+		final TiledVectorField tiled = new TiledVectorField( interval -> {
+			try
+			{
+				Thread.sleep( 1 );
+			}
+			catch ( final InterruptedException e )
+			{
+				Thread.currentThread().interrupt();
+			}
+			return fromField.load( interval );
+		}, 100, new int[] { 4, 4, 4 }, 3, 13, 11, 9 );
+
+		final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+		try
+		{
+			final List< Future< ? > > futures = new ArrayList<>();
+			for ( int i = 0; i < 8; ++i )
+			{
+				final long seed = i;
+				futures.add( executor.submit( () -> compare( reference, tiled, seed, 1000, 1e-12 ) ) );
+			}
+			for ( final Future< ? > future : futures )
+				future.get();
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		assertEquals( 4 * 3 * 3, tiled.getNumLoads() );
+	}
+
+	@Test( expected = UncheckedIOException.class )
+	public void testLoaderFailure()
+	{
+		final TiledVectorField tiled = new TiledVectorField( interval -> {
+			throw new IOException( "missing tile" );
+		}, 4, new int[] { 4, 4 }, 2, 8, 8 );
+		tiled.realRandomAccess().get();
+	}
+
+	@Test( timeout = 10000 )
+	public void testLoaderError()
+	{
+		final AtomicBoolean fail = new AtomicBoolean( true );
+		final TiledVectorField tiled = new TiledVectorField( interval -> {
+			if ( fail.getAndSet( false ) )
+				throw new StackOverflowError();
+			return new double[ 2 * 5 * 5 ];
+		}, 4, new int[] { 4, 4 }, 2, 8, 8 );
+		try
+		{
+			tiled.realRandomAccess().get();
+		}
+		catch ( final StackOverflowError e )
+		{}
+		assertEquals( 0, tiled.realRandomAccess().get().getDoublePosition( 0 ), 0 );
+	}
+
+	@Test
+	public void testInvalidate()
+	{
+		final double[] value = { 1 };
+		final TiledVectorField tiled = new TiledVectorField( interval -> {
+			final double[] data = new double[ 5 * 5 ];
+			Arrays.fill( data, value[ 0 ] );
+			return data;
+		}, 4, new int[] { 4, 4 }, 1, 8, 8 );
+		final RealRandomAccess< RealLocalizable > access = tiled.realRandomAccess();
+		access.setPosition( new double[] { 1.5, 2.5 } );
+		assertEquals( 1, access.get().getDoublePosition( 0 ), 0 );
+		value[ 0 ] = 2;
+		assertEquals( 1, access.get().getDoublePosition( 0 ), 0 );
+		tiled.invalidate();
+		assertEquals( 2, access.get().getDoublePosition( 0 ), 0 );
+		assertEquals( 2, tiled.getNumLoads() );
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.DoubleType;
+
+/**
+ * Fixtures shared by the {@link VectorField} backend tests.
+ */
+class VectorFieldTestUtil
+{
+	private VectorFieldTestUtil()
+	{}
+
+	/**
+	 * Fill an image with Gaussian noise.
+	 */
+	static < T extends RealType< T > > void fill( final Iterable< T > img, final long seed )
+	{
+		final Random rnd = new Random( seed );
+		for ( final T t : img )
+			t.setReal( rnd.nextGaussian() );
+	}
+
+	/**
+	 * @return a field image with the components in dimension 0 filled with
+	 *         Gaussian noise
+	 */
+	static ArrayImg< DoubleType, ? > randomField( final long seed, final long... dimensions )
+	{
+		final ArrayImg< DoubleType, ? > img = ArrayImgs.doubles( dimensions );
+		fill( img, seed );
+		return img;
+	}
+
+	/**
+	 * Compare a field with a reference at random positions, including
+	 * positions outside of the grid and, for every tenth sample, on a grid
+	 * line.  The field is read through a copied access.
+	 */
+	static void compare( final RealRandomAccessible< ? extends RealLocalizable > expected, final VectorField actual, final long seed, final int numSamples, final double eps )
+	{
+		final double[] componentEps = new double[ actual.numComponents() ];
+		Arrays.fill( componentEps, eps );
+		compare( expected, actual, seed, numSamples, componentEps );
+	}
+
+	/**
+	 * Compare a field with a reference with a tolerance per component.
+	 */
+	static void compare( final RealRandomAccessible< ? extends RealLocalizable > expected, final VectorField actual, final long seed, final int numSamples, final double[] eps )
+	{
+		final Random rnd = new Random( seed );
+		final int n = actual.numDimensions();
+		final RealRandomAccess< ? extends RealLocalizable > a = expected.realRandomAccess();
+		final RealRandomAccess< RealLocalizable > b = actual.realRandomAccess().copy();
+		final double[] p = new double[ n ];
+		for ( int i = 0; i < numSamples; ++i )
+		{
+			for ( int d = 0; d < n; ++d )
+				p[ d ] = rnd.nextDouble() * ( actual.dimension( d ) + 2 ) - 1;
+			if ( i % 10 == 0 )
+				p[ i / 10 % n ] = Math.round( p[ i / 10 % n ] );
+			a.setPosition( p );
+			b.setPosition( p );
+			final RealLocalizable va = a.get();
+			final RealLocalizable vb = b.get();
+			for ( int c = 0; c < actual.numComponents(); ++c )
+				assertEquals( va.getDoublePosition( c ), vb.getDoublePosition( c ), eps[ c ] );
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.realtransform.field;
+
+import static net.imglib2.realtransform.field.VectorFieldTestUtil.compare;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.realtransform.DisplacementFieldTransform;
+import net.imglib2.realtransform.RealViews;
+import net.imglib2.realtransform.Scale3D;
+import net.imglib2.type.numeric.real.DoubleType;
+
+public class VectorFieldsTest
+{
+	private static RandomAccessibleInterval< DoubleType > field()
+	{
+		final AffineTransform3D affine = new AffineTransform3D();
+		affine.rotate( 2, 0.3 );
+		affine.scale( 1.1 );
+		affine.translate( 3, -2, 1 );
+		return DisplacementFieldTransform.createDisplacementField( affine, new FinalInterval( 9, 8, 7 ), new double[] { 2, 2, 3 } );
+	}
+
+	private static double[] halfScale( final QuantizedVectorField field )
+	{
+		final double[] eps = new double[ field.numComponents() ];
+		for ( int c = 0; c < eps.length; ++c )
+			eps[ c ] = 0.5 * field.scale( c ) + 1e-9;
+		return eps;
+	}
+
+	@Test
+	public void testConversions()
+	{
+		final RandomAccessibleInterval< DoubleType > img = field();
+		final ArrayVectorField reference = VectorFields.toDouble( img );
+		assertEquals( 3, reference.numComponents() );
+		assertEquals( 3, reference.numDimensions() );
+		assertEquals( 7, reference.dimension( 2 ) );
+
+		compare( reference, VectorFields.toFloat( img ), 7, 500, new double[] { 1e-5, 1e-5, 1e-5 } );
+
+		final QuantizedVectorField q16 = VectorFields.quantize16( img );
+		assertEquals( 16, q16.bits() );
+		compare( reference, q16, 7, 500, halfScale( q16 ) );
+
+		final QuantizedVectorField q8 = VectorFields.quantize8( img );
+		assertEquals( 8, q8.bits() );
+		compare( reference, q8, 7, 500, halfScale( q8 ) );
+	}
+
+	@Test
+	public void testDisplacementField()
+	{
+		final RandomAccessibleInterval< DoubleType > img = field();
+		final DisplacementFieldTransform reference = new DisplacementFieldTransform( img, 2, 2, 3 );
+		final QuantizedVectorField q16 = VectorFields.quantize16( img );
+		final DisplacementFieldTransform quantized = new DisplacementFieldTransform( RealViews.affine( q16, new Scale3D( 2, 2, 3 ) ) );
+
+		double eps = 0;
+		for ( int c = 0; c < 3; ++c )
+			eps = Math.max( eps, q16.scale( c ) );
+
+		final double[] p = new double[ 3 ];
+		final double[] expected = new double[ 3 ];
+		final double[] actual = new double[ 3 ];
+		final Random rnd = new Random( 8 );
+		for ( int i = 0; i < 200; ++i )
+		{
+			for ( int d = 0; d < 3; ++d )
+				p[ d ] = rnd.nextDouble() * 16;
+			reference.apply( p, expected );
+			quantized.apply( p, actual );
+			for ( int d = 0; d < 3; ++d )
+				assertEquals( expected[ d ], actual[ d ], eps );
+		}
+	}
+
+	@Test
+	public void testConstantComponent()
+	{
+		final QuantizedVectorField q = VectorFields.quantize8(
+				ArrayImgs.doubles( new double[] { 1, 5, 1, 7, 1, 9 }, 2, 3 ) );
+		assertEquals( 0, q.scale( 0 ), 0 );
+		final RealRandomAccess< RealLocalizable > access = q.realRandomAccess();
+		access.setPosition( 1.5, 0 );
+		assertEquals( 1, access.get().getDoublePosition( 0 ), 0 );
+		assertEquals( 8, access.get().getDoublePosition( 1 ), 0.5 * q.scale( 1 ) + 1e-9 );
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.RealTypeConverters;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.ShortAccess;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.cell.LazyCellImg;
+import net.imglib2.interpolation.InterpolatorFactory;
+import net.imglib2.interpolation.randomaccess.NLinearInterpolatorFactory;
+import net.imglib2.interpolation.randomaccess.NearestNeighborInterpolatorFactory;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.realtransform.RealViews;
+import net.imglib2.realtransform.render.AffineSliceSampler.Interpolation;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+public class AffineSliceSamplerTest
+{
+	static < T extends RealType< T > > void fill( final Iterable< T > img )
+	{
+		final Random rnd = new Random( 1 );
+		for ( final T t : img )
+			t.setReal( rnd.nextInt( 1000 ) );
+	}
+
+	static < T extends RealType< T > > void assertSampled(
+			final RandomAccessibleInterval< T > source,
+			final T background,
+			final AffineTransform3D transform,
+			final Interpolation interpolation )
+	{
+		final AffineSliceSampler< T > sampler = new AffineSliceSampler<>( source, interpolation );
+		sampler.setTransform( transform );
+
+		final int width = 40;
+		final int height = 30;
+		final float[] target = new float[ width * height ];
+		sampler.sample( -5, -3, width, height, target, background.getRealFloat() );
+
+		/* compare with a float copy because n-linear interpolation of integer types is rounded */
+		final InterpolatorFactory< FloatType, RandomAccessible< FloatType > > factory = interpolation == Interpolation.NEAREST
+				? new NearestNeighborInterpolatorFactory<>()
+				: new NLinearInterpolatorFactory<>();
+		final RandomAccessible< FloatType > reference = Views.hyperSlice(
+				RealViews.affine(
+						Views.interpolate(
+								Views.extendValue( RealTypeConverters.convert( source, new FloatType() ), background.getRealFloat() ),
+								factory ),
+						transform ),
+				2,
+				0 );
+		final RandomAccess< FloatType > ra = reference.randomAccess();
+		for ( int y = 0, i = 0; y < height; ++y )
+			for ( int x = 0; x < width; ++x, ++i )
+				assertEquals( ra.setPositionAndGet( x - 5, y - 3 ).getRealFloat(), target[ i ], 1e-3 );
+	}
+
+	static < T extends IntegerType< T > > void assertLabels(
+			final RandomAccessibleInterval< T > source,
+			final T background,
+			final AffineTransform3D transform )
+	{
+		final AffineSliceSampler< T > sampler = new AffineSliceSampler<>( source, Interpolation.NEAREST );
+		sampler.setTransform( transform );
+
+		final int width = 40;
+		final int height = 30;
+		final long[] target = new long[ width * height ];
+		sampler.sample( -5, -3, width, height, target, background.getIntegerLong() );
+		final int[] intTarget = new int[ width * height ];
+		sampler.sample( -5, -3, width, height, intTarget, background.getInteger() );
+
+		final RandomAccessible< T > reference = Views.hyperSlice(
+				RealViews.affine(
+						Views.interpolate( Views.extendValue( source, background.getIntegerLong() ), new NearestNeighborInterpolatorFactory<>() ),
+						transform ),
+				2,
+				0 );
+		final RandomAccess< T > ra = reference.randomAccess();
+		for ( int y = 0, i = 0; y < height; ++y )
+			for ( int x = 0; x < width; ++x, ++i )
+			{
+				final long expected = ra.setPositionAndGet( x - 5, y - 3 ).getIntegerLong();
+				assertEquals( expected, target[ i ] );
+				assertEquals( ( int )expected, intTarget[ i ] );
+			}
+	}
+
+	static AffineTransform3D transform()
+	{
+		final AffineTransform3D transform = new AffineTransform3D();
+		transform.rotate( 0, 0.4 );
+		transform.rotate( 2, 0.7 );
+		transform.scale( 1.3 );
+		transform.translate( 3, 2, -6 );
+		return transform;
+	}
+
+	@Test
+	public void testLabels()
+	{
+		final Random rnd = new Random( 2 );
+		final Img< IntType > ints = ArrayImgs.ints( 23, 17, 11 );
+		ints.forEach( t -> t.set( ( 1 << 24 ) + rnd.nextInt( 1 << 30 ) ) );
+		final Img< UnsignedIntType > unsignedInts = new CellImgFactory<>( new UnsignedIntType(), 5, 4, 3 ).create( 23, 17, 11 );
+		unsignedInts.forEach( t -> t.set( 0xffffffffL - rnd.nextInt( 1000 ) ) );
+		final Img< LongType > longs = ArrayImgs.longs( 23, 17, 11 );
+		longs.forEach( t -> t.set( ( 1L << 60 ) + rnd.nextInt() ) );
+
+		assertLabels( ints, new IntType( -3 ), transform() );
+		assertLabels( unsignedInts, new UnsignedIntType( 5 ), transform() );
+		assertLabels( longs, new LongType( 1L << 55 ), transform() );
+	}
+
+	@Test
+	public void testCellsWithoutArrays()
+	{
+		final Img< UnsignedShortType > array = ArrayImgs.unsignedShorts( 23, 17, 11 );
+		fill( array );
+		final RandomAccess< UnsignedShortType > ra = array.randomAccess();
+		final CellGrid grid = new CellGrid( array.dimensionsAsLongArray(), new int[] { 5, 4, 3 } );
+		final LazyCellImg< UnsignedShortType, ShortAccess > cells = new LazyCellImg<>( grid, new UnsignedShortType(), index -> {
+			final long[] cellMin = new long[ 3 ];
+			final int[] cellDims = new int[ 3 ];
+			grid.getCellDimensions( index, cellMin, cellDims );
+			final short[] data = new short[ cellDims[ 0 ] * cellDims[ 1 ] * cellDims[ 2 ] ];
+			for ( int z = 0, i = 0; z < cellDims[ 2 ]; ++z )
+				for ( int y = 0; y < cellDims[ 1 ]; ++y )
+					for ( int x = 0; x < cellDims[ 0 ]; ++x, ++i )
+						data[ i ] = ( short )ra.setPositionAndGet( cellMin[ 0 ] + x, cellMin[ 1 ] + y, cellMin[ 2 ] + z ).get();
+			return new Cell<>( cellDims, cellMin, new ShortAccess()
+			{
+				@Override
+				public short getValue( final int i )
+				{
+					return data[ i ];
+				}
+
+				@Override
+				public void setValue( final int i, final short value )
+				{
+					data[ i ] = value;
+				}
+			} );
+		} );
+
+		for ( final Interpolation interpolation : Interpolation.values() )
+			assertSampled( cells, new UnsignedShortType( 7 ), transform(), interpolation );
+	}
+
+	@Test
+	public void testSample()
+	{
+		final Img< FloatType > array = ArrayImgs.floats( 23, 17, 11 );
+		fill( array );
+		final Img< UnsignedShortType > cells = new CellImgFactory<>( new UnsignedShortType(), 5, 4, 3 ).create( 23, 17, 11 );
+		fill( cells );
+
+		final AffineTransform3D transform = transform();
+		for ( final Interpolation interpolation : Interpolation.values() )
+		{
+			assertSampled( array, new FloatType( -1 ), transform, interpolation );
+			assertSampled( cells, new UnsignedShortType( 7 ), transform, interpolation );
+			assertSampled( Views.translate( array, 2, 3, 4 ), new FloatType( 0 ), transform, interpolation );
+		}
+	}
+}
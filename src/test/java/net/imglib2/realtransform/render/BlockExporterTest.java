@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.interpolation.randomaccess.NearestNeighborInterpolatorFactory;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.realtransform.RealViews;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.view.Views;
+
+public class BlockExporterTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testExport() throws IOException
+	{
+		final ArrayImg< UnsignedShortType, ? > img = ArrayImgs.unsignedShorts( 20, 15, 10 );
+		int i = 0;
+		for ( final UnsignedShortType t : img )
+			t.set( 1 + ( i++ * 31 ) % 65000 );
+
+		final AffineTransform3D transform = new AffineTransform3D();
+		transform.rotate( 2, 0.2 );
+		transform.translate( 3, -1, 0 );
+		final RandomAccessible< UnsignedShortType > transformed = RealViews.affine(
+				Views.interpolate( Views.extendZero( img ), new NearestNeighborInterpolatorFactory<>() ),
+				transform );
+
+		final FinalInterval interval = new FinalInterval( new long[] { -5, -5, 0 }, new long[] { 34, 24, 9 } );
+		final BlockExporter< UnsignedShortType > exporter = new BlockExporter<>( transformed, interval, 16, 16, 4 );
+		exporter.setNumWorkers( 3 );
+		exporter.setQueueCapacity( 2 );
+		exporter.setSkipEmptyBlocks( true );
+
+		final Path dataset = folder.getRoot().toPath().resolve( "warped" );
+		exporter.export( dataset );
+
+		final String attributes = new String( Files.readAllBytes( dataset.resolve( "attributes.json" ) ), StandardCharsets.UTF_8 );
+		assertTrue( attributes.contains( "\"dimensions\":[40,30,10]" ) );
+		assertTrue( attributes.contains( "\"blockSize\":[16,16,4]" ) );
+		assertTrue( attributes.contains( "\"dataType\":\"uint16\"" ) );
+
+		/* truncated block at grid position (1, 1, 2) */
+		final ByteBuffer block = ByteBuffer.wrap( Files.readAllBytes( dataset.resolve( "1/1/2" ) ) );
+		assertEquals( 0, block.getShort() );
+		assertEquals( 3, block.getShort() );
+		assertEquals( 16, block.getInt() );
+		assertEquals( 14, block.getInt() );
+		assertEquals( 2, block.getInt() );
+		final RandomAccess< UnsignedShortType > expected = transformed.randomAccess();
+		for ( long z = 8; z < 10; ++z )
+			for ( long y = 11; y < 25; ++y )
+				for ( long x = 11; x < 27; ++x )
+				{
+					expected.setPosition( new long[] { x, y, z } );
+					assertEquals( expected.get().get(), block.getShort() & 0xffff );
+				}
+		assertFalse( block.hasRemaining() );
+
+		/* the right column of blocks maps outside of the source */
+		assertFalse( Files.exists( dataset.resolve( "2/0/0" ) ) );
+	}
+
+	@Test
+	public void testReexport() throws IOException
+	{
+		final ArrayImg< UnsignedShortType, ? > img = ArrayImgs.unsignedShorts( 32, 16 );
+		for ( final UnsignedShortType t : img )
+			t.set( 1 );
+		final Path dataset = folder.getRoot().toPath().resolve( "reexport" );
+		final BlockExporter< UnsignedShortType > first = new BlockExporter<>( img, img, 16, 16 );
+		first.setSkipEmptyBlocks( true );
+		first.export( dataset );
+		assertTrue( Files.exists( dataset.resolve( "0/0" ) ) );
+		assertTrue( Files.exists( dataset.resolve( "1/0" ) ) );
+
+		/* the second block is empty now and its old file must not remain */
+		for ( final UnsignedShortType t : Views.interval( img, new FinalInterval( new long[] { 16, 0 }, new long[] { 31, 15 } ) ) )
+			t.set( 0 );
+		final BlockExporter< UnsignedShortType > second = new BlockExporter<>( img, img, 16, 16 );
+		second.setSkipEmptyBlocks( true );
+		second.export( dataset );
+		assertTrue( Files.exists( dataset.resolve( "0/0" ) ) );
+		assertFalse( Files.exists( dataset.resolve( "1/0" ) ) );
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.position.FunctionRealRandomAccessible;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.view.Views;
+
+public class IncrementalRendererTest
+{
+	final static RealRandomAccessible< DoubleType > SOURCE = new FunctionRealRandomAccessible<>(
+			3,
+			( x, t ) -> t.set( Math.sin( 0.1 * x.getDoublePosition( 0 ) ) + Math.cos( 0.07 * x.getDoublePosition( 1 ) ) + 0.01 * x.getDoublePosition( 2 ) ),
+			DoubleType::new );
+
+	private static void assertFrame( final AffineTransform3D viewerTransform, final RandomAccessibleInterval< DoubleType > frame )
+	{
+		final RandomAccessibleInterval< DoubleType > expected = Views.translate( ArrayImgs.doubles( frame.dimension( 0 ), frame.dimension( 1 ) ), frame.minAsLongArray() );
+		new IncrementalRenderer<>( SOURCE, expected ).render( viewerTransform );
+		final Cursor< DoubleType > e = Views.flatIterable( expected ).cursor();
+		final Cursor< DoubleType > a = Views.flatIterable( frame ).cursor();
+		while ( e.hasNext() )
+			assertEquals( e.next().get(), a.next().get(), 1e-9 );
+	}
+
+	@Test
+	public void testIncrementalRender()
+	{
+		final RandomAccessibleInterval< DoubleType > frame = Views.translate( ArrayImgs.doubles( 64, 48 ), -10, 5 );
+		final IncrementalRenderer< DoubleType > renderer = new IncrementalRenderer<>( SOURCE, frame );
+
+		final AffineTransform3D viewerTransform = new AffineTransform3D();
+		viewerTransform.rotate( 1, 0.4 );
+		viewerTransform.rotate( 2, 0.2 );
+		viewerTransform.scale( 1.5 );
+		assertEquals( 64 * 48, renderer.render( viewerTransform ) );
+		assertFrame( viewerTransform, frame );
+
+		final long[][] shifts = { { 5, -3 }, { -7, 0 }, { 0, 11 }, { 0, 0 }, { -2, -9 } };
+		for ( final long[] shift : shifts )
+		{
+			viewerTransform.translate( shift[ 0 ], shift[ 1 ], 0 );
+			final long exposed = 64 * 48 - ( 64 - Math.abs( shift[ 0 ] ) ) * ( 48 - Math.abs( shift[ 1 ] ) );
+			assertEquals( exposed, renderer.render( viewerTransform ) );
+			assertFrame( viewerTransform, frame );
+		}
+
+		/* sub-pixel, out of plane and large shifts re-render everything */
+		viewerTransform.translate( 0.5, 0, 0 );
+		assertEquals( 64 * 48, renderer.render( viewerTransform ) );
+		viewerTransform.translate( 0, 0, 1 );
+		assertEquals( 64 * 48, renderer.render( viewerTransform ) );
+		viewerTransform.translate( 100, 0, 0 );
+		assertEquals( 64 * 48, renderer.render( viewerTransform ) );
+		assertFrame( viewerTransform, frame );
+
+		renderer.invalidate();
+		assertEquals( 64 * 48, renderer.render( viewerTransform ) );
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.Localizable;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.interpolation.randomaccess.NLinearInterpolatorFactory;
+import net.imglib2.position.FunctionRandomAccessible;
+import net.imglib2.realtransform.AffineRandomAccessible;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.view.Views;
+
+public class MultiPassAffineResamplerTest
+{
+	final static double[] COEFFICIENTS = { 0.3, -1.7, 2.9, 5 };
+
+	/* linear functions are reproduced exactly by linear interpolation */
+	final static RandomAccessible< DoubleType > LINEAR = new FunctionRandomAccessible<>(
+			3,
+			MultiPassAffineResamplerTest::linear,
+			DoubleType::new );
+
+	private static void linear( final Localizable x, final DoubleType t )
+	{
+		t.set( COEFFICIENTS[ 0 ] * x.getDoublePosition( 0 ) +
+				COEFFICIENTS[ 1 ] * x.getDoublePosition( 1 ) +
+				COEFFICIENTS[ 2 ] * x.getDoublePosition( 2 ) +
+				COEFFICIENTS[ 3 ] );
+	}
+
+	private static void assertResampled( final AffineTransform3D transformToSource )
+	{
+		final RandomAccessibleInterval< DoubleType > target = Views.translate( ArrayImgs.doubles( 23, 17, 11 ), -5, 3, 7 );
+		new MultiPassAffineResampler<>( LINEAR, transformToSource ).resample( target );
+
+		final double[] x = new double[ 3 ];
+		final Cursor< DoubleType > c = Views.flatIterable( target ).localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( x );
+			transformToSource.apply( x, x );
+			final double expected = COEFFICIENTS[ 0 ] * x[ 0 ] + COEFFICIENTS[ 1 ] * x[ 1 ] + COEFFICIENTS[ 2 ] * x[ 2 ] + COEFFICIENTS[ 3 ];
+			assertEquals( expected, c.get().get(), 1e-8 );
+		}
+	}
+
+	@Test
+	public void testRotation()
+	{
+		final AffineTransform3D t = new AffineTransform3D();
+		t.rotate( 0, 0.3 );
+		t.rotate( 1, -0.7 );
+		t.rotate( 2, 1.1 );
+		t.scale( 1.3 );
+		t.translate( 2.5, -4.25, 1 );
+		assertResampled( t );
+	}
+
+	@Test
+	public void testRightAngle()
+	{
+		final AffineTransform3D t = new AffineTransform3D();
+		t.set(
+				0, -1, 0, 3,
+				1, 0, 0, -2,
+				0, 0, 1, 0.5 );
+		assertResampled( t );
+
+		t.set(
+				0, 0, 1, 0,
+				1, 0, 0, 0,
+				0, 1, 0, 0 );
+		assertResampled( t );
+	}
+
+	@Test
+	public void testScaleAndTranslationMatchesNLinear()
+	{
+		/* without rotation, the passes are the separable factors of n-linear interpolation */
+		final ArrayImg< DoubleType, ? > img = ArrayImgs.doubles( 20, 15, 10 );
+		final Random rnd = new Random( 7 );
+		for ( final DoubleType t : img )
+			t.set( rnd.nextDouble() );
+		final RandomAccessible< DoubleType > source = Views.extendBorder( img );
+
+		final AffineTransform3D t = new AffineTransform3D();
+		t.scale( 0.7, 1.3, 0.9 );
+		t.translate( 0.5, 0.25, 0.125 );
+
+		final RandomAccessibleInterval< DoubleType > target = ArrayImgs.doubles( 25, 12, 11 );
+		new MultiPassAffineResampler<>( source, t ).resample( target );
+
+		final RandomAccess< DoubleType > expected = new AffineRandomAccessible<>(
+				Views.interpolate( source, new NLinearInterpolatorFactory<>() ), t ).randomAccess();
+		final Cursor< DoubleType > c = Views.flatIterable( target ).localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			expected.setPosition( c );
+			assertEquals( expected.get().get(), c.get().get(), 1e-9 );
+		}
+	}
+}
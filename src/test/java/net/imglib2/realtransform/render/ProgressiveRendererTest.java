@@ -0,0 +1,119 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.position.FunctionRandomAccessible;
+import net.imglib2.position.FunctionRealRandomAccessible;
+import net.imglib2.realtransform.RealTransformRandomAccessible;
+import net.imglib2.realtransform.Translation2D;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.view.Views;
+
+public class ProgressiveRendererTest
+{
+	@Test
+	public void testProgressive()
+	{
+		final AtomicLong count = new AtomicLong();
+		final FunctionRandomAccessible< DoubleType > source = new FunctionRandomAccessible<>(
+				2,
+				( p, t ) -> {
+					count.incrementAndGet();
+					t.set( p.getDoublePosition( 0 ) + 1000 * p.getDoublePosition( 1 ) );
+				},
+				DoubleType::new );
+
+		final ArrayImg< DoubleType, DoubleArray > target = ArrayImgs.doubles( 37, 21 );
+		final ProgressiveRenderer< DoubleType > renderer = new ProgressiveRenderer<>( source, Views.translate( target, 3, -2 ), 7 );
+		assertEquals( 8, renderer.getStride() );
+
+		/* a cancelled render completes one row of the coarsest pass */
+		assertFalse( renderer.render( Long.MAX_VALUE, () -> true ) );
+		assertEquals( 8, renderer.getStride() );
+		assertEquals( 3 - 2000, target.getAt( 5, 0 ).get(), 0 );
+		assertEquals( 11 - 2000, target.getAt( 13, 0 ).get(), 0 );
+
+		assertTrue( renderer.render( Long.MAX_VALUE ) );
+		assertTrue( renderer.isComplete() );
+		assertEquals( target.size(), count.get() );
+
+		final Cursor< DoubleType > c = target.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			assertEquals( c.getDoublePosition( 0 ) + 3 + 1000 * ( c.getDoublePosition( 1 ) - 2 ), c.get().get(), 0 );
+		}
+
+		renderer.reset();
+		assertFalse( renderer.isComplete() );
+	}
+
+	@Test
+	public void testReset()
+	{
+		final FunctionRealRandomAccessible< DoubleType > function = new FunctionRealRandomAccessible<>(
+				2,
+				( p, t ) -> t.set( p.getDoublePosition( 0 ) + 1000 * p.getDoublePosition( 1 ) ),
+				DoubleType::new );
+		final Translation2D translation = new Translation2D( 0.5, 0 );
+		final ArrayImg< DoubleType, DoubleArray > target = ArrayImgs.doubles( 9, 5 );
+		final ProgressiveRenderer< DoubleType > renderer = new ProgressiveRenderer<>(
+				new RealTransformRandomAccessible<>( function, translation ), target, 4 );
+		assertTrue( renderer.render( Long.MAX_VALUE ) );
+		assertEquals( 2.5 + 3000, target.getAt( 2, 3 ).get(), 0 );
+
+		/* the modified transformation is picked up after reset */
+		translation.set( new double[] { 0, 1 } );
+		renderer.reset();
+		assertTrue( renderer.render( Long.MAX_VALUE ) );
+		assertEquals( 2 + 4000, target.getAt( 2, 3 ).get(), 0 );
+
+		renderer.reset( function.realView().raster() );
+		assertTrue( renderer.render( Long.MAX_VALUE ) );
+		assertEquals( 2 + 3000, target.getAt( 2, 3 ).get(), 0 );
+	}
+}
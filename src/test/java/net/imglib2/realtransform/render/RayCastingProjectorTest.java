@@ -0,0 +1,125 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.interpolation.randomaccess.NearestNeighborInterpolatorFactory;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.realtransform.Perspective3D;
+import net.imglib2.realtransform.render.RayCastingProjector.Mode;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+public class RayCastingProjectorTest
+{
+	final static ArrayImg< FloatType, FloatArray > source = ArrayImgs.floats( 10, 8, 6 );
+	static
+	{
+		final Random rnd = new Random( 0 );
+		for ( final FloatType t : source )
+			t.set( rnd.nextInt( 100 ) );
+	}
+
+	@Test
+	public void testMaxAndSum()
+	{
+		final AffineTransform3D transform = new AffineTransform3D();
+		transform.translate( 2, 1, 0 );
+
+		final RayCastingProjector< FloatType > max = new RayCastingProjector<>( source, new NearestNeighborInterpolatorFactory<>(), transform, Mode.MAX, -10, 20 );
+		max.setStep( 0.25 );
+		max.setBackground( -1 );
+		/* the display range does not stop MAX rays early */
+		max.setDisplayRange( 0, 10 );
+		final ArrayImg< FloatType, FloatArray > maxTarget = ArrayImgs.floats( 14, 10 );
+		max.project( maxTarget );
+
+		final RayCastingProjector< FloatType > sum = new RayCastingProjector<>( source, new NearestNeighborInterpolatorFactory<>(), transform, Mode.SUM, -10, 20 );
+		sum.setStep( 0.01 );
+		final ArrayImg< FloatType, FloatArray > sumTarget = ArrayImgs.floats( 14, 10 );
+		sum.project( sumTarget );
+
+		final RandomAccess< FloatType > ra = Views.extendValue( source, -1 ).randomAccess();
+		for ( int y = 0; y < 10; ++y )
+			for ( int x = 0; x < 14; ++x )
+			{
+				double m = -1;
+				double s = 0;
+				for ( int z = 0; z < 6; ++z )
+				{
+					final double v = ra.setPositionAndGet( x - 2, y - 1, z ).get();
+					m = Math.max( m, v );
+					s += Math.max( 0, v );
+				}
+				assertEquals( m, maxTarget.getAt( x, y ).get(), 0 );
+				/* each voxel boundary may shift one step of length 0.01 */
+				assertEquals( s, sumTarget.getAt( x, y ).get(), 7 * 100 * 0.01 );
+			}
+	}
+
+	@Test
+	public void testPerspective()
+	{
+		/* camera at distance 100 in front of voxel column ( 4, 3 ) */
+		final AffineTransform3D transform = new AffineTransform3D();
+		transform.translate( -4, -3, 100 );
+
+		final RayCastingProjector< FloatType > max = new RayCastingProjector<>( source, new NearestNeighborInterpolatorFactory<>(), transform, Perspective3D.getInstance(), Mode.MAX, 50, 150 );
+		max.setStep( 0.1 );
+		final ArrayImg< FloatType, FloatArray > target = ArrayImgs.floats( 1, 1 );
+		max.project( target );
+
+		double m = 0;
+		for ( int z = 0; z < 6; ++z )
+			m = Math.max( m, source.getAt( 4, 3, z ).get() );
+		assertEquals( m, target.getAt( 0, 0 ).get(), 0 );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testEmptyDisplayRange()
+	{
+		final RayCastingProjector< FloatType > alpha = new RayCastingProjector<>( source, new NearestNeighborInterpolatorFactory<>(), new AffineTransform3D(), Mode.ALPHA, 0, 6 );
+		alpha.setDisplayRange( 10, 10 );
+	}
+}
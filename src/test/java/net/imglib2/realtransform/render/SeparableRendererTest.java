@@ -0,0 +1,101 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.interpolation.InterpolatorFactory;
+import net.imglib2.interpolation.randomaccess.NLinearInterpolatorFactory;
+import net.imglib2.interpolation.randomaccess.NearestNeighborInterpolatorFactory;
+import net.imglib2.realtransform.RealViews;
+import net.imglib2.realtransform.SeparableRealTransform;
+import net.imglib2.realtransform.render.SeparableRenderer.Interpolation;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.view.Views;
+
+public class SeparableRendererTest
+{
+	final static double EPS = 1e-9;
+
+	@Test
+	public void testRender()
+	{
+		final ArrayImg< DoubleType, DoubleArray > img = ArrayImgs.doubles( 20, 10, 6 );
+		int i = 0;
+		for ( final DoubleType t : img )
+			t.set( ( i++ * 7919 ) % 101 );
+		final RandomAccessible< DoubleType > extended = Views.extendBorder( img );
+
+		final SeparableRealTransform transform = new SeparableRealTransform( 3 );
+		transform.setLinear( 0, 1.7, -3.1 );
+		transform.setTable( 1, 0, 1, 2.5, 3, 3.5, 6, 9, 9.5, 12, 13 );
+		transform.setTable( 2, 10, 9, 6.5, 6, 2, 0.5 );
+
+		final RandomAccessibleInterval< DoubleType > target = Views.translate( ArrayImgs.doubles( 37, 15, 12 ), -4, -1, 0 );
+
+		testRender( extended, transform, Interpolation.NLINEAR, new NLinearInterpolatorFactory<>(), target );
+		testRender( extended, transform, Interpolation.NEAREST, new NearestNeighborInterpolatorFactory<>(), target );
+	}
+
+	private static void testRender(
+			final RandomAccessible< DoubleType > source,
+			final SeparableRealTransform transform,
+			final Interpolation interpolation,
+			final InterpolatorFactory< DoubleType, RandomAccessible< DoubleType > > factory,
+			final RandomAccessibleInterval< DoubleType > target )
+	{
+		final SeparableRenderer< DoubleType > renderer = new SeparableRenderer<>( source, transform, interpolation );
+		renderer.setBlockSize( 4 );
+		renderer.render( target );
+
+		final RandomAccess< DoubleType > expected = RealViews.transform( Views.interpolate( source, factory ), transform ).randomAccess();
+		final Cursor< DoubleType > c = Views.flatIterable( target ).localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			expected.setPosition( c );
+			assertEquals( expected.get().get(), c.get().get(), EPS );
+		}
+	}
+}
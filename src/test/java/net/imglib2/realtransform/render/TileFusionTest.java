@@ -0,0 +1,144 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.interpolation.randomaccess.NLinearInterpolatorFactory;
+import net.imglib2.realtransform.InvertibleRealTransformSequence;
+import net.imglib2.realtransform.Translation2D;
+import net.imglib2.realtransform.render.TileFusion.Mode;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.view.Views;
+
+public class TileFusionTest
+{
+	final static double EPS = 1e-9;
+
+	final static double BACKGROUND = -1;
+
+	static ArrayImg< DoubleType, DoubleArray > createImage()
+	{
+		final ArrayImg< DoubleType, DoubleArray > img = ArrayImgs.doubles( 100, 80 );
+		final Cursor< DoubleType > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.get().set( Math.sin( 0.2 * c.getDoublePosition( 0 ) ) * Math.cos( 0.1 * c.getDoublePosition( 1 ) ) );
+		}
+		return img;
+	}
+
+	@Test
+	public void testFusion()
+	{
+		final ArrayImg< DoubleType, DoubleArray > img = createImage();
+
+		for ( final Mode mode : Mode.values() )
+		{
+			final TileFusion< DoubleType > fusion = new TileFusion<>( new NLinearInterpolatorFactory< DoubleType >() );
+			fusion.setMode( mode );
+			fusion.setBackground( BACKGROUND );
+			fusion.setBlockSize( 16, 8 );
+			fusion.setBlendingWidth( 4 );
+
+			/* overlapping crops of the image, every other one placed by a non-affine transform */
+			final boolean[][] covered = new boolean[ 80 ][ 100 ];
+			int k = 0;
+			for ( long y = 0; y < 60; y += 13 )
+				for ( long x = 0; x < 80; x += 17 )
+				{
+					if ( x == 34 && y == 26 )
+						continue;
+					final FinalInterval crop = new FinalInterval( new long[] { x, y }, new long[] { x + 21, y + 17 } );
+					final RandomAccessibleInterval< DoubleType > tile = Views.zeroMin( Views.interval( img, crop ) );
+					final Translation2D translation = new Translation2D( x, y );
+					if ( k++ % 2 == 0 )
+						fusion.addTile( tile, translation );
+					else
+					{
+						final InvertibleRealTransformSequence sequence = new InvertibleRealTransformSequence();
+						sequence.add( translation );
+						fusion.addTile( tile, sequence );
+					}
+					for ( long yy = crop.min( 1 ); yy <= crop.max( 1 ); ++yy )
+						for ( long xx = crop.min( 0 ); xx <= crop.max( 0 ); ++xx )
+							covered[ ( int )yy ][ ( int )xx ] = true;
+				}
+
+			final ArrayImg< DoubleType, DoubleArray > target = ArrayImgs.doubles( 100, 80 );
+			fusion.fuse( target );
+
+			final Cursor< DoubleType > c = target.localizingCursor();
+			final Cursor< DoubleType > e = img.cursor();
+			while ( c.hasNext() )
+			{
+				c.fwd();
+				final double expected = e.next().get();
+				if ( covered[ c.getIntPosition( 1 ) ][ c.getIntPosition( 0 ) ] )
+					assertEquals( mode.toString(), expected, c.get().get(), EPS );
+				else
+					assertEquals( mode.toString(), BACKGROUND, c.get().get(), EPS );
+			}
+		}
+	}
+
+	@Test
+	public void testBounds()
+	{
+		final TileFusion< DoubleType > fusion = new TileFusion<>( new NLinearInterpolatorFactory< DoubleType >() );
+		final int i = fusion.addTile( ArrayImgs.doubles( 10, 20 ), new Translation2D( 5.5, -3 ) );
+		assertEquals( 1, fusion.numTiles() );
+		assertEquals( 5.5, fusion.getBounds( i ).realMin( 0 ), EPS );
+		assertEquals( 14.5, fusion.getBounds( i ).realMax( 0 ), EPS );
+		assertEquals( -3, fusion.getBounds( i ).realMin( 1 ), EPS );
+		assertEquals( 16, fusion.getBounds( i ).realMax( 1 ), EPS );
+
+		/* fusing into a target that does not intersect the tile */
+		final ArrayImg< DoubleType, DoubleArray > target = ArrayImgs.doubles( 5, 5 );
+		fusion.setBackground( 3 );
+		fusion.fuse( Views.translate( target, 100, 100 ) );
+		for ( final DoubleType t : target )
+			assertEquals( 3, t.get(), EPS );
+	}
+}
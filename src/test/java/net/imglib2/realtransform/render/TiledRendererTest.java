@@ -0,0 +1,427 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2026 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.realtransform.render;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RealInterval;
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+import net.imglib2.RealPositionable;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.interpolation.randomaccess.NLinearInterpolatorFactory;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.realtransform.AffineRandomAccessible;
+import net.imglib2.realtransform.AffineTransform2D;
+import net.imglib2.realtransform.RealTransform;
+import net.imglib2.realtransform.render.TiledRenderer.TileLocation;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+public class TiledRendererTest
+{
+	final static double EPS = 1e-9;
+
+	static ArrayImg< DoubleType, DoubleArray > createSource()
+	{
+		final ArrayImg< DoubleType, DoubleArray > source = ArrayImgs.doubles( 32, 24 );
+		final Cursor< DoubleType > c = source.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.get().set( 1 + c.getDoublePosition( 0 ) * 0.5 + c.getDoublePosition( 1 ) * c.getDoublePosition( 0 ) * 0.1 );
+		}
+		return source;
+	}
+
+	@Test
+	public void testLocate()
+	{
+		final AffineTransform2D transform = new AffineTransform2D();
+		transform.translate( -100, 0 );
+
+		final TiledRenderer< DoubleType > renderer = new TiledRenderer<>(
+				createSource(),
+				new NLinearInterpolatorFactory<>(),
+				transform,
+				new DoubleType( -1 ),
+				8 );
+
+		assertEquals( TileLocation.OUTSIDE, renderer.locate( new FinalInterval( new long[] { 0, 0 }, new long[] { 7, 7 } ) ) );
+		assertEquals( TileLocation.INSIDE, renderer.locate( new FinalInterval( new long[] { 104, 4 }, new long[] { 111, 11 } ) ) );
+		assertEquals( TileLocation.BORDER, renderer.locate( new FinalInterval( new long[] { 96, 0 }, new long[] { 103, 7 } ) ) );
+	}
+
+	@Test
+	public void testTraversal()
+	{
+		for ( final TileTraversal traversal : TileTraversal.values() )
+		{
+			for ( final int[] dimensions : new int[][] { { 8, 8 }, { 5, 3 }, { 4, 4, 4 }, { 7, 2, 3 }, { 1 }, { 512, 1, 1 }, { 3, 1000 } } )
+			{
+				final int n = dimensions.length;
+				final int[] order = traversal.order( dimensions );
+				final boolean[] visited = new boolean[ order.length / n ];
+				for ( int i = 0; i < order.length; i += n )
+				{
+					int index = 0;
+					for ( int d = n - 1; d >= 0; --d )
+						index = index * dimensions[ d ] + order[ i + d ];
+					assertFalse( visited[ index ] );
+					visited[ index ] = true;
+				}
+				for ( final boolean v : visited )
+					assertTrue( v );
+			}
+		}
+
+		/* Hilbert order in power of two cubes has unit steps only */
+		final int[] order = TileTraversal.HILBERT.order( 8, 8, 8 );
+		for ( int i = 3; i < order.length; i += 3 )
+		{
+			int distance = 0;
+			for ( int d = 0; d < 3; ++d )
+				distance += Math.abs( order[ i + d ] - order[ i - 3 + d ] );
+			assertEquals( 1, distance );
+		}
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testTraversalKeyOverflow()
+	{
+		TileTraversal.MORTON.order( 1 << 22, 1, 1 );
+	}
+
+	@Test
+	public void testRender()
+	{
+		final ArrayImg< DoubleType, DoubleArray > source = createSource();
+
+		final AffineTransform2D transform = new AffineTransform2D();
+		transform.rotate( 0.3 );
+		transform.scale( 0.7 );
+		transform.translate( -10, 5 );
+
+		final TiledRenderer< DoubleType > renderer = new TiledRenderer<>(
+				source,
+				new NLinearInterpolatorFactory<>(),
+				transform,
+				new DoubleType( -1 ),
+				7, 5 );
+
+		for ( final TileTraversal traversal : TileTraversal.values() )
+		{
+			renderer.setTraversal( traversal );
+			final ArrayImg< DoubleType, DoubleArray > target = ArrayImgs.doubles( 80, 60 );
+			renderer.render( Views.translate( target, -20, -20 ) );
+			assertRendered( source, transform, target );
+		}
+	}
+
+	/**
+	 * Wraps a transform and records whether any instance is used by more
+	 * than one thread at a time.
+	 */
+	static class ExclusiveTransform implements RealTransform
+	{
+		final RealTransform transform;
+
+		final AtomicBoolean shared;
+
+		final AtomicInteger users = new AtomicInteger();
+
+		ExclusiveTransform( final RealTransform transform, final AtomicBoolean shared )
+		{
+			this.transform = transform;
+			this.shared = shared;
+		}
+
+		@Override
+		public int numSourceDimensions()
+		{
+			return transform.numSourceDimensions();
+		}
+
+		@Override
+		public int numTargetDimensions()
+		{
+			return transform.numTargetDimensions();
+		}
+
+		@Override
+		public void apply( final double[] source, final double[] target )
+		{
+			if ( users.incrementAndGet() > 1 )
+				shared.set( true );
+			Thread.yield();
+			transform.apply( source, target );
+			users.decrementAndGet();
+		}
+
+		@Override
+		public void apply( final RealLocalizable source, final RealPositionable target )
+		{
+			if ( users.incrementAndGet() > 1 )
+				shared.set( true );
+			Thread.yield();
+			transform.apply( source, target );
+			users.decrementAndGet();
+		}
+
+		@Override
+		public ExclusiveTransform copy()
+		{
+			return new ExclusiveTransform( transform.copy(), shared );
+		}
+	}
+
+	@Test
+	public void testRenderMultiThreaded()
+	{
+		final ArrayImg< DoubleType, DoubleArray > source = createSource();
+
+		final AffineTransform2D transform = new AffineTransform2D();
+		transform.rotate( 0.3 );
+		transform.scale( 0.7 );
+		transform.translate( -10, 5 );
+
+		final AtomicBoolean shared = new AtomicBoolean();
+		final TiledRenderer< DoubleType > renderer = new TiledRenderer<>(
+				source,
+				new NLinearInterpolatorFactory<>(),
+				new ExclusiveTransform( transform, shared ),
+				new DoubleType( -1 ),
+				2 );
+
+		final ArrayImg< DoubleType, DoubleArray > target = ArrayImgs.doubles( 80, 60 );
+		Parallelization.runWithNumThreads( 4, () -> renderer.render( Views.translate( target, -20, -20 ) ) );
+		assertRendered( source, transform, target );
+		assertFalse( shared.get() );
+	}
+
+	@Test
+	public void testRunLengthMask()
+	{
+		final RunLengthMask mask = RunLengthMask.fromIntervals( 2, Arrays.asList(
+				new FinalInterval( new long[] { 0, 0 }, new long[] { 3, 1 } ),
+				new FinalInterval( new long[] { 4, 1 }, new long[] { 6, 2 } ),
+				new FinalInterval( new long[] { 10, 0 }, new long[] { 10, 0 } ) ) );
+		assertEquals( 4, mask.numRuns() );
+		assertEquals( 4 + 7 + 3 + 1, mask.size() );
+		assertEquals( new FinalInterval( new long[] { 0, 0 }, new long[] { 10, 2 } ), mask.boundingInterval() );
+
+		final ArrayImg< BitType, ? > bits = ArrayImgs.bits( 12, 3 );
+		final RandomAccess< BitType > ra = bits.randomAccess();
+		mask.forEachRun( ( position, length, offset ) -> {
+			ra.setPosition( position );
+			for ( long x = 0; x < length; ++x, ra.fwd( 0 ) )
+				ra.get().set( true );
+		} );
+		final RunLengthMask copy = RunLengthMask.fromMask( bits );
+		assertEquals( mask.numRuns(), copy.numRuns() );
+		assertEquals( mask.size(), copy.size() );
+
+		final long[] count = new long[ 1 ];
+		mask.forEachRun( new FinalInterval( new long[] { 2, 1 }, new long[] { 10, 1 } ), ( position, length, offset ) -> {
+			assertEquals( 2, position[ 0 ] );
+			assertEquals( 5, length );
+			assertEquals( 7, offset );
+			++count[ 0 ];
+		} );
+		assertEquals( 1, count[ 0 ] );
+	}
+
+	@Test
+	public void testMaskedRender()
+	{
+		final ArrayImg< DoubleType, DoubleArray > source = createSource();
+
+		final AffineTransform2D transform = new AffineTransform2D();
+		transform.rotate( 0.3 );
+		transform.scale( 0.7 );
+		transform.translate( -10, 5 );
+
+		final AtomicBoolean shared = new AtomicBoolean();
+		final TiledRenderer< DoubleType > renderer = new TiledRenderer<>(
+				source,
+				new NLinearInterpolatorFactory<>(),
+				new ExclusiveTransform( transform, shared ),
+				new DoubleType( -1 ),
+				7, 5 );
+
+		/* a disk in target coordinates */
+		final ArrayImg< BitType, ? > bits = ArrayImgs.bits( 80, 60 );
+		final Cursor< BitType > b = bits.localizingCursor();
+		while ( b.hasNext() )
+		{
+			b.fwd();
+			final double x = b.getDoublePosition( 0 ) - 40;
+			final double y = b.getDoublePosition( 1 ) - 25;
+			b.get().set( x * x + y * y < 500 );
+		}
+		final RunLengthMask mask = RunLengthMask.fromMask( Views.translate( bits, -20, -20 ) );
+
+		final ArrayImg< DoubleType, DoubleArray > expected = ArrayImgs.doubles( 80, 60 );
+		renderer.render( Views.translate( expected, -20, -20 ) );
+
+		final ArrayImg< DoubleType, DoubleArray > target = ArrayImgs.doubles( 80, 60 );
+		for ( final DoubleType t : target )
+			t.set( -7 );
+		Parallelization.runWithNumThreads( 4, () -> renderer.render( Views.translate( target, -20, -20 ), mask ) );
+
+		final ArrayImg< DoubleType, DoubleArray > values = ArrayImgs.doubles( mask.size() );
+		Parallelization.runWithNumThreads( 4, () -> renderer.render( mask, values ) );
+
+		final Cursor< DoubleType > e = expected.cursor();
+		final Cursor< DoubleType > t = target.cursor();
+		final Cursor< DoubleType > v = values.cursor();
+		for ( final BitType bit : bits )
+		{
+			final double value = e.next().get();
+			if ( bit.get() )
+			{
+				assertEquals( value, t.next().get(), EPS );
+				assertEquals( value, v.next().get(), EPS );
+			}
+			else
+				assertEquals( -7, t.next().get(), EPS );
+		}
+		assertFalse( v.hasNext() );
+		assertFalse( shared.get() );
+	}
+
+	@Test
+	public void testPrefetch() throws InterruptedException
+	{
+		final ArrayImg< DoubleType, DoubleArray > source = createSource();
+		final CellImg< DoubleType, ? > cellSource = new CellImgFactory<>( new DoubleType(), 8 ).create( source );
+		LoopBuilder.setImages( source, cellSource ).forEachPixel( ( a, b ) -> b.set( a ) );
+
+		final AffineTransform2D transform = new AffineTransform2D();
+		transform.rotate( 0.3 );
+		transform.scale( 0.7 );
+		transform.translate( -10, 5 );
+
+		final AtomicBoolean shared = new AtomicBoolean();
+		final TiledRenderer< DoubleType > renderer = new TiledRenderer<>(
+				cellSource,
+				new NLinearInterpolatorFactory<>(),
+				new ExclusiveTransform( transform, shared ),
+				new DoubleType( -1 ),
+				7, 5 );
+
+		final SourcePrefetcher cells = SourcePrefetcher.cells( cellSource );
+		final List< RealInterval > requests = Collections.synchronizedList( new ArrayList<>() );
+		final ExecutorService prefetchService = Executors.newFixedThreadPool( 2 );
+		renderer.setPrefetcher( bounds -> {
+			requests.add( bounds );
+			cells.prefetch( bounds );
+		}, prefetchService, 4 );
+
+		final ArrayImg< DoubleType, DoubleArray > target = ArrayImgs.doubles( 80, 60 );
+		renderer.render( Views.translate( target, -20, -20 ) );
+		prefetchService.shutdown();
+		assertTrue( prefetchService.awaitTermination( 10, TimeUnit.SECONDS ) );
+
+		assertRendered( source, transform, target );
+		assertFalse( shared.get() );
+
+		long numInside = 0;
+		for ( final Interval tile : TiledRenderer.tiles( Views.translate( target, -20, -20 ), 7, 5 ) )
+			if ( renderer.locate( tile ) != TileLocation.OUTSIDE )
+				++numInside;
+		assertEquals( numInside, requests.size() );
+		for ( final RealInterval bounds : requests )
+			assertTrue( Intervals.contains( source, new RealPoint( bounds.minAsDoubleArray() ) ) );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testPrefetcherWithoutExecutor()
+	{
+		final TiledRenderer< DoubleType > renderer = new TiledRenderer<>(
+				createSource(),
+				new NLinearInterpolatorFactory<>(),
+				new AffineTransform2D(),
+				new DoubleType( -1 ),
+				8 );
+		renderer.setPrefetcher( bounds -> {}, null, 4 );
+	}
+
+	static void assertRendered(
+			final ArrayImg< DoubleType, DoubleArray > source,
+			final AffineTransform2D transform,
+			final ArrayImg< DoubleType, DoubleArray > target )
+	{
+		final RandomAccessible< DoubleType > reference = new AffineRandomAccessible<>(
+				Views.interpolate( Views.extendValue( source, -1 ), new NLinearInterpolatorFactory<>() ),
+				transform );
+		final RandomAccess< DoubleType > ra = reference.randomAccess();
+		final Cursor< DoubleType > c = target.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			ra.setPosition( c );
+			ra.move( -20, 0 );
+			ra.move( -20, 1 );
+			assertEquals( ra.get().get(), c.get().get(), EPS );
+		}
+	}
+}